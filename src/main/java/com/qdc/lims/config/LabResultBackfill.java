@@ -0,0 +1,114 @@
+package com.qdc.lims.config;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Fills derived LabResult columns for rows saved before those columns existed.
+ * Each step is a one-shot migration: once it has run it is recorded in {@code lims_backfill}
+ * and skipped on later starts, so the unindexed scans of lab_result happen only once.
+ */
+@Component
+public class LabResultBackfill implements ApplicationRunner {
+
+    // Same grammar as ResultValueParser: optional comparator and sign, digits with optional
+    // thousands groups, optional decimals
+    private static final String NUMERIC_PATTERN =
+            "^[[:space:]]*(<=?|>=?)?[[:space:]]*[+-]?(([0-9]{1,3}(,[0-9]{3})+|[0-9]+)(\\.[0-9]*)?|\\.[0-9]+)[[:space:]]*$";
+
+    // Latest and previous numeric value per (patient, test) by order date, from the existing result history
+    private static final String LATEST_RESULTS_SQL = "INSERT INTO patient_latest_results "
+            + "(patient_id, test_id, result_id, latest_value, latest_at, previous_value, updated_at) "
+            + "SELECT patient_id, test_id, id, numeric_value, order_date, previous_value, now() FROM ("
+            + " SELECT o.patient_id, r.test_id, r.id, r.numeric_value, o.order_date,"
+            + "  LAG(r.numeric_value) OVER (PARTITION BY o.patient_id, r.test_id ORDER BY o.order_date, r.id) AS previous_value,"
+            + "  ROW_NUMBER() OVER (PARTITION BY o.patient_id, r.test_id ORDER BY o.order_date DESC, r.id DESC) AS rn"
+            + " FROM lab_result r JOIN lab_order o ON o.id = r.order_id"
+            + " WHERE r.numeric_value IS NOT NULL AND r.test_id IS NOT NULL"
+            + ") history WHERE rn = 1";
+
+    // ResultValueParser.Kind of each value
+    private static final String VALUE_KIND_SQL = "UPDATE lab_result SET value_kind = CASE"
+            + " WHEN result_value IS NULL OR result_value ~ '^[[:space:]]*$' THEN 'EMPTY'"
+            + " WHEN result_value !~ ? THEN 'TEXT'"
+            + " WHEN result_value ~ '^[[:space:]]*<' THEN 'BELOW'"
+            + " WHEN result_value ~ '^[[:space:]]*>' THEN 'ABOVE'"
+            + " ELSE 'NUMERIC' END"
+            + " WHERE value_kind IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructs a LabResultBackfill with the specified JdbcTemplate.
+     *
+     * @param jdbcTemplate template for the backfill statements
+     */
+    public LabResultBackfill(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Runs the backfill steps that have not run yet.
+     *
+     * @param args application arguments (unused)
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS lims_backfill "
+                + "(name varchar(100) PRIMARY KEY, applied_at timestamp NOT NULL)");
+
+        // 1. value_kind
+        migrate("lab_result.value_kind", "value_kind for %d lab results",
+                () -> jdbcTemplate.update(VALUE_KIND_SQL, NUMERIC_PATTERN));
+
+        // 2. numeric_value: plain numbers only; strip spaces and thousands separators, then cast
+        migrate("lab_result.numeric_value", "numeric_value for %d lab results", () -> jdbcTemplate.update(
+                "UPDATE lab_result SET numeric_value = CAST(regexp_replace(result_value, '[^0-9.+-]', '', 'g') AS double precision) "
+                        + "WHERE numeric_value IS NULL AND value_kind = 'NUMERIC'"));
+
+        // 3. patient_latest_results: seeded once from history, then maintained by DeltaCheckService
+        migrate("patient_latest_results", "delta check history for %d patient/test pairs", () -> {
+            Boolean seeded = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM patient_latest_results)", Boolean.class);
+            return Boolean.TRUE.equals(seeded) ? 0 : jdbcTemplate.update(LATEST_RESULTS_SQL);
+        });
+
+        // 4. patient_id: copied from the order, for the cumulative report index
+        migrate("lab_result.patient_id", "patient_id for %d lab results", () -> jdbcTemplate.update(
+                "UPDATE lab_result r SET patient_id = o.patient_id FROM lab_order o "
+                        + "WHERE o.id = r.order_id AND r.patient_id IS NULL"));
+
+        // 5. performed_at: results entered without a timestamp take their order date, for the cumulative report
+        migrate("lab_result.performed_at", "performed_at for %d lab results", () -> jdbcTemplate.update(
+                "UPDATE lab_result r SET performed_at = o.order_date FROM lab_order o "
+                        + "WHERE o.id = r.order_id AND r.performed_at IS NULL "
+                        + "AND r.result_value IS NOT NULL AND btrim(r.result_value) <> ''"));
+    }
+
+    /**
+     * Runs a backfill step unless lims_backfill records it as done, then records it.
+     * The steps only touch rows still missing their value, so a step interrupted before it is
+     * recorded can simply run again on the next start.
+     *
+     * @param name        key of the step in lims_backfill
+     * @param description what was filled, with %d for the number of rows
+     * @param step        the step, returning the number of rows it filled
+     */
+    private void migrate(String name, String description, IntSupplier step) {
+        Boolean done = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM lims_backfill WHERE name = ?)", Boolean.class, name);
+        if (Boolean.TRUE.equals(done)) {
+            return;
+        }
+
+        int filled = step.getAsInt();
+        jdbcTemplate.update("INSERT INTO lims_backfill (name, applied_at) VALUES (?, now()) ON CONFLICT (name) DO NOTHING", name);
+        if (filled > 0) {
+            System.out.println("✅ Backfilled " + String.format(description, filled));
+        }
+    }
+}
@@ -31,12 +31,15 @@ public class SecurityConfig {
                 // 1. PUBLIC ACCESS: 
                 // We allow "/" (The Cards), "/setup" (First Run), and all static assets (CSS/JS)
                 .requestMatchers("/", "/index", "/setup", "/login", "/css/**", "/js/**", "/webfonts/**", "/images/**").permitAll()
+                // Scanned report QR codes: the token is HMAC-signed and the summary is masked
+                .requestMatchers("/verify/**").permitAll()
                 
                 // 2. RESTRICTED ACCESS (The Doors):
                 // If you click these links, Spring will stop you and ask for a password
                 .requestMatchers("/admin/**").hasRole("ADMIN")
                 .requestMatchers("/lab/**").hasAnyRole("LAB", "ADMIN")
                 .requestMatchers("/reception/**").hasAnyRole("RECEPTION", "ADMIN")
+                .requestMatchers("/api/alerts/**").hasAnyRole("RECEPTION", "ADMIN") // Critical-value stream
                 .requestMatchers("/api/**").authenticated()
                 
                 // 3. Catch-all: Anything else requires login
@@ -0,0 +1,124 @@
+package com.qdc.lims.config;
+
+import com.qdc.lims.entity.IdAllocation;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves the entity ID sequences past the IDs already in their tables.
+ * Tables created before the switch from IDENTITY to pooled sequences still hold IDs the new
+ * sequences would hand out again, so each sequence is advanced beyond MAX(id).
+ * <p>
+ * This runs while the context starts, before the EntityManagerFactory is built (it depends on this
+ * bean), so no request or runner can draw a pooled ID before the sequences are aligned.
+ * Hibernate has not updated the schema yet at that point, so a sequence missing on an existing
+ * table is created here with the allocation size the entities use.
+ */
+@Component
+public class SequenceAligner implements InitializingBean {
+
+    // Sequence name -> table whose IDs it generates
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "lab_order_seq", "lab_order",
+            "lab_result_seq", "lab_result",
+            "commission_ledger_seq", "commission_ledger",
+            "supplier_ledger_seq", "supplier_ledger",
+            "patient_seq", "patients",
+            "test_consumption_seq", "test_consumption");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructs a SequenceAligner on the application's DataSource.
+     *
+     * @param dataSource the database whose sequences are aligned
+     */
+    public SequenceAligner(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Aligns every known sequence with the highest ID in its table.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        for (Map.Entry<String, String> entry : SEQUENCES.entrySet()) {
+            align(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void align(String sequence, String table) {
+        // A fresh database: Hibernate creates the table and its sequence together
+        if (!exists(table)) {
+            return;
+        }
+        if (!exists(sequence)) {
+            jdbcTemplate.execute("CREATE SEQUENCE " + sequence + " START WITH 1 INCREMENT BY " + IdAllocation.SIZE);
+        }
+
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        // Highest value the sequence has already handed out (a fresh sequence has handed out none)
+        Long handedOut = jdbcTemplate.queryForObject(
+                "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END FROM " + sequence, Long.class);
+
+        // After setval(maxId) the next nextval() returns maxId + allocationSize, and the pooled
+        // optimizer hands out the block (maxId, maxId + allocationSize].
+        if (maxId != null && handedOut != null && handedOut < maxId) {
+            jdbcTemplate.queryForObject("SELECT setval(?::regclass, ?)", Long.class, sequence, maxId);
+            System.out.println("🔧 Advanced " + sequence + " past existing " + table + " IDs (max " + maxId + ")");
+        }
+    }
+
+    private boolean exists(String relation) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, relation);
+    }
+
+    /**
+     * Makes every EntityManagerFactory depend on the SequenceAligner, so the sequences are aligned
+     * before Hibernate (and with it every repository, runner and web request) can use them.
+     */
+    @Component
+    static class EntityManagerFactoryDependency implements BeanFactoryPostProcessor {
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+            Set<String> names = new LinkedHashSet<>();
+            for (Class<?> type : new Class<?>[] { EntityManagerFactory.class, AbstractEntityManagerFactoryBean.class }) {
+                for (String name : BeanFactoryUtils.beanNamesForTypeIncludingAncestors(beanFactory, type, true, false)) {
+                    names.add(BeanFactoryUtils.transformedBeanName(name));
+                }
+            }
+            String[] aligners = beanFactory.getBeanNamesForType(SequenceAligner.class, true, false);
+            if (aligners.length == 0) {
+                return;
+            }
+            String aligner = aligners[0];
+            for (String name : names) {
+                if (!beanFactory.containsBeanDefinition(name)) {
+                    continue;
+                }
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                Set<String> dependsOn = new LinkedHashSet<>();
+                if (definition.getDependsOn() != null) {
+                    dependsOn.addAll(Arrays.asList(definition.getDependsOn()));
+                }
+                dependsOn.add(aligner);
+                definition.setDependsOn(dependsOn.toArray(String[]::new));
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.qdc.lims.controller;
+
+import com.qdc.lims.service.CriticalAlertHub;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST controller streaming critical-value alerts to reception and admin screens.
+ */
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertController {
+
+    private final CriticalAlertHub hub;
+
+    /**
+     * Constructs an AlertController.
+     *
+     * @param hub the SSE fan-out hub
+     */
+    public AlertController(CriticalAlertHub hub) {
+        this.hub = hub;
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of "critical" events (CriticalAlert JSON).
+     *
+     * @return the emitter bound to this connection
+     */
+    @GetMapping(path = "/critical/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCriticalAlerts() {
+        return hub.subscribe();
+    }
+}
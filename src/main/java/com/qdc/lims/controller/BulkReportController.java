@@ -0,0 +1,80 @@
+package com.qdc.lims.controller;
+
+import com.qdc.lims.dto.BulkReportStatus;
+import com.qdc.lims.service.BulkReportService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * REST controller for end-of-day bulk report printing: submit a job, poll it, download the bundle.
+ */
+@RestController
+@RequestMapping("/api/reports/bulk")
+public class BulkReportController {
+
+    private final BulkReportService bulkService;
+
+    /**
+     * Constructs a BulkReportController.
+     *
+     * @param bulkService service running the bulk jobs
+     */
+    public BulkReportController(BulkReportService bulkService) {
+        this.bulkService = bulkService;
+    }
+
+    /**
+     * Starts a bulk job for the orders of a date range. Returns immediately; poll the status.
+     *
+     * @param from the first order date (yyyy-MM-dd)
+     * @param to the last order date (defaults to from)
+     * @param status only orders with this status, e.g. COMPLETED (optional)
+     * @param format PDF for one merged print file, ZIP for one file per order
+     * @return 202 Accepted with the job status
+     */
+    // URL: POST http://localhost:8080/api/reports/bulk?from=2026-01-31&status=COMPLETED&format=PDF
+    @PostMapping
+    public ResponseEntity<BulkReportStatus> submit(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "PDF") BulkReportService.Format format) {
+        return ResponseEntity.accepted().body(bulkService.submit(from, to != null ? to : from, status, format));
+    }
+
+    /**
+     * Returns the progress of a bulk job.
+     *
+     * @param jobId the ID of the job
+     * @return the job status
+     */
+    @GetMapping("/{jobId}")
+    public BulkReportStatus status(@PathVariable String jobId) {
+        return bulkService.status(jobId);
+    }
+
+    /**
+     * Downloads the merged PDF or ZIP of a finished job.
+     *
+     * @param jobId the ID of the job
+     * @return the bundle as a file download
+     */
+    @GetMapping("/{jobId}/download")
+    public ResponseEntity<Resource> download(@PathVariable String jobId) {
+        BulkReportStatus job = bulkService.status(jobId);
+        boolean pdf = BulkReportService.Format.PDF.name().equals(job.format());
+        String filename = "reports_" + job.createdAt().toLocalDate() + (pdf ? ".pdf" : ".zip");
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, (pdf ? "inline" : "attachment") + "; filename=" + filename)
+                .contentType(pdf ? MediaType.APPLICATION_PDF : MediaType.parseMediaType("application/zip"))
+                .body(new FileSystemResource(bulkService.output(jobId)));
+    }
+}
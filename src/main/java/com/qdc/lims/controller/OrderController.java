@@ -1,24 +1,31 @@
 package com.qdc.lims.controller;
 
+import com.qdc.lims.dto.OrderBatchResult;
 import com.qdc.lims.dto.OrderRequest;
 import com.qdc.lims.entity.LabOrder;
+import com.qdc.lims.service.BatchOrderService;
 import com.qdc.lims.service.OrderService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
     private final OrderService service;
+    private final BatchOrderService batchService;
 
     /**
-     * Constructs an OrderController with the specified OrderService.
+     * Constructs an OrderController with the specified services.
      *
      * @param service the OrderService to handle order operations
+     * @param batchService the BatchOrderService to handle bulk bookings
      */
-    public OrderController(OrderService service) {
+    public OrderController(OrderService service, BatchOrderService batchService) {
         this.service = service;
+        this.batchService = batchService;
     }
 
     /**
@@ -44,4 +51,17 @@ public class OrderController {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Books a list of lab orders in one call (e.g., a corporate health camp).
+     * Every order is attempted; the response reports success or failure per order.
+     *
+     * @param requests the order requests to book
+     * @return ResponseEntity containing one result per submitted order
+     */
+    // URL: POST http://localhost:8080/api/orders/batch
+    @PostMapping("/batch")
+    public ResponseEntity<List<OrderBatchResult>> createOrders(@RequestBody List<OrderRequest> requests) {
+        return ResponseEntity.ok(batchService.createOrders(requests));
+    }
+
+}
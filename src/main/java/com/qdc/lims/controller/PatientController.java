@@ -1,23 +1,36 @@
 package com.qdc.lims.controller;
 
+import com.qdc.lims.dto.PatientSearchPage;
+import com.qdc.lims.dto.PatientSuggestion;
 import com.qdc.lims.entity.Patient;
+import com.qdc.lims.service.PatientSearchService;
 import com.qdc.lims.service.PatientService;
+import com.qdc.lims.service.PatientSuggestService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/patients")
 public class PatientController {
 
     private final PatientService service;
+    private final PatientSearchService searchService;
+    private final PatientSuggestService suggestService;
 
     /**
-     * Constructs a PatientController with the specified PatientService.
+     * Constructs a PatientController with the specified services.
      *
      * @param service the PatientService to handle patient operations
+     * @param searchService the PatientSearchService for ranked patient lookups
+     * @param suggestService the PatientSuggestService for typeahead lookups
      */
-    public PatientController(PatientService service) {
+    public PatientController(PatientService service, PatientSearchService searchService,
+            PatientSuggestService suggestService) {
         this.service = service;
+        this.searchService = searchService;
+        this.suggestService = suggestService;
     }
 
     /**
@@ -34,6 +47,37 @@ public class PatientController {
         return ResponseEntity.ok(savedPatient);
     }
 
+    /**
+     * Searches patients by name, mobile number or MRN, best match first.
+     *
+     * @param q the search text (1-2 characters match as a prefix)
+     * @param limit the page size (at most 100)
+     * @param after the nextCursor from the previous page, if any
+     * @return ResponseEntity containing one page of ranked hits
+     */
+    // URL: GET http://localhost:8080/api/patients/search?q=ali&limit=20
+    @GetMapping("/search")
+    public ResponseEntity<PatientSearchPage> search(@RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String after) {
+        return ResponseEntity.ok(searchService.search(q, limit, after));
+    }
+
+    /**
+     * Suggests patients as the receptionist types a mobile number, MRN or name.
+     * Answered from memory, without querying the database.
+     *
+     * @param q the text typed so far
+     * @param limit the maximum number of suggestions (at most 20)
+     * @return ResponseEntity containing the matching patients, newest first
+     */
+    // URL: GET http://localhost:8080/api/patients/suggest?q=0300
+    @GetMapping("/suggest")
+    public ResponseEntity<List<PatientSuggestion>> suggest(@RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(suggestService.suggest(q, limit));
+    }
+
     /**
      * Simple verification endpoint to check if the system is running.
      *
@@ -0,0 +1,92 @@
+package com.qdc.lims.controller;
+
+import com.qdc.lims.dto.LeveyJenningsChart;
+import com.qdc.lims.dto.QcRunRequest;
+import com.qdc.lims.entity.QcControl;
+import com.qdc.lims.entity.QcRun;
+import com.qdc.lims.repository.QcControlRepository;
+import com.qdc.lims.service.QcService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for quality control: control materials, control runs and Levey-Jennings data.
+ */
+@RestController
+@RequestMapping("/api/qc")
+public class QcController {
+
+    private final QcService qcService;
+    private final QcControlRepository controlRepo;
+
+    /**
+     * Constructs a QcController.
+     *
+     * @param qcService service that records runs and evaluates the Westgard rules
+     * @param controlRepo repository for listing controls
+     */
+    public QcController(QcService qcService, QcControlRepository controlRepo) {
+        this.qcService = qcService;
+        this.controlRepo = controlRepo;
+    }
+
+    /**
+     * Lists the QC controls, optionally only those of one test.
+     *
+     * @param testId the ID of the test (optional)
+     * @return the controls with their current state
+     */
+    @GetMapping("/controls")
+    public List<QcControl> getControls(@RequestParam(required = false) Long testId) {
+        return testId != null ? controlRepo.findByTestIdOrderByIdAsc(testId) : controlRepo.findAll();
+    }
+
+    /**
+     * Adds a control material to a test.
+     *
+     * @param control the control ({"test": {"id": 5}, "level": "Level 1", "targetMean": ..., "targetSd": ...})
+     * @return the saved control
+     */
+    @PostMapping("/controls")
+    public QcControl createControl(@RequestBody QcControl control) {
+        return qcService.createControl(control);
+    }
+
+    /**
+     * Records a control measurement and evaluates the Westgard rules.
+     *
+     * @param id the ID of the control
+     * @param request the measured value
+     * @return the saved run, with its SDI and any rule violations
+     */
+    @PostMapping("/controls/{id}/runs")
+    public ResponseEntity<QcRun> recordRun(@PathVariable Long id, @RequestBody QcRunRequest request) {
+        return ResponseEntity.ok(qcService.recordRun(id, request.value()));
+    }
+
+    /**
+     * Restarts a control's rule window after corrective action and lifts its hold on results.
+     *
+     * @param id the ID of the control
+     * @return 204 No Content
+     */
+    @PostMapping("/controls/{id}/reset")
+    public ResponseEntity<Void> resetControl(@PathVariable Long id) {
+        qcService.resetControl(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Returns Levey-Jennings chart data for a control.
+     *
+     * @param id the ID of the control
+     * @param limit the number of most recent runs to include (default 60, at most 500)
+     * @return the chart data
+     */
+    @GetMapping("/controls/{id}/levey-jennings")
+    public LeveyJenningsChart getChart(@PathVariable Long id, @RequestParam(defaultValue = "60") int limit) {
+        return qcService.chart(id, limit);
+    }
+}
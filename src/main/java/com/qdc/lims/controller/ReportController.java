@@ -1,10 +1,23 @@
 package com.qdc.lims.controller;
 
+import com.qdc.lims.dto.CumulativeReport;
+import com.qdc.lims.entity.LabOrder;
+import com.qdc.lims.service.CumulativeReportService;
+import com.qdc.lims.service.ReportArchiveService;
 import com.qdc.lims.service.ReportService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Controller for handling report-related requests.
@@ -14,30 +27,88 @@ import org.springframework.web.bind.annotation.*;
 public class ReportController {
 
     private final ReportService service;
+    private final ReportArchiveService archiveService;
+    private final CumulativeReportService cumulativeService;
 
     /**
-     * Constructs a ReportController with the specified ReportService.
+     * Constructs a ReportController with the specified services.
      *
      * @param service the ReportService to handle report generation
+     * @param archiveService the archive serving delivered reports
+     * @param cumulativeService service building cumulative (multi-visit) reports
      */
-    public ReportController(ReportService service) {
+    public ReportController(ReportService service, ReportArchiveService archiveService,
+            CumulativeReportService cumulativeService) {
         this.service = service;
+        this.archiveService = archiveService;
+        this.cumulativeService = cumulativeService;
     }
 
     /**
      * Downloads the PDF report for the specified order ID.
+     * <p>
+     * Delivered reports are served from the archive as a file (with Content-Length and Range
+     * support), with the content hash as a strong ETag, so a repeat download costs a 304.
+     * Reports not delivered yet can still change: the order is loaded here, on the request
+     * thread, and the PDF is written straight into the response as it is rendered (chunked,
+     * since its length is unknown until it is done).
      *
      * @param orderId the ID of the order for which to generate the report
-     * @return ResponseEntity containing the PDF bytes as an attachment
+     * @param inline true to display the PDF in the browser (for printing) instead of downloading it
+     * @param request the request, for If-None-Match
+     * @return ResponseEntity with the archived file or the streamed PDF
      */
     // URL: GET http://localhost:8080/api/reports/1
     @GetMapping("/{orderId}")
-    public ResponseEntity<byte[]> downloadReport(@PathVariable Long orderId) {
-        byte[] pdfBytes = service.generatePdfReport(orderId);
+    public ResponseEntity<?> downloadReport(@PathVariable Long orderId,
+            @RequestParam(defaultValue = "false") boolean inline, WebRequest request) {
+        String disposition = (inline ? "inline" : "attachment") + "; filename=report_" + orderId + ".pdf";
+
+        // 1. Delivered: serve the archived copy (304 if the client already has it)
+        Optional<ReportArchiveService.ArchivedReport> archived = archiveService.find(orderId);
+        if (archived.isPresent()) {
+            String etag = archived.get().hash();
+            if (request.checkNotModified(etag)) {
+                return null; // 304 Not Modified, already prepared by checkNotModified
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(new FileSystemResource(archived.get().file()));
+        }
+
+        // 2. Not delivered: render fresh into the response
+        LabOrder order = service.loadOrder(orderId);
+        StreamingResponseBody body = out -> service.renderPdf(order, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
+    /**
+     * Downloads a patient's cumulative report (every released result per test across visits,
+     * with trend charts) as a PDF. The data is read on the request thread; the PDF is streamed.
+     *
+     * @param patientId the ID of the patient
+     * @param tests the tests to include (optional; default every test the patient has had)
+     * @param since the earliest result date (optional; default the whole history)
+     * @return ResponseEntity with the streamed PDF
+     */
+    // URL: GET http://localhost:8080/api/reports/cumulative/1?tests=4&tests=9&since=2025-01-01
+    @GetMapping("/cumulative/{patientId}")
+    public ResponseEntity<StreamingResponseBody> downloadCumulativeReport(@PathVariable Long patientId,
+            @RequestParam(required = false) List<Long> tests,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since) {
+        CumulativeReport report = cumulativeService.build(patientId, tests, since);
+        StreamingResponseBody body = out -> service.renderCumulativePdf(report, out);
 
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=report_" + orderId + ".pdf")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=cumulative_" + patientId + ".pdf")
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(pdfBytes);
+                .body(body);
     }
-}
\ No newline at end of file
+}
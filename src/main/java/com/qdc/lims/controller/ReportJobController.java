@@ -0,0 +1,74 @@
+package com.qdc.lims.controller;
+
+import com.qdc.lims.entity.ReportJob;
+import com.qdc.lims.service.ReportJobService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for the asynchronous report queue: queue a report, poll the job, download the PDF.
+ */
+@RestController
+@RequestMapping("/api/reports/jobs")
+public class ReportJobController {
+
+    private final ReportJobService jobService;
+
+    /**
+     * Constructs a ReportJobController.
+     *
+     * @param jobService service managing the report queue
+     */
+    public ReportJobController(ReportJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * Queues the report of an order. Returns immediately; poll the job until it is DONE.
+     *
+     * @param orderId the ID of the order
+     * @return 202 Accepted with the job and its status URL in the Location header
+     */
+    // URL: POST http://localhost:8080/api/reports/jobs?orderId=1
+    @PostMapping
+    public ResponseEntity<ReportJob> enqueue(@RequestParam Long orderId) {
+        ReportJob job = jobService.enqueue(orderId);
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/reports/jobs/" + job.getId())
+                .body(job);
+    }
+
+    /**
+     * Returns a job and its status (QUEUED, RUNNING, DONE or FAILED).
+     *
+     * @param jobId the ID of the job
+     * @return the job
+     */
+    @GetMapping("/{jobId}")
+    public ReportJob getJob(@PathVariable Long jobId) {
+        return jobService.getJob(jobId);
+    }
+
+    /**
+     * Downloads the PDF of a finished job.
+     *
+     * @param jobId the ID of the job
+     * @param inline true to display the PDF in the browser instead of downloading it
+     * @return the PDF file
+     */
+    @GetMapping("/{jobId}/download")
+    public ResponseEntity<Resource> download(@PathVariable Long jobId,
+            @RequestParam(defaultValue = "false") boolean inline) {
+        ReportJob job = jobService.getJob(jobId);
+        String disposition = (inline ? "inline" : "attachment") + "; filename=report_" + job.getOrderId() + ".pdf";
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(new FileSystemResource(jobService.output(jobId)));
+    }
+}
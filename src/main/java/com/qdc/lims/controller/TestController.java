@@ -2,6 +2,9 @@ package com.qdc.lims.controller;
 
 import com.qdc.lims.entity.TestDefinition;
 import com.qdc.lims.repository.TestDefinitionRepository;
+import com.qdc.lims.service.AutoVerificationService;
+import com.qdc.lims.service.FormulaService;
+import com.qdc.lims.service.ReferenceRangeIndex;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 
@@ -13,14 +16,24 @@ import java.util.List;
 public class TestController {
 
     private final TestDefinitionRepository repository;
+    private final ReferenceRangeIndex rangeIndex;
+    private final AutoVerificationService autoVerificationService;
+    private final FormulaService formulaService;
 
     /**
-     * Constructs a TestController with the specified TestDefinitionRepository.
+     * Constructs a TestController with the specified repository and compiled-rule caches.
      *
      * @param repository the repository for test definitions
+     * @param rangeIndex compiled range index, refreshed when a test is saved
+     * @param autoVerificationService compiled verification rules, refreshed when a test is saved
+     * @param formulaService compiled formulas, validated and refreshed when a test is saved
      */
-    public TestController(TestDefinitionRepository repository) {
+    public TestController(TestDefinitionRepository repository, ReferenceRangeIndex rangeIndex,
+            AutoVerificationService autoVerificationService, FormulaService formulaService) {
         this.repository = repository;
+        this.rangeIndex = rangeIndex;
+        this.autoVerificationService = autoVerificationService;
+        this.formulaService = formulaService;
     }
 
     /**
@@ -31,7 +44,12 @@ public class TestController {
      */
     @PostMapping
     public TestDefinition createTest(@RequestBody TestDefinition test) {
-        return repository.save(test);
+        formulaService.validate(test.getFormula());
+        TestDefinition saved = repository.save(test);
+        rangeIndex.refresh(saved.getId());
+        autoVerificationService.refresh(saved.getId());
+        formulaService.refresh();
+        return saved;
     }
 
     /**
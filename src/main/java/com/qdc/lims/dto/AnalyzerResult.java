@@ -0,0 +1,20 @@
+package com.qdc.lims.dto;
+
+/**
+ * DTO for one result row read from an analyzer export file.
+ *
+ * @param lineNumber the line of the source file the row came from
+ * @param orderId the lab order (specimen) ID the analyzer reported
+ * @param testCode the analyzer's test code, matched against TestDefinition.shortCode
+ * @param value the raw result value
+ * @param flags the instrument's abnormal/quality flags (e.g., "H", "L", "A"), may be null
+ * @param instrument the name of the analyzer that produced the result, may be null
+ */
+public record AnalyzerResult(
+        long lineNumber,
+        Long orderId,
+        String testCode,
+        String value,
+        String flags,
+        String instrument) {
+}
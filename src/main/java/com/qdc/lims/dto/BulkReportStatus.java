@@ -0,0 +1,29 @@
+package com.qdc.lims.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progress of a bulk report job.
+ *
+ * @param jobId the ID of the job
+ * @param format the output format ("PDF" for one merged print file, "ZIP" for one file per order)
+ * @param state "QUEUED", "RUNNING", "DONE" or "FAILED"
+ * @param total the number of orders selected
+ * @param rendered the number of reports written so far
+ * @param failedOrderIds orders whose report could not be rendered (left out of the output)
+ * @param error why the job failed, if it did
+ * @param createdAt when the job was submitted
+ * @param finishedAt when the job finished, if it has
+ */
+public record BulkReportStatus(
+        String jobId,
+        String format,
+        String state,
+        int total,
+        int rendered,
+        List<Long> failedOrderIds,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime finishedAt) {
+}
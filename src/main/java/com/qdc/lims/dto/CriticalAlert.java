@@ -0,0 +1,28 @@
+package com.qdc.lims.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO pushed to reception/admin screens when a result crosses its test's critical limits.
+ *
+ * @param resultId the ID of the critical result
+ * @param orderId the ID of the order
+ * @param mrn the patient's MRN
+ * @param patientName the patient's full name
+ * @param testName the test
+ * @param value the result value as entered
+ * @param unit the test's unit
+ * @param direction "LOW" (below criticalLow) or "HIGH" (above criticalHigh)
+ * @param savedAt when the result was saved
+ */
+public record CriticalAlert(
+        Long resultId,
+        Long orderId,
+        String mrn,
+        String patientName,
+        String testName,
+        String value,
+        String unit,
+        String direction,
+        LocalDateTime savedAt) {
+}
@@ -0,0 +1,42 @@
+package com.qdc.lims.dto;
+
+import com.qdc.lims.entity.Patient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A patient's results across visits, one series per test.
+ *
+ * @param patient the patient
+ * @param since the earliest result date included
+ * @param series the tests, each with its results oldest first
+ * @param truncated true if any series left out older results
+ */
+public record CumulativeReport(
+        Patient patient,
+        LocalDate since,
+        List<Series> series,
+        boolean truncated) {
+
+    /**
+     * One test's results over time.
+     *
+     * @param testId the ID of the test
+     * @param testName the test name
+     * @param unit the unit of the test
+     * @param minRange the lower reference limit, if any
+     * @param maxRange the upper reference limit, if any
+     * @param rows the results, oldest first (at most the newest results of the period)
+     * @param omitted the number of older results of the period left out of the report
+     */
+    public record Series(
+            Long testId,
+            String testName,
+            String unit,
+            Double minRange,
+            Double maxRange,
+            List<CumulativeResultRow> rows,
+            long omitted) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.qdc.lims.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One result in a patient's cumulative report, read straight from the (patient, test, time) index
+ * without loading the order or result entities.
+ *
+ * @param resultId the ID of the result
+ * @param orderId the ID of the order (visit) it belongs to
+ * @param testId the ID of the test
+ * @param testName the test name
+ * @param unit the unit of the test
+ * @param minRange the lower reference limit, if any
+ * @param maxRange the upper reference limit, if any
+ * @param performedAt when the result was entered
+ * @param resultValue the reported value
+ * @param numericValue the value as a number (null for text results)
+ * @param abnormal whether the result was flagged abnormal
+ */
+public record CumulativeResultRow(
+        Long resultId,
+        Long orderId,
+        Long testId,
+        String testName,
+        String unit,
+        Double minRange,
+        Double maxRange,
+        LocalDateTime performedAt,
+        String resultValue,
+        Double numericValue,
+        boolean abnormal) {
+}
@@ -0,0 +1,10 @@
+package com.qdc.lims.dto;
+
+/**
+ * A doctor's total unpaid commission, as summed from the ledger.
+ *
+ * @param doctorId the ID of the doctor
+ * @param unpaid the sum of the doctor's UNPAID ledger entries
+ */
+public record DoctorBalance(Long doctorId, Double unpaid) {
+}
@@ -0,0 +1,51 @@
+package com.qdc.lims.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO with the data of a Levey-Jennings chart for one QC control.
+ * The chart's center line is mean and its control lines are mean ± 1, 2 and 3 sd.
+ *
+ * @param controlId the ID of the control
+ * @param testName the analyte
+ * @param level the control level (e.g., "Level 2")
+ * @param lotNumber the lot of the control material
+ * @param mean the mean the runs are scored against (target, or running if no target is set)
+ * @param sd the SD the runs are scored against (target, or running if no target is set)
+ * @param runningMean the mean of every run recorded so far
+ * @param runningSd the SD of every run recorded so far
+ * @param runCount the number of runs recorded so far
+ * @param points the most recent runs, oldest first
+ */
+public record LeveyJenningsChart(
+        Long controlId,
+        String testName,
+        String level,
+        String lotNumber,
+        Double mean,
+        Double sd,
+        Double runningMean,
+        Double runningSd,
+        long runCount,
+        List<Point> points) {
+
+    /**
+     * One plotted run.
+     *
+     * @param runId the ID of the run
+     * @param runAt when the control was measured
+     * @param value the measured value
+     * @param sdi the standard deviation index (null if the control had no SD yet)
+     * @param violations the Westgard rules the run violated, if any
+     * @param rejected whether the run was rejected
+     */
+    public record Point(
+            Long runId,
+            LocalDateTime runAt,
+            Double value,
+            Double sdi,
+            String violations,
+            boolean rejected) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.qdc.lims.dto;
+
+/**
+ * DTO describing the outcome of one order in a bulk booking request.
+ *
+ * @param index the position of the order in the submitted list
+ * @param orderId the ID of the created order (null if booking failed)
+ * @param success true if the order was booked
+ * @param error the reason the order failed (null on success)
+ */
+public record OrderBatchResult(
+        int index,
+        Long orderId,
+        boolean success,
+        String error) {
+}
@@ -0,0 +1,18 @@
+package com.qdc.lims.dto;
+
+/**
+ * DTO for one ranked patient search result.
+ *
+ * @param id the ID of the patient
+ * @param mrn the patient's MRN
+ * @param fullName the patient's full name
+ * @param mobileNumber the patient's mobile number
+ * @param score the relevance score (higher is better)
+ */
+public record PatientSearchHit(
+        Long id,
+        String mrn,
+        String fullName,
+        String mobileNumber,
+        double score) {
+}
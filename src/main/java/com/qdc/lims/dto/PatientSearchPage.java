@@ -0,0 +1,14 @@
+package com.qdc.lims.dto;
+
+import java.util.List;
+
+/**
+ * DTO for one page of patient search results.
+ *
+ * @param hits the ranked results on this page
+ * @param nextCursor the cursor to pass as "after" for the next page (null if this is the last page)
+ */
+public record PatientSearchPage(
+        List<PatientSearchHit> hits,
+        String nextCursor) {
+}
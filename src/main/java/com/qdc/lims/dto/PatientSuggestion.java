@@ -0,0 +1,16 @@
+package com.qdc.lims.dto;
+
+/**
+ * Lightweight DTO for typeahead patient suggestions.
+ *
+ * @param id the ID of the patient
+ * @param mrn the patient's MRN
+ * @param fullName the patient's full name
+ * @param mobileNumber the patient's mobile number
+ */
+public record PatientSuggestion(
+        Long id,
+        String mrn,
+        String fullName,
+        String mobileNumber) {
+}
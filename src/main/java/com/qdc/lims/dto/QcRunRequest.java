@@ -0,0 +1,10 @@
+package com.qdc.lims.dto;
+
+/**
+ * DTO for recording a QC control measurement.
+ *
+ * @param value the measured value of the control material
+ */
+public record QcRunRequest(
+        Double value) {
+}
@@ -0,0 +1,27 @@
+package com.qdc.lims.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Public, read-only summary of a report, shown when its QR code is scanned.
+ * Patient identifiers are masked because the verification page needs no login.
+ *
+ * @param orderId the ID of the order
+ * @param patientName the patient's initials (e.g., "A*** K***")
+ * @param mrn the MRN with all but its last three characters masked
+ * @param orderDate when the order was booked
+ * @param releasedAt when the results were released, if they were
+ * @param testCount the number of tests on the report
+ * @param current true if the results are unchanged since the report was printed
+ * @param checkedAt when the summary was read from the database
+ */
+public record ReportSummary(
+        Long orderId,
+        String patientName,
+        String mrn,
+        LocalDateTime orderDate,
+        LocalDateTime releasedAt,
+        int testCount,
+        boolean current,
+        LocalDateTime checkedAt) {
+}
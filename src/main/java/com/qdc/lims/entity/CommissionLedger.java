@@ -9,11 +9,14 @@ import java.time.LocalDate;
  */
 @Entity
 @Data
-@Table(name = "commission_ledger")
+@Table(name = "commission_ledger", indexes = {
+        @Index(name = "idx_commission_doctor_status", columnList = "doctor_id, status")
+})
 public class CommissionLedger {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "commission_ledger_seq")
+    @SequenceGenerator(name = "commission_ledger_seq", sequenceName = "commission_ledger_seq", allocationSize = IdAllocation.SIZE)
     private Long id;
 
     // This specific field name 'labOrder' creates the method 'setLabOrder()'
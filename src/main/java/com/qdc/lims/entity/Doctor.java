@@ -26,6 +26,12 @@ public class Doctor {
     // The Receptionist UI will NOT show this field.
     private Double commissionPercentage = 0.0;
 
+    // Running total of UNPAID commission ledger entries, maintained in SQL by OrderService and
+    // CommissionService. Read-only here, so saving the doctor form never overwrites it.
+    @Column(name = "unpaid_commission", insertable = false, updatable = false,
+            columnDefinition = "double precision default 0")
+    private Double unpaidCommission;
+
     @Column(nullable = false)
     private boolean active = true;
 }
\ No newline at end of file
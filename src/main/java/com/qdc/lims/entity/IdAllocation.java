@@ -0,0 +1,20 @@
+package com.qdc.lims.entity;
+
+/**
+ * Shared ID allocation settings for entities that use pooled sequence generators.
+ * Each nextval() call reserves this many IDs, so Hibernate only hits the sequence once
+ * per block and can batch the inserts in between.
+ * JPA needs the allocation size as a compile-time constant, so it is configured here.
+ * Changing it also requires {@code ALTER SEQUENCE ... INCREMENT BY} on existing databases;
+ * Hibernate refuses to start if the mapping and the sequence disagree.
+ */
+public final class IdAllocation {
+
+    /**
+     * Number of IDs reserved per sequence call.
+     */
+    public static final int SIZE = 50;
+
+    private IdAllocation() {
+    }
+}
@@ -2,6 +2,7 @@ package com.qdc.lims.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Formula;
 
 /**
  * Entity representing an inventory item and its stock details.
@@ -18,8 +19,16 @@ public class InventoryItem {
     @Column(nullable = false, unique = true)
     private String itemName; // e.g., "Yellow Top Tube"
 
+    // Stock snapshot: the opening stock plus every journal movement folded in by the compactor.
+    // Never updated through JPA, so a save can't overwrite what the compactor wrote.
+    @Column(updatable = false)
     private Double currentStock; // Using Double to handle liquids (e.g. 500.0 ml)
 
+    // The real stock right now: snapshot + movements not yet compacted (read-only)
+    @Formula("(COALESCE(current_stock, 0) + COALESCE((SELECT SUM(m.quantity) FROM inventory_movements m "
+            + "WHERE m.item_id = id AND NOT m.compacted), 0))")
+    private Double availableStock;
+
     private Double minThreshold; // e.g., 50.0. If stock drops below this, ALERT!
 
     private String unit; // e.g., "pcs", "ml", "strips"
@@ -0,0 +1,49 @@
+package com.qdc.lims.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing one entry in the append-only stock journal.
+ * Every test consumption and purchase is recorded as a signed quantity instead of
+ * overwriting InventoryItem.currentStock; the compactor periodically folds these
+ * deltas into the item's stock snapshot.
+ */
+@Entity
+@Data
+@Table(name = "inventory_movements", indexes = {
+        @Index(name = "idx_movement_item_compacted", columnList = "item_id, compacted"),
+        @Index(name = "idx_movement_item_created", columnList = "item_id, created_at")
+})
+public class InventoryMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "item_id", nullable = false)
+    private InventoryItem item;
+
+    // Signed change in stock: negative for consumption, positive for purchases
+    @Column(nullable = false)
+    private Double quantity;
+
+    private String movementType; // "CONSUMPTION", "PURCHASE"
+
+    private String reference; // e.g. "Order #125" or "Purchase (Inv: 999)"
+
+    private LocalDateTime createdAt;
+
+    // True once the compactor has folded this delta into InventoryItem.currentStock
+    private Boolean compacted = false;
+
+    /**
+     * Sets the creation timestamp before persisting the entity.
+     */
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
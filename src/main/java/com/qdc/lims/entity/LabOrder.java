@@ -14,7 +14,8 @@ import java.util.List;
 public class LabOrder {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lab_order_seq")
+    @SequenceGenerator(name = "lab_order_seq", sequenceName = "lab_order_seq", allocationSize = IdAllocation.SIZE)
     private Long id;
 
     // Link to the Patient
@@ -27,7 +28,7 @@ public class LabOrder {
     private Doctor referringDoctor; // Visible to Receptionist ("Ref By: Dr. Bilal")
 
     private LocalDateTime orderDate;
-    private String status; // "PENDING", "COMPLETED"
+    private String status; // "PENDING", "REVIEW", "COMPLETED"
     private Double totalAmount; // Calculated automatically
 
     // --- REPORT DELIVERY STATUS ---
@@ -35,6 +36,13 @@ public class LabOrder {
 
     private LocalDateTime deliveryDate; // When was it handed over?
 
+    @Column(length = 64)
+    private String reportHash; // SHA-256 of the archived PDF, written once on delivery (see ReportArchiveService)
+
+    // --- RELEASE ---
+    private String releasedBy; // "AUTO-VERIFIED" or the user who released it from review
+    private LocalDateTime releasedAt;
+
     // ---------- Update: To incorporate accounting ----------//
     private Double discountAmount = 0.0; // e.g. 100
     private Double taxAmount = 0.0; // (Optional, usually 0 in labs)
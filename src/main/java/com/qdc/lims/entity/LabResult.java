@@ -3,16 +3,22 @@ package com.qdc.lims.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.qdc.lims.util.ResultValueParser;
 
 /**
  * Entity representing a laboratory test result, including value, abnormality, remarks, and audit trail.
  */
 @Entity
 @Data
+@Table(indexes = {
+        @Index(name = "idx_result_test_numeric", columnList = "test_id, numeric_value"),
+        @Index(name = "idx_result_patient_test_time", columnList = "patient_id, test_id, performed_at")
+})
 public class LabResult {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lab_result_seq")
+    @SequenceGenerator(name = "lab_result_seq", sequenceName = "lab_result_seq", allocationSize = IdAllocation.SIZE)
     private Long id;
 
     // Link back to the Order
@@ -21,6 +27,10 @@ public class LabResult {
     @JsonIgnore // Prevent infinite JSON loops
     private LabOrder labOrder;
 
+    // Copy of labOrder.patient.id, so a patient's history of a test is one index range scan (cumulative report)
+    @Column(name = "patient_id")
+    private Long patientId;
+
     // Link to the Test Definition (to know min/max ranges)
     @ManyToOne
     @JoinColumn(name = "test_id")
@@ -28,8 +38,20 @@ public class LabResult {
 
     // The data entered by the Technician
     private String resultValue;
+    private Double numericValue; // Parsed from resultValue; null for text and censored ("<0.5") results
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private ResultValueParser.Kind valueKind; // NUMERIC, BELOW ("<0.5"), ABOVE (">1000"), TEXT or EMPTY
     private boolean isAbnormal;
     private String remarks;
+    private String instrumentFlags; // Flags reported by the analyzer (e.g., "H", "A"), if imported
+
+    // --- DELTA CHECK ---
+    private Boolean deltaFailed; // null = not checked (no previous value or no delta rule)
+    private Double deltaBaseline; // The previous value this result was compared against
+
+    // Why auto-verification held this result back (null = passed)
+    private String reviewReason;
 
     // --- AUDIT TRAIL ---
     private String performedBy; // The Username (e.g., "labtech1")
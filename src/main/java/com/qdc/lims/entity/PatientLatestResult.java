@@ -0,0 +1,55 @@
+package com.qdc.lims.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Entity holding each patient's most recent numeric value per test, used for delta checks.
+ * One row per (patient, test), maintained by DeltaCheckService whenever a result is saved,
+ * so the previous value is a primary-key lookup instead of a walk through the order history.
+ * The value before the latest is kept too, so re-saving the latest result (a correction)
+ * is still compared against the patient's earlier value rather than against itself.
+ * "Latest" means the most recent order date, not the most recent save: a late entry or
+ * correction of an older visit never replaces the row of a newer one.
+ */
+@Entity
+@Data
+@Table(name = "patient_latest_results")
+@IdClass(PatientLatestResult.Key.class)
+public class PatientLatestResult {
+
+    @Id
+    private Long patientId;
+
+    @Id
+    private Long testId;
+
+    // The LabResult that holds latestValue
+    private Long resultId;
+
+    private Double latestValue;
+
+    // Order date of the result that holds latestValue
+    private LocalDateTime latestAt;
+
+    // Value before latestValue (from an earlier result), if any
+    private Double previousValue;
+
+    private LocalDateTime updatedAt;
+
+    /**
+     * Composite primary key (patientId, testId).
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long patientId;
+        private Long testId;
+    }
+}
@@ -0,0 +1,47 @@
+package com.qdc.lims.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing one level of a quality-control material for a test (e.g., "Lyphochek Level 2"),
+ * with its assigned target values and the running statistics of every run recorded so far.
+ * The running mean/SD are maintained incrementally (Welford) by QcService, so Levey-Jennings
+ * charts never recompute them from the run history.
+ */
+@Entity
+@Data
+@Table(name = "qc_controls")
+public class QcControl {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "test_id", nullable = false)
+    private TestDefinition test;
+
+    private String name; // e.g. "Bio-Rad Lyphochek"
+    private String level; // e.g. "Level 1", "Normal", "High"
+    private String lotNumber;
+
+    // Assigned values from the manufacturer or the lab's own baseline; z-scores use these when set
+    private Double targetMean;
+    private Double targetSd;
+
+    @Column(nullable = false)
+    private boolean active = true;
+
+    // --- RUNNING STATISTICS (Welford) ---
+    private Long runCount = 0L;
+    private Double runningMean;
+    private Double runningM2; // Sum of squared deviations from the running mean
+
+    // --- CURRENT STATE ---
+    private Boolean rejected; // true = the last run broke a rejection rule; patient results for the test are held
+    private String lastViolation; // e.g. "2-2s, 4-1s"
+    private LocalDateTime resetAt; // Rule window restarts here (after corrective action)
+}
@@ -0,0 +1,35 @@
+package com.qdc.lims.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing one measurement of a QC control, with the Westgard rules it violated.
+ */
+@Entity
+@Data
+@Table(name = "qc_runs", indexes = {
+        @Index(name = "idx_qc_run_control_time", columnList = "control_id, run_at")
+})
+public class QcRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "control_id", nullable = false)
+    private QcControl control;
+
+    private Double value;
+    private Double sdi; // Standard deviation index (z-score); null while the control has no target and too few runs for an SD
+
+    private String violations; // e.g. "1-2s" (warning) or "2-2s, R-4s"
+    private boolean rejected;
+
+    // --- AUDIT TRAIL ---
+    private String performedBy;
+    private LocalDateTime runAt;
+}
@@ -0,0 +1,41 @@
+package com.qdc.lims.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a queued PDF report rendering. Jobs are persisted so the queue survives a restart.
+ */
+@Entity
+@Data
+@Table(name = "report_jobs", indexes = {
+        @Index(name = "idx_report_job_status", columnList = "status"),
+        @Index(name = "idx_report_job_order", columnList = "order_id")
+})
+public class ReportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false, length = 20)
+    private String status; // "QUEUED", "RUNNING", "DONE", "FAILED"
+
+    @Column(length = 500)
+    private String error; // Why the job failed
+
+    @JsonIgnore // Server-side path of the rendered PDF; clients use the download endpoint
+    private String filePath;
+
+    // --- AUDIT TRAIL ---
+    private String requestedBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
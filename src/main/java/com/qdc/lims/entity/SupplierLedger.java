@@ -13,7 +13,8 @@ import java.time.LocalDate;
 public class SupplierLedger {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "supplier_ledger_seq")
+    @SequenceGenerator(name = "supplier_ledger_seq", sequenceName = "supplier_ledger_seq", allocationSize = IdAllocation.SIZE)
     private Long id;
 
     @ManyToOne
@@ -13,7 +13,8 @@ import lombok.Data;
 public class TestConsumption {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_consumption_seq")
+    @SequenceGenerator(name = "test_consumption_seq", sequenceName = "test_consumption_seq", allocationSize = IdAllocation.SIZE)
     private Long id;
 
     // The Parent Test (e.g., "Glucose")
@@ -29,6 +29,21 @@ public class TestDefinition {
     private Double minRange; 
     private Double maxRange; 
 
+    // --- DELTA CHECK ---
+    // A new result is flagged if it differs from the patient's previous one by more than either limit
+    private Double deltaPercentLimit; // e.g. 50 (%)
+    private Double deltaAbsoluteLimit; // e.g. 2.0 (in the test's unit)
+
+    // --- AUTO-VERIFICATION ---
+    private Double criticalLow; // Values below this always need review (e.g. K+ < 2.8)
+    private Double criticalHigh; // Values above this always need review (e.g. K+ > 6.2)
+    private Boolean autoVerify; // false = results always go to manual review (null counts as true)
+
+    // --- CALCULATED TESTS ---
+    // e.g. "{CHOL} - {HDL} - {TG} / 5"; computed from the order's other results on save (see FormulaParser)
+    @Column(length = 500)
+    private String formula;
+
 
     @Column(nullable = false)
     private boolean active = true;
@@ -1,10 +1,13 @@
 package com.qdc.lims.repository;
 
+import com.qdc.lims.dto.DoctorBalance;
 import com.qdc.lims.entity.CommissionLedger;
 
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 /**
  * Repository interface for CommissionLedger entities, providing queries for commission tracking.
@@ -28,4 +31,24 @@ public interface CommissionLedgerRepository extends JpaRepository<CommissionLedg
      */
     List<CommissionLedger> findByStatus(String status);
 
+    /**
+     * Sums the unpaid commission of every doctor in one grouped query (served by the
+     * (doctor_id, status) index), without loading any ledger entities.
+     *
+     * @return one balance per doctor with unpaid entries
+     */
+    @Query("SELECT new com.qdc.lims.dto.DoctorBalance(l.doctor.id, SUM(l.calculatedAmount)) "
+            + "FROM CommissionLedger l WHERE l.status = 'UNPAID' GROUP BY l.doctor.id")
+    List<DoctorBalance> sumUnpaidByDoctor();
+
+    /**
+     * Marks all unpaid entries of a doctor as paid in one statement.
+     *
+     * @param doctorId the ID of the doctor
+     * @return the number of entries paid
+     */
+    @Modifying
+    @Query("UPDATE CommissionLedger l SET l.status = 'PAID' WHERE l.doctor.id = :doctorId AND l.status = 'UNPAID'")
+    int markPaid(Long doctorId);
+
 }
\ No newline at end of file
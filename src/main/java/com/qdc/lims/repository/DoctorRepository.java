@@ -2,9 +2,36 @@ package com.qdc.lims.repository;
 
 import com.qdc.lims.entity.Doctor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 /**
- * Repository interface for Doctor entities, providing standard CRUD operations.
+ * Repository interface for Doctor entities, providing standard CRUD operations and the
+ * atomic updates of the materialized unpaid commission balance.
  */
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+
+    /**
+     * Adds a posted commission to a doctor's unpaid balance in one atomic statement
+     * (no read-modify-write, so concurrent bookings cannot lose an update).
+     *
+     * @param doctorId the ID of the doctor
+     * @param amount the commission amount
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query(value = "UPDATE doctors SET unpaid_commission = COALESCE(unpaid_commission, 0) + :amount "
+            + "WHERE id = :doctorId", nativeQuery = true)
+    int addUnpaidCommission(Long doctorId, double amount);
+
+    /**
+     * Sets a doctor's unpaid balance (used when the doctor is paid, and to repair drift).
+     *
+     * @param doctorId the ID of the doctor
+     * @param amount the new balance
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query(value = "UPDATE doctors SET unpaid_commission = :amount WHERE id = :doctorId", nativeQuery = true)
+    int setUnpaidCommission(Long doctorId, double amount);
 }
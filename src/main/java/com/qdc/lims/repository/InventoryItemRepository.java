@@ -9,11 +9,11 @@ import java.util.List;
  */
 public interface InventoryItemRepository extends JpaRepository<InventoryItem, Long> {
     /**
-     * Finds all inventory items where current stock is at or below the minimum threshold.
-     * Used for low stock alerts.
+     * Finds all inventory items whose available stock (snapshot plus pending journal movements)
+     * is at or below the given threshold. Used for low stock alerts.
      *
      * @param threshold the stock threshold value
      * @return list of InventoryItems running low on stock
      */
-    List<InventoryItem> findByCurrentStockLessThanEqual(Double threshold);
+    List<InventoryItem> findByAvailableStockLessThanEqual(Double threshold);
 }
@@ -3,9 +3,14 @@ package com.qdc.lims.repository;
 import com.qdc.lims.entity.LabOrder;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Repository interface for LabOrder entities, providing CRUD operations and custom queries
@@ -13,6 +18,53 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface LabOrderRepository extends JpaRepository<LabOrder, Long> {
 
+    /**
+     * Loads an order with everything its PDF report prints (patient, results and their tests)
+     * in one query, so the report can be rendered after the persistence context is closed.
+     *
+     * @param orderId the ID of the order
+     * @return the order with its associations initialized, if found
+     */
+    @Query("SELECT o FROM LabOrder o " +
+            "JOIN FETCH o.patient " +
+            "LEFT JOIN FETCH o.results r " +
+            "LEFT JOIN FETCH r.testDefinition " +
+            "WHERE o.id = :orderId")
+    Optional<LabOrder> findByIdForReport(Long orderId);
+
+    /**
+     * Records the archived PDF of an order without loading or re-saving the whole order.
+     *
+     * @param orderId the ID of the order
+     * @param reportHash the SHA-256 (hex) of the archived PDF
+     * @return the number of updated rows
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE LabOrder o SET o.reportHash = :reportHash WHERE o.id = :orderId")
+    int updateReportHash(Long orderId, String reportHash);
+
+    /**
+     * Lists the IDs of the orders created within a date range, for bulk report printing.
+     *
+     * @param start the start of the order date range
+     * @param end the end of the order date range
+     * @return the order IDs, ascending
+     */
+    @Query("SELECT o.id FROM LabOrder o WHERE o.orderDate BETWEEN :start AND :end ORDER BY o.id")
+    List<Long> findIdsByOrderDateBetween(LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Lists the IDs of the orders with a status created within a date range, for bulk report printing.
+     *
+     * @param status the order status (e.g., "COMPLETED")
+     * @param start the start of the order date range
+     * @param end the end of the order date range
+     * @return the order IDs, ascending
+     */
+    @Query("SELECT o.id FROM LabOrder o WHERE o.status = :status AND o.orderDate BETWEEN :start AND :end ORDER BY o.id")
+    List<Long> findIdsByStatusAndOrderDateBetween(String status, LocalDateTime start, LocalDateTime end);
+
     /**
      * Finds all orders for a specific patient, sorted by order ID in descending order.
      *
@@ -31,6 +83,25 @@ public interface LabOrderRepository extends JpaRepository<LabOrder, Long> {
      */
     List<LabOrder> findByStatusAndOrderDateBetween(String status, LocalDateTime start, LocalDateTime end);
 
+    /**
+     * Finds orders in any of the given statuses within a date range (e.g., PENDING and REVIEW are both "in lab").
+     *
+     * @param statuses the order statuses
+     * @param start the start of the date range
+     * @param end the end of the date range
+     * @return list of matching LabOrders
+     */
+    List<LabOrder> findByStatusInAndOrderDateBetween(Collection<String> statuses, LocalDateTime start,
+            LocalDateTime end);
+
+    /**
+     * Finds all orders with a status, oldest first (used for the review queue).
+     *
+     * @param status the order status
+     * @return list of matching LabOrders
+     */
+    List<LabOrder> findByStatusOrderByIdAsc(String status);
+
     /**
      * Finds completed orders that have not been delivered, within a date range (for pickup queue).
      *
@@ -1,10 +1,63 @@
 package com.qdc.lims.repository;
 
 import com.qdc.lims.entity.LabResult;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Repository interface for LabResult entities, providing CRUD operations for lab test results.
  */
 public interface LabResultRepository extends JpaRepository<LabResult, Long> {
+
+    /**
+     * Loads every result of an order together with its test definition, the order,
+     * the patient and the referring doctor in a single query (used by the result entry form).
+     *
+     * @param orderId the ID of the lab order
+     * @return the order's results with their associations initialized
+     */
+    @Query("SELECT r FROM LabResult r " +
+            "JOIN FETCH r.testDefinition " +
+            "JOIN FETCH r.labOrder o " +
+            "JOIN FETCH o.patient " +
+            "LEFT JOIN FETCH o.referringDoctor " +
+            "WHERE o.id = :orderId")
+    List<LabResult> findByOrderIdWithDetails(Long orderId);
+
+    /**
+     * Same as findByOrderIdWithDetails, for several orders at once (used by analyzer ingestion).
+     *
+     * @param orderIds the IDs of the lab orders
+     * @return the results of all given orders with their associations initialized
+     */
+    @Query("SELECT r FROM LabResult r " +
+            "JOIN FETCH r.testDefinition " +
+            "JOIN FETCH r.labOrder o " +
+            "JOIN FETCH o.patient " +
+            "LEFT JOIN FETCH o.referringDoctor " +
+            "WHERE o.id IN :orderIds")
+    List<LabResult> findByOrderIdInWithDetails(Collection<Long> orderIds);
+
+    /**
+     * Finds the numeric value of a patient's test from the visit just before a given one
+     * (the delta check baseline of a result entered after a newer visit).
+     *
+     * @param patientId the ID of the patient
+     * @param testId the ID of the test
+     * @param orderDate the order date of the result being checked
+     * @param resultId the ID of the result being checked (breaks ties between orders of the same time)
+     * @param limit one row
+     * @return the previous value, if the patient has one
+     */
+    @Query("SELECT r.numericValue FROM LabResult r JOIN r.labOrder o " +
+            "WHERE r.patientId = :patientId AND r.testDefinition.id = :testId AND r.numericValue IS NOT NULL " +
+            "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND r.id < :resultId)) " +
+            "ORDER BY o.orderDate DESC, r.id DESC")
+    List<Double> findValueBefore(Long patientId, Long testId, LocalDateTime orderDate, Long resultId,
+            Pageable limit);
 }
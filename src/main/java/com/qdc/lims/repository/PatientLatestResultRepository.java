@@ -0,0 +1,22 @@
+package com.qdc.lims.repository;
+
+import com.qdc.lims.entity.PatientLatestResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for PatientLatestResult entities (the delta check lookup table).
+ */
+public interface PatientLatestResultRepository extends JpaRepository<PatientLatestResult, PatientLatestResult.Key> {
+
+    /**
+     * Finds the latest values for any combination of the given patients and tests.
+     *
+     * @param patientIds the patient IDs
+     * @param testIds the test IDs
+     * @return the matching rows (pairs without history are absent)
+     */
+    List<PatientLatestResult> findByPatientIdInAndTestIdIn(Collection<Long> patientIds, Collection<Long> testIds);
+}
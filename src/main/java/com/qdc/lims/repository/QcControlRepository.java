@@ -0,0 +1,43 @@
+package com.qdc.lims.repository;
+
+import com.qdc.lims.entity.QcControl;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for QcControl entities.
+ */
+public interface QcControlRepository extends JpaRepository<QcControl, Long> {
+
+    /**
+     * Finds the control levels of a test.
+     *
+     * @param testId the ID of the test
+     * @return the test's controls
+     */
+    List<QcControl> findByTestIdOrderByIdAsc(Long testId);
+
+    /**
+     * Finds the controls whose last run was rejected (their tests are on hold).
+     *
+     * @return the rejected controls
+     */
+    List<QcControl> findByRejectedTrue();
+
+    /**
+     * Loads a control and locks its row until the transaction ends, so runs of the same control
+     * are recorded one at a time (running statistics and the rule window stay in step).
+     *
+     * @param id the ID of the control
+     * @return the locked control
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM QcControl c WHERE c.id = :id")
+    Optional<QcControl> findByIdForUpdate(@Param("id") Long id);
+}
@@ -0,0 +1,39 @@
+package com.qdc.lims.repository;
+
+import com.qdc.lims.entity.QcRun;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for QcRun entities.
+ */
+public interface QcRunRepository extends JpaRepository<QcRun, Long> {
+
+    /**
+     * Finds the most recent runs of a control, newest first.
+     *
+     * @param controlId the ID of the control
+     * @param pageable the number of runs to return
+     * @return the latest runs
+     */
+    List<QcRun> findByControlIdOrderByRunAtDescIdDesc(Long controlId, Pageable pageable);
+
+    /**
+     * Finds the most recent scored runs of a control since its last reset, newest first
+     * (used to refill the Westgard window after a restart).
+     *
+     * @param controlId the ID of the control
+     * @param since the control's reset time
+     * @param pageable the number of runs to return
+     * @return the latest runs with a z-score
+     */
+    @Query("SELECT r FROM QcRun r WHERE r.control.id = :controlId AND r.sdi IS NOT NULL "
+            + "AND r.runAt > :since ORDER BY r.runAt DESC, r.id DESC")
+    List<QcRun> findScoredSince(@Param("controlId") Long controlId, @Param("since") LocalDateTime since,
+            Pageable pageable);
+}
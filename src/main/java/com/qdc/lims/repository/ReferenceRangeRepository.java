@@ -2,7 +2,13 @@ package com.qdc.lims.repository;
 import com.qdc.lims.entity.ReferenceRange;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 /**
  * Repository interface for ReferenceRange entities, providing CRUD operations for test reference ranges.
  */
-public interface ReferenceRangeRepository extends JpaRepository<ReferenceRange, Long> {}
+public interface ReferenceRangeRepository extends JpaRepository<ReferenceRange, Long> {
+
+    // All rules of one test in the order they were added (earlier rules take precedence)
+    List<ReferenceRange> findByTestIdOrderByIdAsc(Long testId);
+}
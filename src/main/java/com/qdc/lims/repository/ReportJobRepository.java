@@ -0,0 +1,67 @@
+package com.qdc.lims.repository;
+
+import com.qdc.lims.entity.ReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for ReportJob entities.
+ */
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+
+    /**
+     * Finds the latest job of an order in one of the given statuses (used to avoid queuing duplicates).
+     *
+     * @param orderId the ID of the order
+     * @param statuses the job statuses
+     * @return the latest matching job, if any
+     */
+    Optional<ReportJob> findFirstByOrderIdAndStatusInOrderByIdDesc(Long orderId, Collection<String> statuses);
+
+    /**
+     * Finds all jobs with a status, oldest first (used to requeue jobs after a restart).
+     *
+     * @param status the job status
+     * @return list of matching jobs
+     */
+    List<ReportJob> findByStatusOrderByIdAsc(String status);
+
+    /**
+     * Finds jobs that finished before a cutoff (used to purge old outputs).
+     *
+     * @param cutoff the cutoff time
+     * @return list of expired jobs
+     */
+    List<ReportJob> findByFinishedAtBefore(LocalDateTime cutoff);
+
+    /**
+     * Claims a queued job for a worker. Only one worker can win the claim.
+     *
+     * @param jobId the ID of the job
+     * @param now the start time
+     * @return 1 if the job was claimed, 0 if it is no longer queued
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.status = 'RUNNING', j.startedAt = :now "
+            + "WHERE j.id = :jobId AND j.status = 'QUEUED'")
+    int claim(@Param("jobId") Long jobId, @Param("now") LocalDateTime now);
+
+    /**
+     * Puts jobs that were running when the application stopped back in the queue.
+     *
+     * @return the number of requeued jobs
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.status = 'QUEUED', j.startedAt = NULL WHERE j.status = 'RUNNING'")
+    int requeueInterrupted();
+}
@@ -16,4 +16,12 @@ public interface TestConsumptionRepository extends JpaRepository<TestConsumption
      * @return list of TestConsumption entries showing required inventory items and quantities
      */
     List<TestConsumption> findByTest(TestDefinition test);
+
+    /**
+     * Finds all inventory consumption records (recipe) for a test by its ID.
+     *
+     * @param testId the ID of the test
+     * @return list of TestConsumption entries for the test
+     */
+    List<TestConsumption> findByTestId(Long testId);
 }
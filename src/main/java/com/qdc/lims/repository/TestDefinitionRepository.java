@@ -3,6 +3,9 @@ package com.qdc.lims.repository;
 import com.qdc.lims.entity.TestDefinition;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repository interface for TestDefinition entities, providing CRUD operations and custom queries.
  */
@@ -14,4 +17,19 @@ public interface TestDefinitionRepository extends JpaRepository<TestDefinition,
      * @return the TestDefinition with the given short code, or null if not found
      */
     TestDefinition findByShortCode(String shortCode);
+
+    /**
+     * Finds the test definitions for several short codes at once (used by analyzer ingestion).
+     *
+     * @param shortCodes the short codes to look up
+     * @return the matching TestDefinitions (codes without a test are simply absent)
+     */
+    List<TestDefinition> findByShortCodeIn(Collection<String> shortCodes);
+
+    /**
+     * Finds the calculated tests (used to build the formula dependency graph).
+     *
+     * @return every TestDefinition that has a formula
+     */
+    List<TestDefinition> findByFormulaIsNotNull();
 }
@@ -0,0 +1,374 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.AnalyzerResult;
+import com.qdc.lims.util.AnalyzerFileParser;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Imports analyzer result files dropped into a local directory (lims.analyzer.drop-dir).
+ * <p>
+ * A watcher thread picks up each new file once its size stops changing and stream-parses it
+ * with AnalyzerFileParser into a bounded queue. A poster thread drains the queue in batches and
+ * posts them through ResultService, one transaction per batch. When the poster falls behind the
+ * queue fills up and the watcher blocks, so reading never outruns the database (back-pressure).
+ * <p>
+ * Rows that can't be matched go to dead-letter/&lt;file&gt;.csv as re-droppable CSV rows, each
+ * after a '#' comment giving the reason; lines that can't be parsed are copied there as-is.
+ * Finished files are moved to processed/.
+ * The subsystem stays off unless lims.analyzer.drop-dir is set.
+ */
+@Service
+public class AnalyzerIngestionService implements ApplicationRunner, DisposableBean {
+
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ResultService resultService;
+    private final String dropDir;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    private BlockingQueue<Item> queue;
+    private WatchService watchService;
+    private Thread watcher;
+    private Thread poster;
+    private volatile boolean running;
+
+    private Path dropPath;
+    private Path processedPath;
+    private Path deadLetterPath;
+
+    /**
+     * Constructs an AnalyzerIngestionService.
+     *
+     * @param resultService service that matches, flags and saves the results
+     * @param dropDir directory the analyzers export into (blank disables ingestion)
+     * @param batchSize number of results posted per transaction
+     * @param queueCapacity number of parsed results buffered before the reader blocks
+     */
+    public AnalyzerIngestionService(ResultService resultService,
+            @Value("${lims.analyzer.drop-dir:}") String dropDir,
+            @Value("${lims.analyzer.batch-size:200}") int batchSize,
+            @Value("${lims.analyzer.queue-capacity:5000}") int queueCapacity) {
+        this.resultService = resultService;
+        this.dropDir = dropDir;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Creates the working folders and starts the watcher and poster threads.
+     *
+     * @param args application arguments (unused)
+     * @throws IOException if the drop directory cannot be prepared
+     */
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (dropDir == null || dropDir.isBlank()) {
+            return;
+        }
+
+        // 1. Prepare the folders
+        dropPath = Path.of(dropDir).toAbsolutePath();
+        processedPath = dropPath.resolve("processed");
+        deadLetterPath = dropPath.resolve("dead-letter");
+        Files.createDirectories(processedPath);
+        Files.createDirectories(deadLetterPath);
+
+        // 2. Register the watch before scanning, so no file can slip in between
+        watchService = FileSystems.getDefault().newWatchService();
+        dropPath.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        watcher = new Thread(this::watchLoop, "analyzer-watcher");
+        poster = new Thread(this::postLoop, "analyzer-poster");
+        watcher.setDaemon(true);
+        poster.setDaemon(true);
+        poster.start();
+        watcher.start();
+        System.out.println("✅ Analyzer ingestion watching " + dropPath);
+    }
+
+    /**
+     * Stops watching, lets the poster drain what was already parsed, and waits for it briefly.
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (!running) {
+            return;
+        }
+        running = false;
+        watchService.close();
+        watcher.interrupt();
+        poster.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    // ================= WATCHER =================
+
+    private void watchLoop() {
+        try {
+            // Files dropped while the application was down
+            scanExisting();
+
+            while (running) {
+                WatchKey key = watchService.take();
+                Set<Path> candidates = new LinkedHashSet<>();
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        overflow = true;
+                    } else {
+                        candidates.add(dropPath.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+
+                if (overflow) {
+                    scanExisting();
+                }
+                for (Path file : candidates) {
+                    ingest(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        } catch (IOException e) {
+            System.out.println("❌ Analyzer watcher stopped: " + e.getMessage());
+        }
+    }
+
+    private void scanExisting() throws IOException, InterruptedException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dropPath)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (Path file : files) {
+            ingest(file);
+        }
+    }
+
+    private void ingest(Path file) throws InterruptedException {
+        // 1. Skip folders, temp/hidden files and files already being imported
+        String name = file.getFileName().toString();
+        if (!Files.isRegularFile(file) || name.startsWith(".") || name.endsWith(".tmp") || name.endsWith(".part")
+                || inFlight.contains(file)) {
+            return;
+        }
+
+        // 2. Wait until the analyzer has finished writing it
+        if (!awaitStable(file)) {
+            return;
+        }
+
+        // 3. Stream the rows into the queue (blocks while the poster is behind)
+        FileJob job = new FileJob(file);
+        inFlight.add(file);
+        try {
+            AnalyzerFileParser.parse(file, new AnalyzerFileParser.Sink() {
+                @Override
+                public void accept(AnalyzerResult result) throws InterruptedException {
+                    queue.put(new Item(job, result));
+                }
+
+                @Override
+                public void reject(long lineNumber, String rawLine, String reason) {
+                    job.deadLetter("line " + lineNumber + ": " + reason, rawLine);
+                }
+            });
+        } catch (IOException e) {
+            job.deadLetter("unreadable file: " + e.getMessage(), null);
+        }
+
+        // 4. The end marker tells the poster it can close the file out
+        queue.put(new Item(job, null));
+    }
+
+    private boolean awaitStable(Path file) throws InterruptedException {
+        long lastSize = -1;
+        while (running) {
+            try {
+                long size = Files.size(file);
+                if (size == lastSize) {
+                    return true;
+                }
+                lastSize = size;
+            } catch (IOException e) {
+                return false; // Moved or deleted meanwhile
+            }
+            Thread.sleep(500);
+        }
+        return false;
+    }
+
+    // ================= POSTER =================
+
+    private void postLoop() {
+        List<Item> drained = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Item first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                queue.drainTo(drained, batchSize - 1);
+                process(drained);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.out.println("❌ Analyzer poster error: " + e.getMessage());
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    private void process(List<Item> drained) {
+        List<Item> pending = new ArrayList<>(drained.size());
+        for (Item item : drained) {
+            if (item.result() == null) {
+                // Everything before the end marker belongs to (or precedes) this file
+                post(pending);
+                pending.clear();
+                finish(item.job());
+            } else {
+                pending.add(item);
+            }
+        }
+        post(pending);
+    }
+
+    private void post(List<Item> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        List<AnalyzerResult> batch = new ArrayList<>(items.size());
+        for (Item item : items) {
+            batch.add(item.result());
+        }
+
+        Map<Integer, String> rejected;
+        try {
+            rejected = resultService.postAnalyzerResults(batch);
+        } catch (RuntimeException e) {
+            // The whole batch rolled back: dead-letter it so nothing is silently lost
+            for (Item item : items) {
+                item.job().deadLetter(item.result(), "not saved: " + e.getMessage());
+            }
+            return;
+        }
+
+        for (Map.Entry<Integer, String> entry : rejected.entrySet()) {
+            Item item = items.get(entry.getKey());
+            item.job().deadLetter(item.result(), entry.getValue());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (!rejected.containsKey(i)) {
+                items.get(i).job().posted++;
+            }
+        }
+    }
+
+    private void finish(FileJob job) {
+        try {
+            job.close();
+            String name = job.file.getFileName().toString();
+            Path target = processedPath.resolve(name);
+            if (Files.exists(target)) {
+                target = processedPath.resolve(LocalDateTime.now().format(STAMP) + "_" + name);
+            }
+            Files.move(job.file, target, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("✅ Analyzer file " + name + ": " + job.posted + " results posted, "
+                    + job.rejected + " dead-lettered");
+        } catch (IOException e) {
+            System.out.println("❌ Could not move analyzer file " + job.file + ": " + e.getMessage());
+        } finally {
+            inFlight.remove(job.file);
+        }
+    }
+
+    // A parsed row, or the end-of-file marker when result is null
+    private record Item(FileJob job, AnalyzerResult result) {
+    }
+
+    // Per-file bookkeeping; the dead-letter file is only created if something is rejected
+    private final class FileJob {
+        private final Path file;
+        private BufferedWriter deadLetter;
+        private int posted;
+        private int rejected;
+
+        FileJob(Path file) {
+            this.file = file;
+        }
+
+        void deadLetter(AnalyzerResult result, String reason) {
+            deadLetter("line " + result.lineNumber() + ": " + reason, AnalyzerFileParser.toCsv(result));
+        }
+
+        // Called from both the watcher (parse errors) and the poster (unmatched rows)
+        synchronized void deadLetter(String comment, String line) {
+            rejected++;
+            try {
+                if (deadLetter == null) {
+                    String name = file.getFileName().toString().replaceFirst("\\.[^.]*$", "") + ".csv";
+                    deadLetter = Files.newBufferedWriter(deadLetterPath.resolve(name), StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                deadLetter.write("# " + comment);
+                deadLetter.newLine();
+                if (line != null) {
+                    deadLetter.write(line);
+                    deadLetter.newLine();
+                }
+            } catch (IOException e) {
+                System.out.println("❌ Could not write dead-letter row for " + file + ": " + e.getMessage());
+            }
+        }
+
+        synchronized void close() throws IOException {
+            if (deadLetter != null) {
+                deadLetter.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.LabResult;
+import com.qdc.lims.entity.TestDefinition;
+import com.qdc.lims.util.ResultValueParser;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether saved results can be released without a human looking at them.
+ * Each test's verification rules are compiled once into a small predicate tree (only the
+ * checks that apply to that test) and cached by test ID; evaluating a result is then a few
+ * field comparisons. An order is released (COMPLETED) only if every result passes, otherwise
+ * it goes to the REVIEW queue with a reason recorded on each failing result.
+ */
+@Service
+public class AutoVerificationService {
+
+    /**
+     * Order status for orders whose results are still being entered.
+     */
+    public static final String PENDING = "PENDING";
+
+    /**
+     * Order status for orders that failed auto-verification and wait for manual release.
+     */
+    public static final String REVIEW = "REVIEW";
+
+    /**
+     * Order status for released orders.
+     */
+    public static final String COMPLETED = "COMPLETED";
+
+    private final Map<Long, Rule> rules = new ConcurrentHashMap<>();
+    private final QcService qcService;
+
+    /**
+     * Constructs an AutoVerificationService.
+     *
+     * @param qcService service telling whether QC currently holds a test's results
+     */
+    public AutoVerificationService(QcService qcService) {
+        this.qcService = qcService;
+    }
+
+    /**
+     * Verifies all results of an order and records the reason on every result that fails.
+     *
+     * @param results all results of the order (with test definitions loaded)
+     * @return COMPLETED if every result passed, REVIEW otherwise
+     */
+    public String verifyOrder(List<LabResult> results) {
+        boolean allPassed = true;
+        for (LabResult result : results) {
+            String failure = verify(result);
+            result.setReviewReason(failure);
+            if (failure != null) {
+                allPassed = false;
+            }
+        }
+        return allPassed ? COMPLETED : REVIEW;
+    }
+
+    /**
+     * Evaluates one result against its test's compiled rules.
+     *
+     * @param result the result to check
+     * @return null if the result may be released automatically, otherwise the reason it needs review
+     */
+    public String verify(LabResult result) {
+        TestDefinition test = result.getTestDefinition();
+        return rules.computeIfAbsent(test.getId(), id -> compile(test)).failure(result);
+    }
+
+    /**
+     * Drops the compiled rules of a test after its definition has changed.
+     *
+     * @param testId the ID of the modified test
+     */
+    public void refresh(Long testId) {
+        if (testId != null) {
+            rules.remove(testId);
+        }
+    }
+
+    /**
+     * Tells on which side of the critical limits a result lies. A censored value ("&lt;0.5") only
+     * counts when every value it allows is past the limit.
+     *
+     * @param result the result
+     * @param low the critical low limit, if any
+     * @param high the critical high limit, if any
+     * @return "LOW", "HIGH", or null if the result is not critical or not a number
+     */
+    static String criticalDirection(LabResult result, Double low, Double high) {
+        ResultValueParser.Kind kind = ResultValueParser.Kind.NUMERIC;
+        Double value = result.getNumericValue();
+        if (value == null) {
+            // Censored values have no numeric_value; their limit is parsed from the text
+            kind = result.getValueKind();
+            if (kind != ResultValueParser.Kind.BELOW && kind != ResultValueParser.Kind.ABOVE) {
+                return null;
+            }
+            value = ResultValueParser.parse(result.getResultValue());
+        }
+        if (low != null && ResultValueParser.isBelow(kind, value, low)) {
+            return "LOW";
+        }
+        if (high != null && ResultValueParser.isAbove(kind, value, high)) {
+            return "HIGH";
+        }
+        return null;
+    }
+
+    private Rule compile(TestDefinition test) {
+        // Tests switched to manual verification never pass, whatever the value (or QC state)
+        if (Boolean.FALSE.equals(test.getAutoVerify())) {
+            return result -> "Manual verification required for this test";
+        }
+
+        List<Rule> checks = new ArrayList<>();
+        checks.add(ResultRules.qcAccepted(qcService, test.getId()));
+        checks.add(ResultRules.HAS_VALUE);
+        checks.add(ResultRules.INSTRUMENT_FLAGS_CLEAN);
+        checks.add(ResultRules.WITHIN_REFERENCE_RANGE);
+        checks.add(ResultRules.NO_DELTA_FAILURE);
+        if (test.getCriticalLow() != null || test.getCriticalHigh() != null) {
+            checks.add(ResultRules.notCritical(test.getCriticalLow(), test.getCriticalHigh()));
+        }
+        return ResultRules.allOf(checks);
+    }
+
+    /**
+     * A node of a compiled verification tree.
+     */
+    @FunctionalInterface
+    interface Rule {
+
+        /**
+         * @param result the result to evaluate
+         * @return null if the rule passes, otherwise a human-readable reason
+         */
+        String failure(LabResult result);
+    }
+
+    /**
+     * The building blocks verification trees are compiled from.
+     */
+    static final class ResultRules {
+
+        static final Rule HAS_VALUE = result -> result.getResultValue() == null || result.getResultValue().isBlank()
+                ? "No result value"
+                : null;
+
+        // "N" is the ASTM code for normal; anything else came from the instrument as a warning
+        static final Rule INSTRUMENT_FLAGS_CLEAN = result -> {
+            String flags = result.getInstrumentFlags();
+            return flags == null || flags.isBlank() || flags.trim().equalsIgnoreCase("N")
+                    ? null
+                    : "Instrument flag: " + flags.trim();
+        };
+
+        static final Rule WITHIN_REFERENCE_RANGE = result -> result.isAbnormal()
+                ? "Outside reference range (" + result.getRemarks() + ")"
+                : null;
+
+        static final Rule NO_DELTA_FAILURE = result -> Boolean.TRUE.equals(result.getDeltaFailed())
+                ? "Delta check failed (previous " + result.getDeltaBaseline() + ")"
+                : null;
+
+        private ResultRules() {
+        }
+
+        static Rule notCritical(Double low, Double high) {
+            return result -> criticalDirection(result, low, high) != null ? "Critical value" : null;
+        }
+
+        // Checked on every evaluation: QC state changes without the test definition changing
+        static Rule qcAccepted(QcService qcService, Long testId) {
+            return result -> qcService.holdReason(testId);
+        }
+
+        static Rule allOf(List<Rule> children) {
+            Rule[] nodes = children.toArray(new Rule[0]);
+            return result -> {
+                for (Rule node : nodes) {
+                    String failure = node.failure(result);
+                    if (failure != null) {
+                        return failure;
+                    }
+                }
+                return null;
+            };
+        }
+    }
+}
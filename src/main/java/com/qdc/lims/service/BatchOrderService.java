@@ -0,0 +1,95 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.OrderBatchResult;
+import com.qdc.lims.dto.OrderRequest;
+import com.qdc.lims.entity.LabOrder;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service for booking many lab orders in one request (e.g., corporate health camps).
+ * Orders are processed in chunks, one transaction per chunk, so Hibernate can flush the
+ * LabOrder, LabResult and CommissionLedger inserts of a whole chunk as JDBC batches.
+ * If any order in a chunk fails, that chunk is replayed one order per transaction so
+ * every order still gets its own success or failure result. The inventory items of a chunk are
+ * locked together at its start, in ascending ID order, so a chunk cannot deadlock with other bookings;
+ * single bookings of those items wait for the chunk to commit.
+ */
+@Service
+public class BatchOrderService {
+
+    private final OrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int chunkSize;
+
+    /**
+     * Constructs a BatchOrderService with the required collaborators.
+     *
+     * @param orderService service that books a single order
+     * @param transactionManager transaction manager used for the per-chunk transactions
+     * @param entityManager entity manager, cleared between chunks to keep memory flat
+     * @param chunkSize number of orders booked per transaction
+     */
+    public BatchOrderService(OrderService orderService, PlatformTransactionManager transactionManager,
+            EntityManager entityManager, @Value("${lims.orders.batch-chunk-size:50}") int chunkSize) {
+        this.orderService = orderService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Books every order in the list and reports the outcome of each one.
+     *
+     * @param requests the orders to book
+     * @return one result per request, in the same order as the input
+     */
+    public List<OrderBatchResult> createOrders(List<OrderRequest> requests) {
+        List<OrderBatchResult> results = new ArrayList<>(requests.size());
+        for (int start = 0; start < requests.size(); start += chunkSize) {
+            int end = Math.min(start + chunkSize, requests.size());
+            results.addAll(processChunk(requests, start, end));
+        }
+        return results;
+    }
+
+    private List<OrderBatchResult> processChunk(List<OrderRequest> requests, int start, int end) {
+        try {
+            return transactionTemplate.execute(status -> {
+                // Lock the chunk's stock items up front, in one sorted pass (see OrderService.lockStock)
+                orderService.lockStock(requests.subList(start, end));
+                List<OrderBatchResult> booked = new ArrayList<>(end - start);
+                for (int i = start; i < end; i++) {
+                    LabOrder order = orderService.createOrder(requests.get(i));
+                    booked.add(new OrderBatchResult(i, order.getId(), true, null));
+                }
+                return booked;
+            });
+        } catch (RuntimeException e) {
+            // One bad order rolled back the whole chunk: replay it order by order to isolate the failure
+            List<OrderBatchResult> isolated = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                isolated.add(processOne(requests.get(i), i));
+            }
+            return isolated;
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    private OrderBatchResult processOne(OrderRequest request, int index) {
+        try {
+            LabOrder order = transactionTemplate.execute(status -> orderService.createOrder(request));
+            return new OrderBatchResult(index, order.getId(), true, null);
+        } catch (RuntimeException e) {
+            return new OrderBatchResult(index, null, false, e.getMessage());
+        }
+    }
+}
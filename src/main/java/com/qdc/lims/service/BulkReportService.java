@@ -0,0 +1,353 @@
+package com.qdc.lims.service;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import com.qdc.lims.dto.BulkReportStatus;
+import com.qdc.lims.repository.LabOrderRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * End-of-day bulk report printing: renders the reports of every selected order into one merged
+ * print PDF or a ZIP of individual PDFs, in the background.
+ * <p>
+ * Submitting a job only resolves the order IDs; the work runs on a job thread (one job at a time)
+ * that feeds a fixed pool of render threads, sized to the cores. At most two renders per thread
+ * are in flight, and finished reports are appended to a temp file in order ID order, so memory
+ * stays flat however many orders are selected. Progress is kept in memory and finished bundles
+ * are deleted after lims.reports.bulk.retention-minutes.
+ */
+@Service
+public class BulkReportService implements DisposableBean {
+
+    /** Output of a bulk job. */
+    public enum Format {
+        /** One PDF with every report, for printing in one go. */
+        PDF,
+        /** One PDF per order (report_&lt;id&gt;.pdf). */
+        ZIP
+    }
+
+    private final ReportService reportService;
+    private final ReportArchiveService archiveService;
+    private final LabOrderRepository orderRepo;
+    private final ExecutorService renderers;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "bulk-report-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int window;
+    private final Duration retention;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a BulkReportService.
+     *
+     * @param reportService renderer for the PDFs
+     * @param archiveService archive holding the PDFs of delivered reports
+     * @param orderRepo repository used to select the orders
+     * @param threads render threads (0 = one per core)
+     * @param retentionMinutes how long finished bundles stay available for download
+     */
+    public BulkReportService(ReportService reportService, ReportArchiveService archiveService,
+            LabOrderRepository orderRepo,
+            @Value("${lims.reports.bulk.threads:0}") int threads,
+            @Value("${lims.reports.bulk.retention-minutes:120}") long retentionMinutes) {
+        this.reportService = reportService;
+        this.archiveService = archiveService;
+        this.orderRepo = orderRepo;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.renderers = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread thread = new Thread(r, "bulk-report-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.window = poolSize * 2;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    /**
+     * Submits a bulk job for the orders created between two dates (inclusive).
+     *
+     * @param from the first order date
+     * @param to the last order date
+     * @param status only orders with this status (e.g., "COMPLETED"); null or blank for all
+     * @param format the output format
+     * @return the status of the queued job
+     */
+    public BulkReportStatus submit(LocalDate from, LocalDate to, String status, Format format) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("The end date must not be before the start date.");
+        }
+
+        // 1. Resolve the orders now, so an empty selection is reported to the caller right away
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.atTime(LocalTime.MAX);
+        List<Long> orderIds = status == null || status.isBlank()
+                ? orderRepo.findIdsByOrderDateBetween(start, end)
+                : orderRepo.findIdsByStatusAndOrderDateBetween(status.trim().toUpperCase(), start, end);
+        if (orderIds.isEmpty()) {
+            throw new RuntimeException("No orders match the selection.");
+        }
+
+        // 2. Queue the job (finished jobs past their retention are dropped first)
+        purgeExpired();
+        Job job = new Job(UUID.randomUUID().toString(), format, orderIds.size());
+        jobs.put(job.id, job);
+        runner.execute(() -> run(job, orderIds));
+
+        System.out.println("🖨️ Bulk report job " + job.id + " queued: " + orderIds.size() + " orders as " + format);
+        return job.status();
+    }
+
+    /**
+     * Returns the progress of a job.
+     *
+     * @param jobId the ID of the job
+     * @return the job status
+     */
+    public BulkReportStatus status(String jobId) {
+        return job(jobId).status();
+    }
+
+    /**
+     * Returns the output file of a finished job.
+     *
+     * @param jobId the ID of the job
+     * @return the merged PDF or ZIP
+     */
+    public Path output(String jobId) {
+        Job job = job(jobId);
+        if (!"DONE".equals(job.state)) {
+            throw new RuntimeException("Bulk report job " + jobId + " is " + job.state + ", not ready for download.");
+        }
+        return job.file;
+    }
+
+    private Job job(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Bulk report job not found (it may have expired): " + jobId);
+        }
+        return job;
+    }
+
+    private void run(Job job, List<Long> orderIds) {
+        job.state = "RUNNING";
+        Deque<Map.Entry<Long, Future<byte[]>>> inFlight = new ArrayDeque<>();
+        Path file = null;
+        try {
+            file = Files.createTempFile("bulk-report-", job.format == Format.PDF ? ".pdf" : ".zip");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                BundleWriter writer = job.format == Format.PDF ? new MergedPdfWriter(out) : new ZipWriter(out);
+
+                // 1. Keep a bounded window of renders in flight; write them out in order as they finish
+                Iterator<Long> next = orderIds.iterator();
+                while (next.hasNext() || !inFlight.isEmpty()) {
+                    while (next.hasNext() && inFlight.size() < window) {
+                        Long orderId = next.next();
+                        inFlight.add(Map.entry(orderId, renderers.submit(() -> render(orderId))));
+                    }
+                    Map.Entry<Long, Future<byte[]>> head = inFlight.poll();
+                    try {
+                        writer.add(head.getKey(), head.getValue().get());
+                        job.rendered.incrementAndGet();
+                    } catch (ExecutionException e) {
+                        // One bad order must not sink the whole print run
+                        job.failedOrderIds.add(head.getKey());
+                        System.out.println("❌ Bulk report: order #" + head.getKey() + " skipped: "
+                                + e.getCause().getMessage());
+                    }
+                }
+
+                // 2. Close the bundle
+                if (job.rendered.get() == 0) {
+                    throw new RuntimeException("None of the selected reports could be rendered.");
+                }
+                writer.finish();
+            }
+            job.file = file;
+            job.state = "DONE";
+            System.out.println("✅ Bulk report job " + job.id + " done: " + job.rendered.get() + " reports");
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.forEach(entry -> entry.getValue().cancel(true));
+            deleteQuietly(file);
+            job.error = e.getMessage();
+            job.state = "FAILED";
+            System.out.println("❌ Bulk report job " + job.id + " failed: " + e.getMessage());
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    // Runs on a render thread. Delivered reports reuse the archived PDF, byte for byte.
+    private byte[] render(Long orderId) throws IOException {
+        Optional<ReportArchiveService.ArchivedReport> archived = archiveService.find(orderId);
+        if (archived.isPresent()) {
+            return Files.readAllBytes(archived.get().file());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        reportService.renderPdf(reportService.loadOrder(orderId), out);
+        return out.toByteArray();
+    }
+
+    private void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            boolean expired = job.finishedAt != null && job.finishedAt.isBefore(cutoff);
+            if (expired) {
+                deleteQuietly(job.file);
+            }
+            return expired;
+        });
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Best effort; it lives in the temp folder
+            }
+        }
+    }
+
+    /**
+     * Stops the render threads and deletes the bundles on shutdown.
+     */
+    @Override
+    public void destroy() {
+        runner.shutdownNow();
+        renderers.shutdownNow();
+        jobs.values().forEach(job -> deleteQuietly(job.file));
+    }
+
+    /**
+     * Appends rendered reports to a bundle, one order at a time.
+     */
+    private interface BundleWriter {
+        void add(Long orderId, byte[] pdf) throws Exception;
+
+        void finish() throws Exception;
+    }
+
+    /**
+     * Copies the pages of every report into one print PDF.
+     */
+    private static final class MergedPdfWriter implements BundleWriter {
+        private final Document document = new Document();
+        private final PdfCopy copy;
+
+        MergedPdfWriter(OutputStream out) throws Exception {
+            copy = new PdfCopy(document, out);
+            copy.setCloseStream(false);
+            copy.setFullCompression();
+            document.open();
+        }
+
+        @Override
+        public void add(Long orderId, byte[] pdf) throws Exception {
+            PdfReader reader = new PdfReader(pdf);
+            try {
+                for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                    copy.addPage(copy.getImportedPage(reader, page));
+                }
+                copy.freeReader(reader); // Write this report's objects out now instead of holding them
+            } finally {
+                reader.close();
+            }
+        }
+
+        @Override
+        public void finish() {
+            document.close();
+        }
+    }
+
+    /**
+     * Stores every report as its own entry.
+     */
+    private static final class ZipWriter implements BundleWriter {
+        private final ZipOutputStream zip;
+
+        ZipWriter(OutputStream out) {
+            zip = new ZipOutputStream(out);
+            zip.setLevel(Deflater.BEST_SPEED); // The PDFs are compressed already
+        }
+
+        @Override
+        public void add(Long orderId, byte[] pdf) throws IOException {
+            zip.putNextEntry(new ZipEntry("report_" + orderId + ".pdf"));
+            zip.write(pdf);
+            zip.closeEntry();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            zip.finish();
+        }
+    }
+
+    /**
+     * In-memory state of one job; updated by the job thread, read by status requests.
+     */
+    private static final class Job {
+        private final String id;
+        private final Format format;
+        private final int total;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicInteger rendered = new AtomicInteger();
+        private final List<Long> failedOrderIds = new CopyOnWriteArrayList<>();
+        private volatile String state = "QUEUED";
+        private volatile String error;
+        private volatile Path file;
+        private volatile LocalDateTime finishedAt;
+
+        Job(String id, Format format, int total) {
+            this.id = id;
+            this.format = format;
+            this.total = total;
+        }
+
+        BulkReportStatus status() {
+            return new BulkReportStatus(id, format.name(), state, total, rendered.get(),
+                    List.copyOf(failedOrderIds), error, createdAt, finishedAt);
+        }
+    }
+}
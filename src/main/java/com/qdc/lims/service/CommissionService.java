@@ -0,0 +1,101 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.DoctorBalance;
+import com.qdc.lims.entity.Doctor;
+import com.qdc.lims.repository.CommissionLedgerRepository;
+import com.qdc.lims.repository.DoctorRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Service for doctor commission balances.
+ * <p>
+ * Each doctor's unpaid total is kept in Doctor.unpaidCommission. OrderService adds to it
+ * atomically, once per doctor just before its transaction commits, and paying a doctor zeroes it. The commission
+ * dashboard then reads one row per doctor, however long the ledger gets. On startup the balances
+ * are checked against the ledger (one grouped query) and any drift is repaired, which also fills
+ * them in the first time.
+ */
+@Service
+public class CommissionService implements ApplicationRunner {
+
+    private static final double TOLERANCE = 0.005; // Half a paisa
+
+    private final DoctorRepository doctorRepo;
+    private final CommissionLedgerRepository commissionRepo;
+
+    /**
+     * Constructs a CommissionService.
+     *
+     * @param doctorRepo repository for doctors and their balances
+     * @param commissionRepo repository for the commission ledger
+     */
+    public CommissionService(DoctorRepository doctorRepo, CommissionLedgerRepository commissionRepo) {
+        this.doctorRepo = doctorRepo;
+        this.commissionRepo = commissionRepo;
+    }
+
+    /**
+     * Reconciles the materialized balances with the ledger on startup.
+     *
+     * @param args application arguments (unused)
+     */
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        Map<Long, Double> ledger = commissionRepo.sumUnpaidByDoctor().stream()
+                .collect(Collectors.toMap(DoctorBalance::doctorId, b -> b.unpaid() != null ? b.unpaid() : 0.0));
+
+        int repaired = 0;
+        for (Doctor doctor : doctorRepo.findAll()) {
+            double expected = ledger.getOrDefault(doctor.getId(), 0.0);
+            double stored = doctor.getUnpaidCommission() != null ? doctor.getUnpaidCommission() : 0.0;
+            if (doctor.getUnpaidCommission() == null || Math.abs(expected - stored) > TOLERANCE) {
+                doctorRepo.setUnpaidCommission(doctor.getId(), expected);
+                repaired++;
+            }
+        }
+        if (repaired > 0) {
+            System.out.println("✅ Commission balances reconciled for " + repaired + " doctor(s)");
+        }
+    }
+
+    /**
+     * Returns every doctor's unpaid commission.
+     *
+     * @param doctors the doctors
+     * @return map of doctor ID to unpaid amount
+     */
+    public Map<Long, Double> unpaidBalances(List<Doctor> doctors) {
+        Map<Long, Double> balances = new HashMap<>();
+        for (Doctor doctor : doctors) {
+            balances.put(doctor.getId(), doctor.getUnpaidCommission() != null ? doctor.getUnpaidCommission() : 0.0);
+        }
+        return balances;
+    }
+
+    /**
+     * Pays a doctor: marks all their unpaid entries as paid and zeroes their balance.
+     * The doctor row is updated first, so a booking posting a commission at the same moment
+     * waits for (or is waited on by) this payment, and its amount is never lost from the balance.
+     *
+     * @param doctorId the ID of the doctor
+     * @return the number of ledger entries paid
+     */
+    @Transactional
+    public int payDoctor(Long doctorId) {
+        // 1. Lock and clear the balance
+        if (doctorRepo.setUnpaidCommission(doctorId, 0.0) == 0) {
+            throw new RuntimeException("Doctor not found");
+        }
+        // 2. Settle the ledger in one statement
+        return commissionRepo.markPaid(doctorId);
+    }
+}
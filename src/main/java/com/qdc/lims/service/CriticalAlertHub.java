@@ -0,0 +1,118 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.CriticalAlert;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Fan-out hub pushing critical-value alerts to connected screens over Server-Sent Events.
+ * <p>
+ * Each subscriber is an SseEmitter on an async servlet request, so an idle connection holds no
+ * thread. All writes happen on one hub thread: saving a result only hands the alert over and
+ * never waits on a slow client. Clients whose connection fails are dropped, and a heartbeat
+ * comment keeps idle connections from being closed by proxies. Browsers reconnect on their own
+ * when the emitter times out.
+ */
+@Service
+public class CriticalAlertHub implements DisposableBean {
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "critical-alerts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long timeoutMs;
+
+    /**
+     * Constructs a CriticalAlertHub and starts its heartbeat.
+     *
+     * @param timeoutMs how long one SSE connection stays open before the browser reconnects
+     * @param heartbeatMs interval between heartbeat comments on idle connections
+     */
+    public CriticalAlertHub(@Value("${lims.alerts.sse-timeout-ms:1800000}") long timeoutMs,
+            @Value("${lims.alerts.heartbeat-ms:25000}") long heartbeatMs) {
+        this.timeoutMs = timeoutMs;
+        sender.scheduleAtFixedRate(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a new screen.
+     *
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        return emitter;
+    }
+
+    /**
+     * Pushes the alerts of a save once its transaction has committed.
+     *
+     * @param event the critical results
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCriticalResults(CriticalResultEvent event) {
+        sender.execute(() -> {
+            for (CriticalAlert alert : event.alerts()) {
+                System.out.println("🚨 CRITICAL: " + alert.testName() + " = " + alert.value() + " for "
+                        + alert.patientName() + " (" + alert.mrn() + ")");
+                broadcast(() -> SseEmitter.event().name("critical").data(alert, MediaType.APPLICATION_JSON));
+            }
+        });
+    }
+
+    /**
+     * @return the number of connected screens
+     */
+    public int size() {
+        return emitters.size();
+    }
+
+    /**
+     * Stops the hub thread and closes every connection.
+     */
+    @Override
+    public void destroy() {
+        sender.shutdownNow();
+        for (SseEmitter emitter : emitters) {
+            emitter.complete();
+        }
+        emitters.clear();
+    }
+
+    private void heartbeat() {
+        if (!emitters.isEmpty()) {
+            broadcast(() -> SseEmitter.event().comment("ping"));
+        }
+    }
+
+    // An event builder can only be sent once, so each client gets a fresh one
+    private void broadcast(Supplier<SseEmitter.SseEventBuilder> event) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(event.get());
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; drop it (it reconnects if it is still open)
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
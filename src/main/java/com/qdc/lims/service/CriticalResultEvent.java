@@ -0,0 +1,14 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.CriticalAlert;
+
+import java.util.List;
+
+/**
+ * Event published by ResultService when saved results cross their tests' critical limits.
+ * CriticalAlertHub pushes it to connected screens after the transaction commits.
+ *
+ * @param alerts the critical results of one save
+ */
+public record CriticalResultEvent(List<CriticalAlert> alerts) {
+}
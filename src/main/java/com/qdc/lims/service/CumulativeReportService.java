@@ -0,0 +1,139 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.CumulativeReport;
+import com.qdc.lims.dto.CumulativeResultRow;
+import com.qdc.lims.entity.Patient;
+import com.qdc.lims.repository.PatientRepository;
+import com.qdc.lims.util.TrendChart;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Builds cumulative (multi-visit) reports: a patient's results of each test across all visits,
+ * for trends such as HbA1c or creatinine.
+ * <p>
+ * The whole history comes from one query over the (patient_id, test_id, performed_at) index of
+ * lab_result, selecting only the printed columns. Orders and their result lists are never loaded.
+ * Each test keeps its newest MAX_PER_TEST results, so a long series never crowds out other tests;
+ * the number of older results left out is reported per series. The rows arrive grouped by test
+ * and in time order, so the series are built in one pass.
+ */
+@Service
+public class CumulativeReportService {
+
+    // Upper bound on results per test; a patient's history of one test is far below this in practice
+    private static final int MAX_PER_TEST = 200;
+    private static final LocalDate BEGINNING = LocalDate.of(1970, 1, 1);
+
+    // Released results, ranked newest first within each test; the outer query keeps the newest ones
+    private static final String CUMULATIVE_SQL = """
+            SELECT * FROM (
+                SELECT r.id AS result_id, r.order_id, t.id AS test_id, t.test_name, t.unit,
+                       t.min_range, t.max_range, r.performed_at, r.result_value, r.numeric_value, r.is_abnormal,
+                       ROW_NUMBER() OVER (PARTITION BY t.id ORDER BY r.performed_at DESC, r.id DESC) AS newest,
+                       COUNT(*) OVER (PARTITION BY t.id) AS series_size
+                FROM lab_result r
+                JOIN test_definitions t ON t.id = r.test_id
+                JOIN lab_order o ON o.id = r.order_id
+                WHERE r.patient_id = :patientId AND r.performed_at >= :since AND o.status = 'COMPLETED'
+                %s
+            ) ranked
+            WHERE newest <= :perTest
+            ORDER BY test_id, performed_at, result_id
+            """;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final PatientRepository patientRepo;
+
+    /**
+     * Constructs a CumulativeReportService.
+     *
+     * @param namedJdbcTemplate template used to read the result history
+     * @param patientRepo repository for the patient header
+     */
+    public CumulativeReportService(NamedParameterJdbcTemplate namedJdbcTemplate, PatientRepository patientRepo) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.patientRepo = patientRepo;
+    }
+
+    /**
+     * Builds the cumulative report of a patient.
+     *
+     * @param patientId the ID of the patient
+     * @param testIds the tests to include; null or empty for every test the patient has had
+     * @param since the earliest result date; null for the whole history
+     * @return the report, one series per test
+     */
+    public CumulativeReport build(Long patientId, Collection<Long> testIds, LocalDate since) {
+        // 1. Patient header
+        Patient patient = patientRepo.findById(patientId)
+                .orElseThrow(() -> new RuntimeException("Patient not found"));
+        LocalDate from = since != null ? since : BEGINNING;
+
+        // 2. One index range scan, keeping the newest MAX_PER_TEST results of each test
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("patientId", patientId)
+                .addValue("since", from.atStartOfDay())
+                .addValue("perTest", MAX_PER_TEST);
+        String filter = "";
+        if (testIds != null && !testIds.isEmpty()) {
+            filter = "AND r.test_id IN (:testIds)";
+            params.addValue("testIds", testIds);
+        }
+        List<RankedRow> rows = namedJdbcTemplate.query(CUMULATIVE_SQL.formatted(filter), params,
+                (rs, rowNum) -> new RankedRow(new CumulativeResultRow(
+                        rs.getLong("result_id"),
+                        rs.getLong("order_id"),
+                        rs.getLong("test_id"),
+                        rs.getString("test_name"),
+                        rs.getString("unit"),
+                        rs.getObject("min_range", Double.class),
+                        rs.getObject("max_range", Double.class),
+                        rs.getObject("performed_at", LocalDateTime.class),
+                        rs.getString("result_value"),
+                        rs.getObject("numeric_value", Double.class),
+                        rs.getBoolean("is_abnormal")),
+                        rs.getLong("series_size")));
+
+        // 3. Split into series (rows are ordered by test, then time)
+        List<CumulativeReport.Series> series = new ArrayList<>();
+        List<CumulativeResultRow> current = null;
+        boolean truncated = false;
+        for (RankedRow ranked : rows) {
+            CumulativeResultRow row = ranked.row();
+            if (current == null || !current.get(0).testId().equals(row.testId())) {
+                current = new ArrayList<>();
+                long omitted = Math.max(0, ranked.seriesSize() - MAX_PER_TEST);
+                truncated |= omitted > 0;
+                series.add(new CumulativeReport.Series(row.testId(), row.testName(), row.unit(),
+                        row.minRange(), row.maxRange(), current, omitted));
+            }
+            current.add(row);
+        }
+        return new CumulativeReport(patient, since, series, truncated);
+    }
+
+    /**
+     * Builds the trend chart of a series.
+     *
+     * @param series the series
+     * @return the chart, or null if the series has fewer than two numeric results
+     */
+    public static TrendChart chart(CumulativeReport.Series series) {
+        return TrendChart.of(
+                series.rows().stream().map(CumulativeResultRow::numericValue).toList(),
+                series.rows().stream().map(CumulativeResultRow::abnormal).toList(),
+                series.minRange(), series.maxRange());
+    }
+
+    // A result row and the total number of results of its test in the period
+    private record RankedRow(CumulativeResultRow row, long seriesSize) {
+    }
+}
@@ -0,0 +1,190 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.LabResult;
+import com.qdc.lims.entity.PatientLatestResult;
+import com.qdc.lims.entity.TestDefinition;
+import com.qdc.lims.repository.LabResultRepository;
+import com.qdc.lims.repository.PatientLatestResultRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service that compares newly saved results with the same patient's previous value for the test.
+ * Previous values come from the patient_latest_results table (one row per patient and test),
+ * which is read with one query per save and updated with one batched upsert.
+ * Limits are configured per test (deltaPercentLimit, deltaAbsoluteLimit).
+ * <p>
+ * Results are ordered by their order date, not by when they were saved. A result from an older
+ * visit that is entered or corrected after a newer one leaves the latest row alone, and is
+ * compared with the visit before it (one history lookup, rare in practice).
+ */
+@Service
+public class DeltaCheckService {
+
+    // The previous value is the baseline the result was checked against (the value of the visit before it).
+    // Rows are only replaced by a result from the same or a later order date.
+    private static final String UPSERT_SQL = "INSERT INTO patient_latest_results "
+            + "(patient_id, test_id, result_id, latest_value, latest_at, previous_value, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (patient_id, test_id) DO UPDATE SET "
+            + "previous_value = EXCLUDED.previous_value, "
+            + "latest_value = EXCLUDED.latest_value, "
+            + "latest_at = EXCLUDED.latest_at, "
+            + "result_id = EXCLUDED.result_id, "
+            + "updated_at = EXCLUDED.updated_at "
+            + "WHERE patient_latest_results.latest_at IS NULL "
+            + "OR EXCLUDED.latest_at >= patient_latest_results.latest_at";
+
+    private static final PageRequest ONE = PageRequest.of(0, 1);
+    private static final Comparator<LabResult> VISIT_ORDER = Comparator
+            .comparing((LabResult r) -> r.getLabOrder().getOrderDate())
+            .thenComparing(LabResult::getId);
+
+    private final PatientLatestResultRepository latestRepo;
+    private final LabResultRepository resultRepo;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructs a DeltaCheckService with the required collaborators.
+     *
+     * @param latestRepo repository for the latest-value lookup table
+     * @param resultRepo repository for the history lookup of results from older visits
+     * @param jdbcTemplate template for the batched upsert
+     */
+    public DeltaCheckService(PatientLatestResultRepository latestRepo, LabResultRepository resultRepo,
+            JdbcTemplate jdbcTemplate) {
+        this.latestRepo = latestRepo;
+        this.resultRepo = resultRepo;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Delta-checks the given results and records their values as each patient's latest.
+     * Results without a numeric value are skipped and leave the history untouched.
+     * Several results of the same patient and test (e.g. two visits in one analyzer file) are
+     * checked in order-date order, each against the one before it, and only the newest is recorded.
+     *
+     * @param results saved results with numericValue, test definition and order/patient loaded
+     */
+    @Transactional
+    public void check(List<LabResult> results) {
+        // 1. Collect the numeric results (each once) by (patient, test) key
+        Map<Long, LabResult> unique = new LinkedHashMap<>();
+        for (LabResult result : results) {
+            if (result.getNumericValue() != null) {
+                unique.put(result.getId(), result);
+            }
+        }
+        Map<PatientLatestResult.Key, List<LabResult>> byKey = new LinkedHashMap<>();
+        Set<Long> patientIds = new HashSet<>();
+        Set<Long> testIds = new HashSet<>();
+        for (LabResult result : unique.values()) {
+            Long patientId = patientIdOf(result);
+            Long testId = result.getTestDefinition().getId();
+            byKey.computeIfAbsent(new PatientLatestResult.Key(patientId, testId), k -> new ArrayList<>()).add(result);
+            patientIds.add(patientId);
+            testIds.add(testId);
+        }
+        if (byKey.isEmpty()) {
+            return;
+        }
+
+        // 2. One query for all previous values
+        Map<PatientLatestResult.Key, PatientLatestResult> latest = new HashMap<>();
+        for (PatientLatestResult row : latestRepo.findByPatientIdInAndTestIdIn(patientIds, testIds)) {
+            latest.put(new PatientLatestResult.Key(row.getPatientId(), row.getTestId()), row);
+        }
+
+        // 3. Compare each result with its baseline, key by key in visit order
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> upserts = new ArrayList<>(byKey.size());
+        for (Map.Entry<PatientLatestResult.Key, List<LabResult>> entry : byKey.entrySet()) {
+            List<LabResult> visits = entry.getValue();
+            visits.sort(VISIT_ORDER);
+            PatientLatestResult row = latest.get(entry.getKey());
+
+            LabResult previous = null;
+            for (LabResult result : visits) {
+                // The row is stale for every result after the first: chain to the previous one when it is the newest
+                Double baseline = previous != null && isNewest(previous, row)
+                        ? previous.getNumericValue()
+                        : storedBaseline(result, row);
+                result.setDeltaBaseline(baseline);
+                result.setDeltaFailed(baseline == null ? null
+                        : exceedsLimits(result.getTestDefinition(), result.getNumericValue(), baseline));
+                previous = result;
+            }
+
+            // One row per key, so the batch never updates the same row twice
+            upserts.add(new Object[] { entry.getKey().getPatientId(), entry.getKey().getTestId(), previous.getId(),
+                    previous.getNumericValue(), Timestamp.valueOf(previous.getLabOrder().getOrderDate()),
+                    previous.getDeltaBaseline(), now });
+        }
+
+        // 4. Record the newest values as the latest
+        jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+    }
+
+    // Baseline of a result from the stored row: its previous value, the latest value, or the history
+    private Double storedBaseline(LabResult result, PatientLatestResult row) {
+        if (row == null) {
+            return null;
+        }
+        if (result.getId().equals(row.getResultId())) {
+            // Re-saving the latest result compares against the value before it, not against itself
+            return row.getPreviousValue();
+        }
+        if (isNewest(result, row)) {
+            return row.getLatestValue();
+        }
+        // An older visit: compare with the visit before it, not with a newer one
+        return resultRepo.findValueBefore(patientIdOf(result), result.getTestDefinition().getId(),
+                result.getLabOrder().getOrderDate(), result.getId(), ONE).stream().findFirst().orElse(null);
+    }
+
+    // True if the result is at least as recent as everything already recorded for its key
+    private static boolean isNewest(LabResult result, PatientLatestResult row) {
+        return row == null || row.getLatestAt() == null
+                || !result.getLabOrder().getOrderDate().isBefore(row.getLatestAt());
+    }
+
+    /**
+     * Checks a value change against the test's delta limits.
+     *
+     * @param test the test definition holding the limits
+     * @param value the new value
+     * @param baseline the previous value
+     * @return true if a limit is exceeded, false if not, null if the test has no delta rule
+     */
+    static Boolean exceedsLimits(TestDefinition test, double value, double baseline) {
+        Double absoluteLimit = test.getDeltaAbsoluteLimit();
+        Double percentLimit = test.getDeltaPercentLimit();
+        if (absoluteLimit == null && percentLimit == null) {
+            return null;
+        }
+
+        double change = Math.abs(value - baseline);
+        if (absoluteLimit != null && change > absoluteLimit) {
+            return true;
+        }
+        // A percentage of zero is meaningless; such a baseline is only checked by the absolute limit
+        return percentLimit != null && baseline != 0 && change / Math.abs(baseline) * 100 > percentLimit;
+    }
+
+    private static Long patientIdOf(LabResult result) {
+        return result.getLabOrder().getPatient().getId();
+    }
+}
@@ -0,0 +1,259 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.LabResult;
+import com.qdc.lims.entity.Patient;
+import com.qdc.lims.entity.TestDefinition;
+import com.qdc.lims.repository.TestDefinitionRepository;
+import com.qdc.lims.util.FormulaParser;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes calculated tests (LDL, eGFR, A/G ratio, indirect bilirubin, ...) from the other results
+ * of the same order. Every test with a formula is parsed once into an expression tree; together
+ * they form a dependency graph (test code -> derived tests reading it), kept in topological order
+ * so a derived test that reads another derived test (LDL from VLDL) is computed after it.
+ * On save, only the derived tests reachable from the changed codes are recomputed.
+ * The graph is rebuilt lazily after any test definition changes.
+ */
+@Service
+public class FormulaService {
+
+    private final TestDefinitionRepository testRepo;
+    private volatile Graph graph;
+
+    /**
+     * Constructs a FormulaService.
+     *
+     * @param testRepo repository used to load the tests that have a formula
+     */
+    public FormulaService(TestDefinitionRepository testRepo) {
+        this.testRepo = testRepo;
+    }
+
+    /**
+     * Checks that a formula can be parsed, before it is saved on a test definition.
+     *
+     * @param formula the formula text (blank means "no formula" and is valid)
+     */
+    public void validate(String formula) {
+        if (formula == null || formula.isBlank()) {
+            return;
+        }
+        try {
+            FormulaParser.parse(formula);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid formula: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes the derived results of an order that depend on the changed results.
+     * A derived test is skipped (left as entered) if one of its inputs was not ordered; if an input
+     * was ordered but has no numeric value yet, the derived value is cleared.
+     *
+     * @param orderResults all results of the order, with test definitions loaded
+     * @param changed the results whose values were just saved
+     * @param patient the patient, for AGE and IS_FEMALE
+     * @return the new values of the affected derived results, in computation order (null = clear)
+     */
+    public List<Calculation> recompute(List<LabResult> orderResults, Collection<LabResult> changed, Patient patient) {
+        Graph current = graph();
+        List<Calculation> calculations = new ArrayList<>();
+        if (current.formulas.isEmpty()) {
+            return calculations;
+        }
+
+        // 1. Derived tests reachable from the changed codes
+        Deque<String> pending = new ArrayDeque<>();
+        for (LabResult result : changed) {
+            pending.add(codeOf(result.getTestDefinition()));
+        }
+        Set<Long> affected = new HashSet<>();
+        while (!pending.isEmpty()) {
+            for (Long testId : current.dependents.getOrDefault(pending.poll(), List.of())) {
+                if (affected.add(testId)) {
+                    pending.add(current.codes.get(testId));
+                }
+            }
+        }
+        if (affected.isEmpty()) {
+            return calculations;
+        }
+
+        // 2. The order's current values by code
+        Map<String, Double> values = new HashMap<>();
+        Map<Long, LabResult> byTestId = new HashMap<>();
+        for (LabResult result : orderResults) {
+            values.put(codeOf(result.getTestDefinition()), result.getNumericValue());
+            byTestId.put(result.getTestDefinition().getId(), result);
+        }
+        values.put(FormulaParser.AGE, patient.getAge() != null ? patient.getAge().doubleValue() : null);
+        values.put(FormulaParser.IS_FEMALE, "Female".equalsIgnoreCase(patient.getGender()) ? 1.0 : 0.0);
+
+        // 3. Evaluate in dependency order; each computed value feeds the tests after it
+        for (Long testId : current.order) {
+            LabResult derived = byTestId.get(testId);
+            if (derived == null || !affected.contains(testId)) {
+                continue;
+            }
+            FormulaParser.Formula formula = current.formulas.get(testId);
+            List<String> variables = formula.variables();
+            double[] inputs = new double[variables.size()];
+            boolean ordered = true;
+            boolean complete = true;
+            for (int i = 0; i < inputs.length; i++) {
+                String name = variables.get(i);
+                if (!values.containsKey(name)) {
+                    ordered = false;
+                    break;
+                }
+                Double value = values.get(name);
+                if (value == null) {
+                    complete = false;
+                } else {
+                    inputs[i] = value;
+                }
+            }
+            if (!ordered) {
+                continue;
+            }
+
+            Double value = null;
+            if (complete) {
+                double computed = formula.evaluate(inputs);
+                value = Double.isFinite(computed) ? computed : null; // e.g. division by a zero albumin
+            }
+            values.put(current.codes.get(testId), value);
+            calculations.add(new Calculation(derived, value == null ? null : format(value)));
+        }
+        return calculations;
+    }
+
+    /**
+     * Drops the cached formulas and dependency graph after a test definition has changed.
+     * A changed short code can rewire the graph, so the whole graph is rebuilt on next use.
+     */
+    public void refresh() {
+        graph = null;
+    }
+
+    private Graph graph() {
+        Graph current = graph;
+        if (current == null) {
+            synchronized (this) {
+                current = graph;
+                if (current == null) {
+                    current = build(testRepo.findByFormulaIsNotNull());
+                    graph = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Graph build(List<TestDefinition> tests) {
+        // 1. Parse every formula once
+        Map<Long, FormulaParser.Formula> formulas = new LinkedHashMap<>();
+        Map<Long, String> codes = new HashMap<>();
+        Map<String, List<Long>> dependents = new HashMap<>();
+        for (TestDefinition test : tests) {
+            if (test.getFormula().isBlank()) {
+                continue;
+            }
+            try {
+                FormulaParser.Formula formula = FormulaParser.parse(test.getFormula());
+                formulas.put(test.getId(), formula);
+                codes.put(test.getId(), codeOf(test));
+                for (String variable : formula.variables()) {
+                    dependents.computeIfAbsent(variable, v -> new ArrayList<>()).add(test.getId());
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("❌ Formula of test " + test.getTestName() + " ignored: " + e.getMessage());
+            }
+        }
+
+        // 2. Topological order (depth-first); tests on a cycle are left out
+        List<Long> order = new ArrayList<>(formulas.size());
+        Map<Long, Boolean> state = new HashMap<>(); // false = visiting, true = done
+        Map<String, Long> derivedByCode = new HashMap<>();
+        codes.forEach((id, code) -> derivedByCode.put(code, id));
+        for (Long testId : formulas.keySet()) {
+            visit(testId, formulas, derivedByCode, state, order);
+        }
+        return new Graph(formulas, codes, dependents, order);
+    }
+
+    private static boolean visit(Long testId, Map<Long, FormulaParser.Formula> formulas,
+            Map<String, Long> derivedByCode, Map<Long, Boolean> state, List<Long> order) {
+        Boolean seen = state.get(testId);
+        if (seen != null) {
+            return seen;
+        }
+        state.put(testId, false);
+        boolean acyclic = true;
+        for (String variable : formulas.get(testId).variables()) {
+            Long input = derivedByCode.get(variable);
+            if (input != null && !visit(input, formulas, derivedByCode, state, order)) {
+                acyclic = false;
+            }
+        }
+        if (acyclic) {
+            order.add(testId);
+        } else {
+            System.out.println("❌ Formula of test #" + testId + " ignored: it depends on "
+                    + (reaches(testId, testId, formulas, derivedByCode, new HashSet<>()) ? "itself" : "a cycle"));
+        }
+        state.put(testId, acyclic);
+        return acyclic;
+    }
+
+    // True if target is among the derived inputs of from, directly or through other derived tests
+    private static boolean reaches(Long from, Long target, Map<Long, FormulaParser.Formula> formulas,
+            Map<String, Long> derivedByCode, Set<Long> seen) {
+        for (String variable : formulas.get(from).variables()) {
+            Long input = derivedByCode.get(variable);
+            if (input == null || !seen.add(input)) {
+                continue;
+            }
+            if (input.equals(target) || reaches(input, target, formulas, derivedByCode, seen)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String codeOf(TestDefinition test) {
+        return test.getShortCode() != null ? test.getShortCode() : test.getTestName();
+    }
+
+    // Reported values keep at most two decimals: 97.456 -> "97.46", 1.50 -> "1.5"
+    private static String format(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * A derived result and its newly computed value.
+     *
+     * @param result the derived LabResult
+     * @param value the formatted value, or null if an input has no numeric value
+     */
+    public record Calculation(LabResult result, String value) {
+    }
+
+    private record Graph(Map<Long, FormulaParser.Formula> formulas, Map<Long, String> codes,
+            Map<String, List<Long>> dependents, List<Long> order) {
+    }
+}
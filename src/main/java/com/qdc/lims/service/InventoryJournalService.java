@@ -0,0 +1,148 @@
+package com.qdc.lims.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * Service for the append-only inventory journal.
+ * Stock changes are inserted as InventoryMovement rows, and the current stock of an item is
+ * derived as its snapshot (InventoryItem.currentStock) plus all movements not yet compacted.
+ * A background compactor folds pending movements into the snapshot so the derivation stays cheap.
+ */
+@Service
+public class InventoryJournalService {
+
+    private static final String INSERT_SQL = "INSERT INTO inventory_movements "
+            + "(item_id, quantity, movement_type, reference, created_at, compacted) VALUES (?, ?, ?, ?, ?, false)";
+
+    private static final String STOCK_LEVELS_SQL = "SELECT i.id, i.item_name, i.unit, "
+            + "COALESCE(i.current_stock, 0) + COALESCE(SUM(m.quantity), 0) AS available "
+            + "FROM inventory_items i "
+            + "LEFT JOIN inventory_movements m ON m.item_id = i.id AND m.compacted = false "
+            + "WHERE i.id IN (:ids) "
+            + "GROUP BY i.id, i.item_name, i.unit, i.current_stock";
+
+    // Marks pending movements as compacted and adds their sum to the snapshot in one statement,
+    // so a movement can never be counted twice or skipped, even while bookings keep inserting.
+    private static final String COMPACT_SQL = "WITH folded AS ("
+            + " UPDATE inventory_movements SET compacted = true WHERE compacted = false"
+            + " RETURNING item_id, quantity) "
+            + "UPDATE inventory_items i SET current_stock = COALESCE(i.current_stock, 0) + d.delta "
+            + "FROM (SELECT item_id, SUM(quantity) AS delta FROM folded GROUP BY item_id) d "
+            + "WHERE i.id = d.item_id";
+
+    // Transaction-scoped advisory lock per item: serializes bookings of the same item without
+    // touching the inventory_items row the compactor updates (so the two never deadlock).
+    // The two-key form keeps item locks in their own namespace, apart from any other advisory lock.
+    private static final String LOCK_ITEM_SQL = "SELECT pg_advisory_xact_lock(?, ?)";
+
+    // First key of every inventory item lock ("INV")
+    private static final int ITEM_LOCK_CLASS = 0x494E56;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Constructs an InventoryJournalService with the required JDBC templates.
+     *
+     * @param jdbcTemplate template for batch inserts and compaction
+     * @param namedJdbcTemplate template for queries with IN lists
+     */
+    public InventoryJournalService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    /**
+     * Appends one movement per item to the journal as a single JDBC batch.
+     *
+     * @param deltas the signed quantity change per inventory item ID
+     * @param movementType the type of movement (e.g., "CONSUMPTION", "PURCHASE")
+     * @param reference a human-readable reference such as the order or invoice
+     */
+    @Transactional
+    public void record(Map<Long, Double> deltas, String movementType, String reference) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, Double> entry : deltas.entrySet()) {
+            batch.add(new Object[] { entry.getKey(), entry.getValue(), movementType, reference, now });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+    }
+
+    /**
+     * Locks the given items until the current transaction ends, so a stock check and the movements
+     * recorded after it cannot interleave with another booking of the same items.
+     * Locks are taken in ascending item ID order. That prevents deadlocks only if a transaction takes
+     * all its item locks in one call: a transaction booking several orders must lock the union of
+     * their items first (see OrderService.lockStock). Re-locking an item it already holds is free.
+     * Must run inside the caller's transaction.
+     *
+     * @param itemIds the inventory item IDs, in ascending order
+     */
+    @Transactional
+    public void lockItems(SortedSet<Long> itemIds) {
+        for (Long itemId : itemIds) {
+            jdbcTemplate.queryForList(LOCK_ITEM_SQL, ITEM_LOCK_CLASS, Math.toIntExact(itemId));
+        }
+    }
+
+    /**
+     * Derives the current stock of the given items from their snapshot and pending movements.
+     *
+     * @param itemIds the inventory item IDs to look up
+     * @return stock levels keyed by item ID (unknown IDs are absent)
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, StockLevel> stockLevels(Collection<Long> itemIds) {
+        Map<Long, StockLevel> levels = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return levels;
+        }
+
+        namedJdbcTemplate.query(STOCK_LEVELS_SQL, Map.of("ids", itemIds), rs -> {
+            long id = rs.getLong("id");
+            levels.put(id, new StockLevel(id, rs.getString("item_name"), rs.getString("unit"),
+                    rs.getDouble("available")));
+        });
+        return levels;
+    }
+
+    /**
+     * Folds all pending movements into the stock snapshots of their items.
+     * Runs periodically in the background; the interval is configurable via
+     * {@code lims.inventory.compaction-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${lims.inventory.compaction-interval-ms:60000}")
+    @Transactional
+    public void compact() {
+        jdbcTemplate.update(COMPACT_SQL);
+    }
+
+    /**
+     * Derived stock of an inventory item.
+     *
+     * @param itemId the ID of the inventory item
+     * @param itemName the name of the inventory item
+     * @param unit the unit of measure of the item
+     * @param available the snapshot plus all pending movements
+     */
+    public record StockLevel(Long itemId, String itemName, String unit, double available) {
+    }
+}
@@ -3,10 +3,19 @@ package com.qdc.lims.service;
 import com.qdc.lims.dto.OrderRequest;
 import com.qdc.lims.entity.*;
 import com.qdc.lims.repository.*;
+import com.qdc.lims.util.ResultValueParser;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Service for handling lab order creation and related business logic.
@@ -19,8 +28,8 @@ public class OrderService {
     private final TestDefinitionRepository testRepo;
     private final DoctorRepository doctorRepo;
     private final CommissionLedgerRepository commissionRepo;
-    private final TestConsumptionRepository consumptionRepo;
-    private final InventoryItemRepository inventoryRepo;
+    private final RecipeCache recipeCache;
+    private final StockDeductionService stockDeduction;
 
     /**
      * Constructs an OrderService with all required repositories.
@@ -30,20 +39,20 @@ public class OrderService {
      * @param testRepo TestDefinition repository
      * @param doctorRepo Doctor repository
      * @param commissionRepo CommissionLedger repository
-     * @param consumptionRepo TestConsumption repository
-     * @param inventoryRepo InventoryItem repository
+     * @param recipeCache cache of test consumption recipes
+     * @param stockDeduction service for atomic stock deduction
      */
     public OrderService(LabOrderRepository orderRepo, PatientRepository patientRepo,
             TestDefinitionRepository testRepo, DoctorRepository doctorRepo,
-            CommissionLedgerRepository commissionRepo, TestConsumptionRepository consumptionRepo,
-            InventoryItemRepository inventoryRepo) {
+            CommissionLedgerRepository commissionRepo, RecipeCache recipeCache,
+            StockDeductionService stockDeduction) {
         this.orderRepo = orderRepo;
         this.patientRepo = patientRepo;
         this.testRepo = testRepo;
         this.doctorRepo = doctorRepo;
         this.commissionRepo = commissionRepo;
-        this.consumptionRepo = consumptionRepo;
-        this.inventoryRepo = inventoryRepo;
+        this.recipeCache = recipeCache;
+        this.stockDeduction = stockDeduction;
     }
 
     /**
@@ -72,45 +81,28 @@ public class OrderService {
         double totalAmount = 0.0;
         List<TestDefinition> tests = testRepo.findAllById(request.testIds());
 
+        // Total quantity per inventory item, sorted by item ID for a consistent lock order
+        SortedMap<Long, Double> needed = new TreeMap<>();
+        Map<Long, String> neededBy = new HashMap<>();
+
         for (TestDefinition test : tests) {
             // A. Create Empty Result Slot
             LabResult result = new LabResult();
             result.setLabOrder(order);
+            result.setPatientId(patient.getId());
             result.setTestDefinition(test);
             result.setResultValue(""); // Waiting for Lab Tech
+            result.setValueKind(ResultValueParser.Kind.EMPTY);
             order.getResults().add(result);
 
             // B. Add Price to Bill
             totalAmount += test.getPrice();
 
-            // C. INVENTORY LOGIC (Automatic Deduction)
-            List<TestConsumption> recipe = consumptionRepo.findByTest(test);
-            for (TestConsumption ingredient : recipe) {
-                InventoryItem item = ingredient.getItem();
-
-                double needed = ingredient.getQuantity();
-                double available = item.getCurrentStock();
-
-                // --- THE GUARD CHECK ---
-                if (available < needed) {
-                    throw new RuntimeException(
-                            "❌ OUT OF STOCK: Test '" + test.getTestName() + "' requires "
-                                    + needed + " " + item.getUnit() + " of '" + item.getItemName() + "', "
-                                    + "but only " + available + " is available.");
-                }
-                // -----------------------
-
-                // Subtract Stock
-                double newStock = item.getCurrentStock() - ingredient.getQuantity();
-                if (newStock < 0) {
-                    throw new RuntimeException(
-                            "❌ OUT OF STOCK: Not enough " + item.getItemName() + " to book this test.");
-                }
-
-                item.setCurrentStock(newStock);
-
-                // Save updated stock
-                inventoryRepo.save(item);
+            // C. INVENTORY LOGIC (Collect what this test consumes)
+            RecipeCache.Recipe recipe = recipeCache.getRecipe(test.getId());
+            for (int i = 0; i < recipe.size(); i++) {
+                needed.merge(recipe.itemId(i), recipe.quantity(i), Double::sum);
+                neededBy.putIfAbsent(recipe.itemId(i), test.getTestName());
             }
         }
 
@@ -124,6 +116,16 @@ public class OrderService {
         // -------------------------
         LabOrder savedOrder = orderRepo.save(order);
 
+        // --- THE GUARD CHECK (Journal Deduction) ---
+        StockDeductionService.Shortage shortage = stockDeduction.deduct(needed, "Order #" + savedOrder.getId());
+        if (shortage != null) {
+            throw new RuntimeException(
+                    "❌ OUT OF STOCK: Test '" + neededBy.get(shortage.itemId()) + "' requires "
+                            + shortage.needed() + " " + shortage.unit() + " of '" + shortage.itemName() + "', "
+                            + "but only " + shortage.available() + " is available.");
+        }
+        // -----------------------
+
         // 4. COMMISSION LOGIC (Secret Table)
         if (doctor != null && doctor.getCommissionPercentage() > 0) {
             CommissionLedger ledger = new CommissionLedger();
@@ -137,8 +139,75 @@ public class OrderService {
             ledger.setCalculatedAmount(commAmount);
 
             commissionRepo.save(ledger);
+
+            // Keep the doctor's unpaid balance current (one atomic increment per doctor, at commit)
+            addUnpaidCommission(doctor.getId(), commAmount);
         }
 
         return savedOrder;
     }
+
+    /**
+     * Locks every inventory item the given orders consume, in ascending ID order, until the current
+     * transaction ends. Call it first when several orders are booked in one transaction: each
+     * createOrder then only re-takes locks it already holds, so the batch never acquires item locks
+     * out of order and cannot deadlock with single bookings.
+     *
+     * @param requests the orders about to be booked in this transaction
+     */
+    @Transactional
+    public void lockStock(List<OrderRequest> requests) {
+        SortedSet<Long> items = new TreeSet<>();
+        for (OrderRequest request : requests) {
+            if (request.testIds() == null) {
+                continue;
+            }
+            for (Long testId : request.testIds()) {
+                RecipeCache.Recipe recipe = recipeCache.getRecipe(testId);
+                for (int i = 0; i < recipe.size(); i++) {
+                    items.add(recipe.itemId(i));
+                }
+            }
+        }
+        stockDeduction.lockItems(items);
+    }
+
+    /**
+     * Adds a commission to the doctor's unpaid balance. Inside a transaction the amounts are summed
+     * per doctor and applied just before commit, after the batched inserts: a chunk of bookings then
+     * issues one UPDATE per doctor, and the doctor row is locked only for the end of the transaction.
+     *
+     * @param doctorId the ID of the doctor
+     * @param amount the commission amount
+     */
+    private void addUnpaidCommission(Long doctorId, double amount) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            doctorRepo.addUnpaidCommission(doctorId, amount);
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingCommissions pending) {
+                pending.add(doctorId, amount);
+                return;
+            }
+        }
+        PendingCommissions pending = new PendingCommissions();
+        pending.add(doctorId, amount);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    // Commission totals of the current transaction, applied in doctor ID order (a consistent lock order)
+    private final class PendingCommissions implements TransactionSynchronization {
+
+        private final SortedMap<Long, Double> amounts = new TreeMap<>();
+
+        void add(Long doctorId, double amount) {
+            amounts.merge(doctorId, amount, Double::sum);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            amounts.forEach(doctorRepo::addUnpaidCommission);
+        }
+    }
 }
\ No newline at end of file
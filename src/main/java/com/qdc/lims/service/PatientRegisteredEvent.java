@@ -0,0 +1,12 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.Patient;
+
+/**
+ * Event published by PatientService when a new patient is registered.
+ * In-memory patient indexes listen for it after the transaction commits.
+ *
+ * @param patient the newly registered patient
+ */
+public record PatientRegisteredEvent(Patient patient) {
+}
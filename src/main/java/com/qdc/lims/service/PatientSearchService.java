@@ -0,0 +1,268 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.PatientSearchHit;
+import com.qdc.lims.dto.PatientSearchPage;
+import com.qdc.lims.entity.Patient;
+import com.qdc.lims.repository.PatientRepository;
+import com.qdc.lims.util.TrigramIndex;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service for ranked, fuzzy patient search by name, mobile number or MRN.
+ * On PostgreSQL the search runs against pg_trgm GIN indexes, so a lookup only touches the
+ * patients that share trigrams with the query instead of scanning the whole table.
+ * Databases without pg_trgm (e.g., test databases) fall back to an in-memory TrigramIndex.
+ * Queries of one or two characters have no selective trigrams; they are answered with an
+ * exact prefix lookup on name, mobile number and MRN (text_pattern_ops B-tree indexes) instead.
+ * Results are ranked by similarity, capped at MAX_LIMIT per page, and paginated with a
+ * keyset cursor ("score_id" of the last hit) rather than OFFSET.
+ */
+@Service
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class PatientSearchService implements ApplicationRunner {
+
+    /**
+     * Queries shorter than this have too few trigrams to be selective and use a prefix lookup.
+     */
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    /**
+     * Hard upper bound on the number of hits returned per page.
+     */
+    public static final int MAX_LIMIT = 100;
+
+    // Same cut-off pg_trgm uses for its word similarity operator (<%)
+    private static final double MIN_SCORE = 0.6;
+
+    private static final String SEARCH_SQL = """
+            SELECT id, mrn, full_name, mobile_number, score FROM (
+                SELECT p.id, p.mrn, p.full_name, p.mobile_number,
+                       GREATEST(word_similarity(:q, lower(p.full_name)),
+                                word_similarity(:q, COALESCE(p.mobile_number, '')),
+                                word_similarity(:q, lower(p.mrn))) AS score
+                FROM patients p
+                WHERE :q <% lower(p.full_name)
+                   OR lower(p.full_name) LIKE :like
+                   OR p.mobile_number LIKE :like
+                   OR lower(p.mrn) LIKE :like
+            ) ranked
+            """;
+
+    // Short queries: every prefix match scores 1, so the keyset cursor reduces to the ID
+    private static final String PREFIX_SQL = """
+            SELECT id, mrn, full_name, mobile_number, score FROM (
+                SELECT p.id, p.mrn, p.full_name, p.mobile_number, CAST(1 AS real) AS score
+                FROM patients p
+                WHERE lower(p.full_name) LIKE :like
+                   OR p.mobile_number LIKE :like
+                   OR lower(p.mrn) LIKE :like
+            ) ranked
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final PatientRepository patientRepo;
+
+    // Only set when the database has no pg_trgm support
+    private volatile TrigramIndex fallbackIndex;
+
+    /**
+     * Constructs a PatientSearchService with the required collaborators.
+     *
+     * @param jdbcTemplate template used to set up the trigram indexes
+     * @param namedJdbcTemplate template used for the ranked search query
+     * @param patientRepo repository used to load patients for the fallback index and the web page
+     */
+    public PatientSearchService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+            PatientRepository patientRepo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.patientRepo = patientRepo;
+    }
+
+    /**
+     * Creates the pg_trgm extension and indexes on startup, or builds the in-memory
+     * index if the database doesn't support them.
+     *
+     * @param args application arguments (unused)
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_patients_name_trgm "
+                    + "ON patients USING gin (lower(full_name) gin_trgm_ops)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_patients_mobile_trgm "
+                    + "ON patients USING gin (mobile_number gin_trgm_ops)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_patients_mrn_trgm "
+                    + "ON patients USING gin (lower(mrn) gin_trgm_ops)");
+            // Prefix lookups for short queries (LIKE 'q%' can use these whatever the collation)
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_patients_name_prefix "
+                    + "ON patients (lower(full_name) text_pattern_ops)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_patients_mobile_prefix "
+                    + "ON patients (mobile_number text_pattern_ops)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_patients_mrn_prefix "
+                    + "ON patients (lower(mrn) text_pattern_ops)");
+        } catch (DataAccessException e) {
+            System.out.println("⚠️ pg_trgm not available, using in-memory patient search: " + e.getMessage());
+            TrigramIndex index = new TrigramIndex();
+            for (Patient patient : patientRepo.findAll()) {
+                index.add(patient.getId(), patient.getFullName(), patient.getMobileNumber(), patient.getMrn());
+            }
+            fallbackIndex = index;
+        }
+    }
+
+    /**
+     * Adds newly registered patients to the in-memory index once their transaction commits.
+     * The pg_trgm indexes are maintained by the database itself.
+     *
+     * @param event the registration event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPatientRegistered(PatientRegisteredEvent event) {
+        TrigramIndex index = fallbackIndex;
+        if (index != null) {
+            Patient patient = event.patient();
+            index.add(patient.getId(), patient.getFullName(), patient.getMobileNumber(), patient.getMrn());
+        }
+    }
+
+    /**
+     * Searches patients and returns one ranked page of hits.
+     *
+     * @param query the search text (name, mobile number or MRN)
+     * @param limit the page size (clamped to 1..MAX_LIMIT)
+     * @param after the nextCursor of the previous page, or null for the first page
+     * @return the page of hits and the cursor for the next page
+     */
+    public PatientSearchPage search(String query, int limit, String after) {
+        // 1. Reject empty queries; short ones become prefix lookups
+        String q = query == null ? "" : query.trim().toLowerCase();
+        if (q.isEmpty()) {
+            return new PatientSearchPage(List.of(), null);
+        }
+        boolean prefix = q.length() < MIN_QUERY_LENGTH;
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        // 2. Decode the keyset cursor
+        Double afterScore = null;
+        Long afterId = null;
+        if (after != null && !after.isBlank()) {
+            int sep = after.lastIndexOf('_');
+            try {
+                afterScore = Double.parseDouble(after.substring(0, sep));
+                afterId = Long.parseLong(after.substring(sep + 1));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid search cursor: " + after);
+            }
+        }
+
+        // 3. Run the ranked search
+        List<PatientSearchHit> hits = fallbackIndex != null
+                ? searchInMemory(q, prefix, pageSize, afterScore, afterId)
+                : searchDatabase(q, prefix, pageSize, afterScore, afterId);
+
+        // 4. A full page means there may be more
+        String nextCursor = null;
+        if (hits.size() == pageSize) {
+            PatientSearchHit last = hits.get(hits.size() - 1);
+            nextCursor = last.score() + "_" + last.id();
+        }
+        return new PatientSearchPage(hits, nextCursor);
+    }
+
+    /**
+     * Returns the best matching patients as entities, in rank order (used by the search page).
+     *
+     * @param query the search text
+     * @param limit the maximum number of patients
+     * @return the matching patients, best match first
+     */
+    public List<Patient> searchPatients(String query, int limit) {
+        List<PatientSearchHit> hits = search(query, limit, null).hits();
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Patient> byId = new HashMap<>();
+        for (Patient patient : patientRepo.findAllById(hits.stream().map(PatientSearchHit::id).toList())) {
+            byId.put(patient.getId(), patient);
+        }
+        List<Patient> ranked = new ArrayList<>(hits.size());
+        for (PatientSearchHit hit : hits) {
+            Patient patient = byId.get(hit.id());
+            if (patient != null) {
+                ranked.add(patient);
+            }
+        }
+        return ranked;
+    }
+
+    private List<PatientSearchHit> searchDatabase(String q, boolean prefix, int limit, Double afterScore,
+            Long afterId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("q", q)
+                .addValue("like", (prefix ? "" : "%") + escapeLike(q) + "%")
+                .addValue("limit", limit);
+
+        StringBuilder sql = new StringBuilder(prefix ? PREFIX_SQL : SEARCH_SQL);
+        if (afterId != null) {
+            // word_similarity returns real, so compare the cursor as real too
+            sql.append("WHERE score < CAST(:afterScore AS real) "
+                    + "OR (score = CAST(:afterScore AS real) AND id > :afterId) ");
+            params.addValue("afterScore", afterScore).addValue("afterId", afterId);
+        }
+        sql.append("ORDER BY score DESC, id ASC LIMIT :limit");
+
+        return namedJdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> new PatientSearchHit(
+                rs.getLong("id"),
+                rs.getString("mrn"),
+                rs.getString("full_name"),
+                rs.getString("mobile_number"),
+                rs.getFloat("score")));
+    }
+
+    private List<PatientSearchHit> searchInMemory(String q, boolean prefix, int limit, Double afterScore,
+            Long afterId) {
+        List<TrigramIndex.Hit> hits = prefix
+                ? fallbackIndex.prefixSearch(q, limit, afterId)
+                : fallbackIndex.search(q, MIN_SCORE, limit, afterScore == null ? 0 : afterScore, afterId);
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Patient> byId = new HashMap<>();
+        for (Patient patient : patientRepo.findAllById(hits.stream().map(TrigramIndex.Hit::id).toList())) {
+            byId.put(patient.getId(), patient);
+        }
+        List<PatientSearchHit> result = new ArrayList<>(hits.size());
+        for (TrigramIndex.Hit hit : hits) {
+            Patient p = byId.get(hit.id());
+            if (p != null) {
+                result.add(new PatientSearchHit(p.getId(), p.getMrn(), p.getFullName(), p.getMobileNumber(),
+                        hit.score()));
+            }
+        }
+        return result;
+    }
+
+    // Makes user input safe inside a LIKE pattern (backslash is PostgreSQL's default LIKE escape)
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
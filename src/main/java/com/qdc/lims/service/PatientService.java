@@ -2,7 +2,8 @@ package com.qdc.lims.service;
 
 import com.qdc.lims.entity.Patient;
 import com.qdc.lims.repository.PatientRepository;
-import com.qdc.lims.util.IdGenerator;
+import com.qdc.lims.util.MrnAllocator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,14 +14,21 @@ import org.springframework.transaction.annotation.Transactional;
 public class PatientService {
 
     private final PatientRepository repository;
+    private final MrnAllocator mrnAllocator;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * Constructs a PatientService with the specified PatientRepository.
+     * Constructs a PatientService with the required collaborators.
      *
      * @param repository the repository for patient entities
+     * @param mrnAllocator allocator for collision-free MRNs
+     * @param eventPublisher publisher used to notify patient indexes of new registrations
      */
-    public PatientService(PatientRepository repository) {
+    public PatientService(PatientRepository repository, MrnAllocator mrnAllocator,
+            ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.mrnAllocator = mrnAllocator;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -44,18 +52,12 @@ public class PatientService {
             }
         }
 
-        // 3. Generate a Unique MRN
-        String newMrn = "";
-        boolean isUnique = false;
+        // 3. Assign a Unique MRN (no DB probing needed)
+        patient.setMrn(mrnAllocator.nextMrn());
+        Patient saved = repository.save(patient);
 
-        while (!isUnique) {
-            newMrn = IdGenerator.generateMrn();
-            if (!repository.existsByMrn(newMrn)) {
-                isUnique = true;
-            }
-        }
-
-        patient.setMrn(newMrn);
-        return repository.save(patient);
+        // 4. Let the search indexes pick up the new patient once the transaction commits
+        eventPublisher.publishEvent(new PatientRegisteredEvent(saved));
+        return saved;
     }
 }
\ No newline at end of file
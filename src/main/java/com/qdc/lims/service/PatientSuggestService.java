@@ -0,0 +1,250 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.PatientSuggestion;
+import com.qdc.lims.util.PrefixTrie;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service for as-you-type patient suggestions, answered entirely from memory.
+ * On startup every patient's normalized mobile number, MRN digits and name tokens are loaded
+ * into a PrefixTrie; new registrations are added through PatientRegisteredEvent. Each trie
+ * node caches the newest patients beneath it, so a keystroke costs one trie walk and no
+ * database round trip. Multi-word queries filter the cached IDs of their most selective term;
+ * only when that cache is full and the page still comes up short is the term's whole subtree
+ * walked, so matches older than the cached ones are not missed.
+ */
+@Service
+public class PatientSuggestService implements ApplicationRunner {
+
+    /**
+     * Hard upper bound on the number of suggestions returned.
+     */
+    public static final int MAX_LIMIT = 20;
+
+    // IDs cached per trie node; extra headroom so multi-word queries still fill a page after filtering
+    private static final int NODE_CAPACITY = 32;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PrefixTrie trie = new PrefixTrie(NODE_CAPACITY);
+    private final Map<Long, PatientSuggestion> patients = new HashMap<>();
+
+    /**
+     * Constructs a PatientSuggestService with the specified JdbcTemplate.
+     *
+     * @param jdbcTemplate template used to load the patient projection on startup
+     */
+    public PatientSuggestService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Loads all patients into the trie (only the four columns the suggestions need).
+     *
+     * @param args application arguments (unused)
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        jdbcTemplate.query("SELECT id, mrn, full_name, mobile_number FROM patients", rs -> {
+            index(new PatientSuggestion(
+                    rs.getLong("id"),
+                    rs.getString("mrn"),
+                    rs.getString("full_name"),
+                    rs.getString("mobile_number")));
+        });
+        System.out.println("✅ Patient suggestions loaded: " + size() + " patients");
+    }
+
+    /**
+     * Adds a newly registered patient once its transaction commits.
+     *
+     * @param event the registration event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPatientRegistered(PatientRegisteredEvent event) {
+        index(new PatientSuggestion(
+                event.patient().getId(),
+                event.patient().getMrn(),
+                event.patient().getFullName(),
+                event.patient().getMobileNumber()));
+    }
+
+    /**
+     * Suggests patients whose mobile number, MRN or name words start with the typed text.
+     * Multi-word queries (e.g., "ali kha") match patients having a word starting with each term.
+     *
+     * @param query the text typed so far
+     * @param limit the maximum number of suggestions (clamped to 1..MAX_LIMIT)
+     * @return matching patients, most recently registered first
+     */
+    public List<PatientSuggestion> suggest(String query, int limit) {
+        // 1. Normalize the query the same way the keys were normalized
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        int max = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        synchronized (this) {
+            // 2. The term with the fewest patients beneath it is the most selective; its cached IDs are the candidates
+            String lead = terms.get(0);
+            for (String term : terms) {
+                if (trie.count(term) < trie.count(lead)) {
+                    lead = term;
+                }
+            }
+
+            long[] candidates = trie.top(lead, NODE_CAPACITY);
+            List<PatientSuggestion> result = new ArrayList<>(max);
+            for (long id : candidates) {
+                PatientSuggestion patient = patients.get(id);
+
+                // 3. Every other term must also prefix one of the patient's keys
+                if (patient != null && matchesAll(patient, terms)) {
+                    result.add(patient);
+                    if (result.size() == max) {
+                        return result;
+                    }
+                }
+            }
+
+            // 4. A full cache may have cut off older matches: check every patient under the lead term
+            if (terms.size() > 1 && candidates.length == NODE_CAPACITY) {
+                return matchSubtree(lead, terms, max);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the number of patients currently held in memory.
+     *
+     * @return the patient count
+     */
+    public synchronized int size() {
+        return patients.size();
+    }
+
+    private synchronized void index(PatientSuggestion patient) {
+        patients.put(patient.id(), patient);
+        for (String key : keys(patient)) {
+            trie.add(key, patient.id());
+        }
+    }
+
+    // Newest patients with a key under the lead term that also match every other term
+    private List<PatientSuggestion> matchSubtree(String lead, List<String> terms, int max) {
+        Set<Long> seen = new HashSet<>();
+        List<PatientSuggestion> matches = new ArrayList<>();
+        trie.forEach(lead, id -> {
+            PatientSuggestion patient = patients.get(id);
+            if (seen.add(id) && patient != null && matchesAll(patient, terms)) {
+                matches.add(patient);
+            }
+        });
+        matches.sort(Comparator.comparingLong(PatientSuggestion::id).reversed());
+        return matches.size() > max ? new ArrayList<>(matches.subList(0, max)) : matches;
+    }
+
+    private static boolean matchesAll(PatientSuggestion patient, List<String> terms) {
+        List<String> own = keys(patient);
+        for (String term : terms) {
+            boolean found = false;
+            for (String key : own) {
+                if (key.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> keys(PatientSuggestion patient) {
+        Set<String> keys = new LinkedHashSet<>(terms(patient.fullName()));
+        String mobile = normalizeMobile(patient.mobileNumber());
+        if (!mobile.isEmpty()) {
+            keys.add(mobile);
+        }
+        String mrnDigits = digitsOf(patient.mrn());
+        if (!mrnDigits.isEmpty()) {
+            keys.add(mrnDigits);
+        }
+        return new ArrayList<>(keys);
+    }
+
+    // Splits text into lowercase words; a word that is a phone number or MRN (digits plus "+-" only) is kept whole
+    private static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String word : text.trim().toLowerCase().split("\\s+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (word.matches("[0-9+\\-()]+")) {
+                String digits = normalizeMobile(word);
+                if (!digits.isEmpty()) {
+                    terms.add(digits);
+                }
+            } else {
+                for (String token : word.split("[^\\p{L}\\p{N}]+")) {
+                    if (!token.isEmpty()) {
+                        terms.add(token);
+                    }
+                }
+            }
+        }
+        return terms;
+    }
+
+    // Local format for Pakistani mobiles: +92 300..., 0092 300... and 92300... all become 0300...
+    private static String normalizeMobile(String raw) {
+        if (raw == null) {
+            return "";
+        }
+        String trimmed = raw.trim();
+        String digits = digitsOf(trimmed);
+        if (trimmed.startsWith("+92")) {
+            return "0" + digits.substring(2);
+        }
+        if (digits.startsWith("0092")) {
+            return "0" + digits.substring(4);
+        }
+        if (digits.startsWith("92") && digits.length() == 12) {
+            return "0" + digits.substring(2);
+        }
+        return digits;
+    }
+
+    private static String digitsOf(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Service for handling inventory purchases and supplier ledger updates.
@@ -18,6 +20,7 @@ public class PurchaseService {
     private final InventoryItemRepository inventoryRepo;
     private final SupplierRepository supplierRepo;
     private final SupplierLedgerRepository ledgerRepo;
+    private final InventoryJournalService journal;
 
     /**
      * Constructs a PurchaseService with the required repositories.
@@ -25,12 +28,14 @@ public class PurchaseService {
      * @param inventoryRepo repository for inventory items
      * @param supplierRepo repository for suppliers
      * @param ledgerRepo repository for supplier ledger entries
+     * @param journal the append-only inventory journal
      */
     public PurchaseService(InventoryItemRepository inventoryRepo, SupplierRepository supplierRepo,
-            SupplierLedgerRepository ledgerRepo) {
+            SupplierLedgerRepository ledgerRepo, InventoryJournalService journal) {
         this.inventoryRepo = inventoryRepo;
         this.supplierRepo = supplierRepo;
         this.ledgerRepo = ledgerRepo;
+        this.journal = journal;
     }
 
     /**
@@ -54,13 +59,16 @@ public class PurchaseService {
 
         Supplier supplier = supplierRepo.findById(request.supplierId()).orElseThrow();
         double totalBill = 0.0;
+        Map<Long, Double> received = new HashMap<>();
 
         // 1. Process Each Item
         for (PurchaseItemDTO itemDto : request.items()) {
             InventoryItem stockItem = inventoryRepo.findById(itemDto.itemId()).orElseThrow();
 
             // --- THE WAC MATH ---
-            double oldStock = stockItem.getCurrentStock() != null ? stockItem.getCurrentStock() : 0.0;
+            // Available stock is derived from the journal (plus any earlier line for the same item)
+            double oldStock = (stockItem.getAvailableStock() != null ? stockItem.getAvailableStock() : 0.0)
+                    + received.getOrDefault(stockItem.getId(), 0.0);
             double oldCost = stockItem.getAverageCost() != null ? stockItem.getAverageCost() : 0.0;
             double oldTotalValue = oldStock * oldCost;
 
@@ -75,7 +83,8 @@ public class PurchaseService {
             double newAverageCost = (finalQty > 0) ? (finalValue / finalQty) : newCost;
 
             // --- UPDATE DB ---
-            stockItem.setCurrentStock(finalQty);
+            // Stock goes into the journal; only the cost lives on the item row
+            received.merge(stockItem.getId(), newQty, Double::sum);
             stockItem.setAverageCost(newAverageCost);
 
             // Optional: Set Preferred Supplier if not set
@@ -88,6 +97,9 @@ public class PurchaseService {
             totalBill += newTotalValue;
         }
 
+        journal.record(received, "PURCHASE", "Purchase"
+                + (request.invoiceNumber().isEmpty() ? "" : " (Inv: " + request.invoiceNumber() + ")"));
+
         // 2. Create Financial Ledger Entry
         SupplierLedger ledger = new SupplierLedger();
         ledger.setSupplier(supplier);
@@ -0,0 +1,330 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.LeveyJenningsChart;
+import com.qdc.lims.entity.QcControl;
+import com.qdc.lims.entity.QcRun;
+import com.qdc.lims.entity.TestDefinition;
+import com.qdc.lims.repository.QcControlRepository;
+import com.qdc.lims.repository.QcRunRepository;
+import com.qdc.lims.repository.TestDefinitionRepository;
+import com.qdc.lims.util.WestgardWindow;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service for quality control: records control runs and evaluates the Westgard multirules.
+ * <p>
+ * Each control keeps its last ten SDIs in an in-memory WestgardWindow (refilled from the
+ * database once, on first use), and its running mean/SD are updated incrementally (Welford)
+ * on the control row. Recording a run is therefore a constant amount of work, however long
+ * the control's history is. When a rejection rule fires, the test is put on hold:
+ * auto-verification sends its results to review and manual release is refused until a
+ * later run of the same control is accepted or the control is reset.
+ */
+@Service
+public class QcService implements ApplicationRunner {
+
+    // Running statistics are only trusted as a baseline once this many runs are in
+    private static final int MIN_BASELINE_RUNS = 20;
+    private static final int MAX_CHART_POINTS = 500;
+    private static final LocalDateTime NEVER_RESET = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final QcControlRepository controlRepo;
+    private final QcRunRepository runRepo;
+    private final TestDefinitionRepository testRepo;
+
+    private final Map<Long, WestgardWindow> windows = new ConcurrentHashMap<>();
+    // testId -> (controlId -> hold reason) for every control whose last run was rejected
+    private final Map<Long, Map<Long, String>> holds = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a QcService with the required repositories.
+     *
+     * @param controlRepo repository for control materials
+     * @param runRepo repository for control runs
+     * @param testRepo repository used to attach new controls to their test
+     */
+    public QcService(QcControlRepository controlRepo, QcRunRepository runRepo, TestDefinitionRepository testRepo) {
+        this.controlRepo = controlRepo;
+        this.runRepo = runRepo;
+        this.testRepo = testRepo;
+    }
+
+    /**
+     * Restores the holds of controls that were rejected before the last shutdown.
+     *
+     * @param args application arguments (unused)
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        List<QcControl> rejected = controlRepo.findByRejectedTrue();
+        for (QcControl control : rejected) {
+            hold(control);
+        }
+        if (!rejected.isEmpty()) {
+            System.out.println("⚠️ QC: " + rejected.size() + " rejected control(s) holding results");
+        }
+    }
+
+    /**
+     * Adds a control material to a test.
+     *
+     * @param control the control (test.id, level, lot and optional target mean/SD)
+     * @return the saved control
+     */
+    @Transactional
+    public QcControl createControl(QcControl control) {
+        if (control.getTest() == null || control.getTest().getId() == null) {
+            throw new RuntimeException("A QC control needs a test");
+        }
+        TestDefinition test = testRepo.findById(control.getTest().getId())
+                .orElseThrow(() -> new RuntimeException("Test not found"));
+        if (control.getTargetSd() != null && control.getTargetSd() <= 0) {
+            throw new RuntimeException("Target SD must be greater than zero");
+        }
+
+        control.setId(null);
+        control.setTest(test);
+        control.setRunCount(0L);
+        control.setRunningMean(null);
+        control.setRunningM2(null);
+        control.setRejected(null);
+        control.setLastViolation(null);
+        control.setResetAt(null);
+        return controlRepo.save(control);
+    }
+
+    /**
+     * Records a control measurement and evaluates the Westgard rules for it.
+     *
+     * @param controlId the ID of the control that was measured
+     * @param value the measured value
+     * @return the saved run, with its SDI and violations
+     */
+    @Transactional
+    public QcRun recordRun(Long controlId, Double value) {
+        if (value == null || !Double.isFinite(value)) {
+            throw new RuntimeException("A QC run needs a numeric value");
+        }
+
+        // 1. Lock the control so its runs are scored one at a time
+        QcControl control = controlRepo.findByIdForUpdate(controlId)
+                .orElseThrow(() -> new RuntimeException("QC control not found"));
+        if (!control.isActive()) {
+            throw new RuntimeException("QC control #" + controlId + " is inactive");
+        }
+        WestgardWindow window = windows.computeIfAbsent(controlId, id -> loadWindow(control));
+        evictOnRollback(controlId);
+
+        synchronized (window) {
+            // 2. Score against the assigned target, or the running baseline once it is established
+            Double sdi = sdi(control, value);
+
+            // 3. Evaluate the rules on the window (constant work: at most ten values)
+            Set<WestgardWindow.Rule> violations = sdi != null ? window.add(sdi) : Set.of();
+            boolean rejected = violations.stream().anyMatch(WestgardWindow.Rule::isRejection);
+            StringJoiner codes = new StringJoiner(", ");
+            for (WestgardWindow.Rule rule : violations) {
+                codes.add(rule.code());
+            }
+
+            // 4. Fold the value into the running mean/SD (Welford)
+            long n = control.getRunCount() == null ? 1 : control.getRunCount() + 1;
+            double mean = control.getRunningMean() == null ? 0 : control.getRunningMean();
+            double m2 = control.getRunningM2() == null ? 0 : control.getRunningM2();
+            double delta = value - mean;
+            mean += delta / n;
+            m2 += delta * (value - mean);
+            control.setRunCount(n);
+            control.setRunningMean(mean);
+            control.setRunningM2(m2);
+
+            // 5. Save the run and the control's new state
+            QcRun run = new QcRun();
+            run.setControl(control);
+            run.setValue(value);
+            run.setSdi(sdi);
+            run.setViolations(violations.isEmpty() ? null : codes.toString());
+            run.setRejected(rejected);
+            run.setPerformedBy(SecurityContextHolder.getContext().getAuthentication().getName());
+            run.setRunAt(LocalDateTime.now());
+
+            control.setRejected(rejected);
+            control.setLastViolation(run.getViolations());
+            QcRun saved = runRepo.save(run);
+            afterCommit(() -> {
+                if (rejected) {
+                    hold(control);
+                } else {
+                    release(control);
+                }
+            });
+
+            if (rejected) {
+                System.out.println("❌ QC REJECTED: " + describe(control) + " (" + codes + ")");
+            }
+            return saved;
+        }
+    }
+
+    /**
+     * Restarts a control's rule window after corrective action (recalibration, new reagent)
+     * and lifts its hold. Running statistics are kept.
+     *
+     * @param controlId the ID of the control
+     */
+    @Transactional
+    public void resetControl(Long controlId) {
+        QcControl control = controlRepo.findByIdForUpdate(controlId)
+                .orElseThrow(() -> new RuntimeException("QC control not found"));
+        control.setResetAt(LocalDateTime.now());
+        control.setRejected(false);
+        control.setLastViolation(null);
+        afterCommit(() -> {
+            windows.remove(controlId);
+            release(control);
+        });
+    }
+
+    /**
+     * Tells whether QC currently blocks releasing results of a test.
+     *
+     * @param testId the ID of the test
+     * @return null if the test may be released, otherwise the reason it is on hold
+     */
+    public String holdReason(Long testId) {
+        Map<Long, String> controls = holds.get(testId);
+        if (controls == null || controls.isEmpty()) {
+            return null;
+        }
+        return controls.values().iterator().next();
+    }
+
+    /**
+     * Builds the Levey-Jennings chart data of a control from its stored statistics and latest runs.
+     *
+     * @param controlId the ID of the control
+     * @param limit the number of most recent runs to plot
+     * @return the chart data
+     */
+    @Transactional(readOnly = true)
+    public LeveyJenningsChart chart(Long controlId, int limit) {
+        QcControl control = controlRepo.findById(controlId)
+                .orElseThrow(() -> new RuntimeException("QC control not found"));
+        int size = Math.max(1, Math.min(limit, MAX_CHART_POINTS));
+
+        List<QcRun> runs = new ArrayList<>(runRepo.findByControlIdOrderByRunAtDescIdDesc(controlId,
+                PageRequest.of(0, size)));
+        Collections.reverse(runs);
+        List<LeveyJenningsChart.Point> points = new ArrayList<>(runs.size());
+        for (QcRun run : runs) {
+            points.add(new LeveyJenningsChart.Point(run.getId(), run.getRunAt(), run.getValue(), run.getSdi(),
+                    run.getViolations(), run.isRejected()));
+        }
+
+        Double runningSd = runningSd(control);
+        boolean hasTarget = hasTarget(control);
+        return new LeveyJenningsChart(control.getId(), control.getTest().getTestName(), control.getLevel(),
+                control.getLotNumber(),
+                hasTarget ? control.getTargetMean() : control.getRunningMean(),
+                hasTarget ? control.getTargetSd() : runningSd,
+                control.getRunningMean(), runningSd,
+                control.getRunCount() == null ? 0 : control.getRunCount(),
+                points);
+    }
+
+    private Double sdi(QcControl control, double value) {
+        if (hasTarget(control)) {
+            return (value - control.getTargetMean()) / control.getTargetSd();
+        }
+        Double sd = runningSd(control);
+        if (control.getRunCount() == null || control.getRunCount() < MIN_BASELINE_RUNS || sd == null || sd == 0) {
+            return null; // Still establishing the baseline; the run only feeds the statistics
+        }
+        return (value - control.getRunningMean()) / sd;
+    }
+
+    private static boolean hasTarget(QcControl control) {
+        return control.getTargetMean() != null && control.getTargetSd() != null && control.getTargetSd() > 0;
+    }
+
+    private static Double runningSd(QcControl control) {
+        if (control.getRunCount() == null || control.getRunCount() < 2 || control.getRunningM2() == null) {
+            return null;
+        }
+        return Math.sqrt(control.getRunningM2() / (control.getRunCount() - 1));
+    }
+
+    // Refills the window with the control's last ten scored runs since its reset, oldest first
+    private WestgardWindow loadWindow(QcControl control) {
+        LocalDateTime since = control.getResetAt() != null ? control.getResetAt() : NEVER_RESET;
+        List<QcRun> latest = runRepo.findScoredSince(control.getId(), since,
+                PageRequest.of(0, WestgardWindow.CAPACITY));
+        WestgardWindow window = new WestgardWindow();
+        for (int i = latest.size() - 1; i >= 0; i--) {
+            window.add(latest.get(i).getSdi());
+        }
+        return window;
+    }
+
+    private void hold(QcControl control) {
+        String reason = "QC rejected (" + control.getLastViolation() + ") on " + describe(control);
+        holds.computeIfAbsent(control.getTest().getId(), id -> new ConcurrentHashMap<>())
+                .put(control.getId(), reason);
+    }
+
+    private void release(QcControl control) {
+        Map<Long, String> controls = holds.get(control.getTest().getId());
+        if (controls != null) {
+            controls.remove(control.getId());
+        }
+    }
+
+    private static String describe(QcControl control) {
+        return control.getTest().getTestName() + " " + (control.getLevel() != null ? control.getLevel() : "control")
+                + (control.getLotNumber() != null ? " (lot " + control.getLotNumber() + ")" : "");
+    }
+
+    // The in-memory window already holds the new value; if the run is rolled back, reload it from the database
+    private void evictOnRollback(Long controlId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        windows.remove(controlId);
+                    }
+                }
+            });
+        }
+    }
+
+    // Holds change only once the run is committed, so a rolled-back run never blocks or releases anything
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.TestConsumption;
+import com.qdc.lims.repository.TestConsumptionRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory cache of test consumption recipes, keyed by test ID.
+ * Each recipe is loaded from the database once and only reloaded when the recipe
+ * is edited through the recipe manager, so booking an order does not query
+ * the recipe table for every test.
+ */
+@Service
+public class RecipeCache {
+
+    private final TestConsumptionRepository consumptionRepo;
+
+    private final Map<Long, Recipe> recipes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a RecipeCache with the specified TestConsumptionRepository.
+     *
+     * @param consumptionRepo repository for test consumption recipes
+     */
+    public RecipeCache(TestConsumptionRepository consumptionRepo) {
+        this.consumptionRepo = consumptionRepo;
+    }
+
+    /**
+     * Returns the recipe for a test, loading it from the database on first access.
+     *
+     * @param testId the ID of the test
+     * @return the cached recipe (never null, possibly empty)
+     */
+    public Recipe getRecipe(Long testId) {
+        return recipes.computeIfAbsent(testId, this::load);
+    }
+
+    /**
+     * Reloads the recipe for a test after its ingredients have changed.
+     *
+     * @param testId the ID of the test whose recipe was modified
+     */
+    public void refresh(Long testId) {
+        recipes.put(testId, load(testId));
+    }
+
+    private Recipe load(Long testId) {
+        List<TestConsumption> rows = consumptionRepo.findByTestId(testId);
+
+        long[] itemIds = new long[rows.size()];
+        double[] quantities = new double[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            TestConsumption row = rows.get(i);
+            itemIds[i] = row.getItem().getId();
+            quantities[i] = row.getQuantity() != null ? row.getQuantity() : 0.0;
+        }
+        return new Recipe(itemIds, quantities);
+    }
+
+    /**
+     * Immutable recipe of a single test: parallel arrays of inventory item IDs and
+     * the quantity of each item consumed per test.
+     */
+    public static final class Recipe {
+
+        private final long[] itemIds;
+        private final double[] quantities;
+
+        private Recipe(long[] itemIds, double[] quantities) {
+            this.itemIds = itemIds;
+            this.quantities = quantities;
+        }
+
+        /**
+         * @return the number of ingredients in this recipe
+         */
+        public int size() {
+            return itemIds.length;
+        }
+
+        /**
+         * @param index the ingredient position
+         * @return the inventory item ID of the ingredient
+         */
+        public long itemId(int index) {
+            return itemIds[index];
+        }
+
+        /**
+         * @param index the ingredient position
+         * @return the quantity consumed per test
+         */
+        public double quantity(int index) {
+            return quantities[index];
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.ReferenceRange;
+import com.qdc.lims.entity.TestDefinition;
+import com.qdc.lims.repository.ReferenceRangeRepository;
+import com.qdc.lims.util.ResultValueParser;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of compiled reference ranges, keyed by test ID.
+ * Each test's ReferenceRange rows are compiled once into immutable, age-sorted interval
+ * tables (one per gender) and looked up with a binary search, so flagging a result does
+ * not load the ranges collection or compare gender strings per rule. Entries are dropped
+ * whenever the ranges or the test definition change and recompiled on next use.
+ * <p>
+ * Rule precedence for a patient: a rule for their own gender, then a "Both" rule (earlier
+ * rules win among equals), then the test's legacy minRange/maxRange.
+ */
+@Service
+public class ReferenceRangeIndex {
+
+    private final ReferenceRangeRepository rangeRepo;
+
+    private final Map<Long, Ranges> compiled = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a ReferenceRangeIndex with the specified ReferenceRangeRepository.
+     *
+     * @param rangeRepo repository for reference ranges
+     */
+    public ReferenceRangeIndex(ReferenceRangeRepository rangeRepo) {
+        this.rangeRepo = rangeRepo;
+    }
+
+    /**
+     * Finds the reference band that applies to a patient for a test.
+     *
+     * @param test the test definition
+     * @param gender the patient's gender ("Male", "Female" or anything else)
+     * @param age the patient's age in years (null means only the legacy range applies)
+     * @return the applicable band (Band.NONE if the test has no usable range)
+     */
+    public Band find(TestDefinition test, String gender, Integer age) {
+        return compiled.computeIfAbsent(test.getId(), id -> compile(test)).find(gender, age);
+    }
+
+    /**
+     * Drops the compiled ranges of a test after its ranges or limits have changed.
+     *
+     * @param testId the ID of the modified test
+     */
+    public void refresh(Long testId) {
+        if (testId != null) {
+            compiled.remove(testId);
+        }
+    }
+
+    private Ranges compile(TestDefinition test) {
+        List<ReferenceRange> male = new ArrayList<>();
+        List<ReferenceRange> female = new ArrayList<>();
+        List<ReferenceRange> both = new ArrayList<>();
+        for (ReferenceRange rule : rangeRepo.findByTestIdOrderByIdAsc(test.getId())) {
+            String gender = rule.getGender() == null ? "Both" : rule.getGender();
+            if (gender.equalsIgnoreCase("Male")) {
+                male.add(rule);
+            } else if (gender.equalsIgnoreCase("Female")) {
+                female.add(rule);
+            } else {
+                both.add(rule);
+            }
+        }
+
+        Band legacy = (test.getMinRange() != null || test.getMaxRange() != null)
+                ? new Band(test.getMinRange(), test.getMaxRange())
+                : Band.NONE;
+
+        return new Ranges(
+                AgeTable.build(concat(male, both)),
+                AgeTable.build(concat(female, both)),
+                AgeTable.build(both),
+                legacy);
+    }
+
+    private static List<ReferenceRange> concat(List<ReferenceRange> first, List<ReferenceRange> second) {
+        List<ReferenceRange> all = new ArrayList<>(first.size() + second.size());
+        all.addAll(first);
+        all.addAll(second);
+        return all;
+    }
+
+    /**
+     * Compiled ranges of one test: an age table per gender plus the legacy fallback.
+     */
+    private static final class Ranges {
+
+        private final AgeTable male;
+        private final AgeTable female;
+        private final AgeTable other;
+        private final Band legacy;
+
+        private Ranges(AgeTable male, AgeTable female, AgeTable other, Band legacy) {
+            this.male = male;
+            this.female = female;
+            this.other = other;
+            this.legacy = legacy;
+        }
+
+        Band find(String gender, Integer age) {
+            if (age == null) {
+                return legacy;
+            }
+            AgeTable table = "Male".equalsIgnoreCase(gender) ? male
+                    : "Female".equalsIgnoreCase(gender) ? female
+                    : other;
+            Band band = table.find(age);
+            return band != null ? band : legacy;
+        }
+    }
+
+    /**
+     * Non-overlapping, sorted age intervals [from[i], to[i]] (inclusive) and their bands.
+     */
+    private static final class AgeTable {
+
+        private static final AgeTable EMPTY = new AgeTable(new int[0], new int[0], new Band[0]);
+
+        private final int[] from;
+        private final int[] to;
+        private final Band[] bands;
+
+        private AgeTable(int[] from, int[] to, Band[] bands) {
+            this.from = from;
+            this.to = to;
+            this.bands = bands;
+        }
+
+        /**
+         * Resolves overlapping rules into disjoint intervals. Rules are given in priority
+         * order; each elementary age segment takes the band of the first rule covering it.
+         */
+        static AgeTable build(List<ReferenceRange> rules) {
+            if (rules.isEmpty()) {
+                return EMPTY;
+            }
+
+            // 1. Every rule boundary starts a new elementary segment
+            int[] mins = new int[rules.size()];
+            int[] maxs = new int[rules.size()];
+            Band[] ruleBands = new Band[rules.size()];
+            TreeSet<Long> cuts = new TreeSet<>();
+            for (int i = 0; i < rules.size(); i++) {
+                ReferenceRange rule = rules.get(i);
+                mins[i] = rule.getMinAge() != null ? rule.getMinAge() : 0;
+                maxs[i] = rule.getMaxAge() != null ? rule.getMaxAge() : Integer.MAX_VALUE;
+                ruleBands[i] = new Band(rule.getMinVal(), rule.getMaxVal());
+                cuts.add((long) mins[i]);
+                cuts.add((long) maxs[i] + 1);
+            }
+
+            // 2. Assign each segment to its highest-priority rule, merging neighbours with the same rule
+            List<int[]> intervals = new ArrayList<>();
+            List<Band> bands = new ArrayList<>();
+            int lastRule = -1;
+            Long[] points = cuts.toArray(new Long[0]);
+            for (int s = 0; s + 1 < points.length; s++) {
+                int start = points[s].intValue();
+                int end = (int) (points[s + 1] - 1);
+                int owner = -1;
+                for (int i = 0; i < mins.length; i++) {
+                    if (mins[i] <= start && maxs[i] >= end) {
+                        owner = i;
+                        break;
+                    }
+                }
+                if (owner < 0) {
+                    lastRule = -1;
+                    continue;
+                }
+                if (owner == lastRule) {
+                    intervals.get(intervals.size() - 1)[1] = end;
+                } else {
+                    intervals.add(new int[] { start, end });
+                    bands.add(ruleBands[owner]);
+                }
+                lastRule = owner;
+            }
+
+            int[] from = new int[intervals.size()];
+            int[] to = new int[intervals.size()];
+            for (int i = 0; i < intervals.size(); i++) {
+                from[i] = intervals.get(i)[0];
+                to[i] = intervals.get(i)[1];
+            }
+            return new AgeTable(from, to, bands.toArray(new Band[0]));
+        }
+
+        Band find(int age) {
+            // Binary search for the last interval starting at or before the age
+            int lo = 0;
+            int hi = from.length - 1;
+            int hit = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (from[mid] <= age) {
+                    hit = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return (hit >= 0 && age <= to[hit]) ? bands[hit] : null;
+        }
+    }
+
+    /**
+     * Immutable normal range for one patient group. A missing limit means "no limit".
+     */
+    public static final class Band {
+
+        /**
+         * Band used when a test has no applicable range; never flags a value.
+         */
+        public static final Band NONE = new Band(null, null);
+
+        private final double low;
+        private final double high;
+        private final boolean defined;
+
+        private Band(Double low, Double high) {
+            this.low = low != null ? low : Double.NEGATIVE_INFINITY;
+            this.high = high != null ? high : Double.POSITIVE_INFINITY;
+            this.defined = low != null || high != null;
+        }
+
+        /**
+         * @param kind NUMERIC, or BELOW/ABOVE for a censored result
+         * @param value the numeric result (the limit of a censored result)
+         * @return "LOW", "HIGH" or "Normal" ("" if this band defines no limits, or if a censored
+         *         result may lie on either side of a limit)
+         */
+        public String flag(ResultValueParser.Kind kind, double value) {
+            if (!defined) {
+                return "";
+            }
+            if (ResultValueParser.isBelow(kind, value, low)) {
+                return "LOW";
+            }
+            if (ResultValueParser.isAbove(kind, value, high)) {
+                return "HIGH";
+            }
+            return kind == ResultValueParser.Kind.NUMERIC ? "Normal" : "";
+        }
+
+        /**
+         * @param kind NUMERIC, or BELOW/ABOVE for a censored result
+         * @param value the numeric result (the limit of a censored result)
+         * @return true if the value certainly lies outside this band
+         */
+        public boolean isAbnormal(ResultValueParser.Kind kind, double value) {
+            return ResultValueParser.isBelow(kind, value, low) || ResultValueParser.isAbove(kind, value, high);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.LabOrder;
+import com.qdc.lims.repository.LabOrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Write-once archive of delivered reports (lims.reports.archive-dir), named by content hash.
+ * <p>
+ * Results are locked once a report is delivered, so its PDF is rendered exactly once, hashed with
+ * SHA-256 while it is written, and stored as ab/&lt;sha256&gt;.pdf. The hash is recorded in
+ * LabOrder.reportHash and doubles as the strong ETag. Every render carries its own creation date
+ * and document ID, so each order gets its own file; files are never rewritten, and reprints are
+ * served straight from disk without touching the renderer.
+ */
+@Service
+public class ReportArchiveService {
+
+    // Number of lock stripes; orders sharing a stripe only wait for each other's first render
+    private static final int LOCK_STRIPES = 64;
+
+    private final ReportService reportService;
+    private final LabOrderRepository orderRepo;
+    private final Path root;
+
+    // One render per order at a time; concurrent first requests wait for the same archive.
+    // The stripes are never removed, so every caller of an order always meets the same monitor.
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * Constructs a ReportArchiveService.
+     *
+     * @param reportService renderer for the PDF
+     * @param orderRepo repository used to read and record report hashes
+     * @param archiveDir root folder of the archive
+     */
+    public ReportArchiveService(ReportService reportService, LabOrderRepository orderRepo,
+            @Value("${lims.reports.archive-dir:report-archive}") String archiveDir) {
+        this.reportService = reportService;
+        this.orderRepo = orderRepo;
+        this.root = Path.of(archiveDir).toAbsolutePath();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Archives the report of a delivered order, unless it is archived already.
+     *
+     * @param orderId the ID of the delivered order
+     * @return the archived report
+     */
+    public ArchivedReport archive(Long orderId) {
+        synchronized (locks[Math.floorMod(orderId.hashCode(), LOCK_STRIPES)]) {
+            // 1. Already archived (and still on disk)? Nothing to render.
+            LabOrder order = orderRepo.findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
+            if (!order.isReportDelivered()) {
+                throw new RuntimeException("Only delivered reports are archived (order #" + orderId + ").");
+            }
+            Optional<ArchivedReport> existing = locate(order.getReportHash());
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+
+            // 2. Render once into a temp file, hashing the bytes as they are written
+            ArchivedReport archived = store(reportService.loadOrder(orderId));
+
+            // 3. Remember the hash on the order
+            orderRepo.updateReportHash(orderId, archived.hash());
+            System.out.println("✅ Report #" + orderId + " archived as " + archived.hash());
+            return archived;
+        }
+    }
+
+    /**
+     * Finds the archived report of an order, archiving it first if it was delivered before the
+     * archive existed (or its file went missing).
+     *
+     * @param orderId the ID of the order
+     * @return the archived report, or empty if the order has not been delivered
+     */
+    public Optional<ArchivedReport> find(Long orderId) {
+        LabOrder order = orderRepo.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (!order.isReportDelivered()) {
+            return Optional.empty();
+        }
+        Optional<ArchivedReport> existing = locate(order.getReportHash());
+        return existing.isPresent() ? existing : Optional.of(archive(orderId));
+    }
+
+    private Optional<ArchivedReport> locate(String hash) {
+        if (hash == null) {
+            return Optional.empty();
+        }
+        Path file = pathOf(hash);
+        return Files.isRegularFile(file) ? Optional.of(new ArchivedReport(hash, file)) : Optional.empty();
+    }
+
+    private ArchivedReport store(LabOrder order) {
+        Path temp = null;
+        try {
+            Files.createDirectories(root);
+            temp = Files.createTempFile(root, "render-", ".tmp");
+
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (OutputStream out = new DigestOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)), sha256)) {
+                reportService.renderPdf(order, out);
+            }
+            String hash = HexFormat.of().formatHex(sha256.digest());
+
+            // Write-once: a file already stored under this hash is never replaced
+            Path target = pathOf(hash);
+            if (Files.exists(target)) {
+                Files.delete(temp);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                target.toFile().setReadOnly();
+            }
+            return new ArchivedReport(hash, target);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not archive report #" + order.getId() + ": " + e.getMessage(), e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Best effort; a stray temp file is harmless
+                }
+            }
+        }
+    }
+
+    // Two-character fan-out keeps directories small: ab/abcdef....pdf
+    private Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash + ".pdf");
+    }
+
+    /**
+     * An archived report file.
+     *
+     * @param hash the SHA-256 of the file (hex), used as its strong ETag
+     * @param file the file on disk
+     */
+    public record ArchivedReport(String hash, Path file) {
+    }
+}
@@ -0,0 +1,230 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.ReportJob;
+import com.qdc.lims.repository.LabOrderRepository;
+import com.qdc.lims.repository.ReportJobRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous PDF report queue: a request enqueues a ReportJob and gets its ID back at once; a
+ * dedicated pool (lims.reports.jobs.threads) renders it, and the client polls the job and
+ * downloads the PDF once it is DONE.
+ * <p>
+ * Web threads never wait on a render, so a burst of report requests cannot starve bookings of
+ * Tomcat threads. A worker uses a database connection only to load the order (one query) and to
+ * update the job row. Jobs live in the report_jobs table, so queued and interrupted jobs are
+ * picked up again after a restart. Rendered files and job rows are purged after
+ * lims.reports.jobs.retention-hours.
+ */
+@Service
+public class ReportJobService implements ApplicationRunner, DisposableBean {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    private final ReportJobRepository jobRepo;
+    private final LabOrderRepository orderRepo;
+    private final ReportService reportService;
+    private final ReportArchiveService archiveService;
+    private final ExecutorService workers;
+    private final Path jobDir;
+    private final long retentionHours;
+
+    /**
+     * Constructs a ReportJobService.
+     *
+     * @param jobRepo repository for the job rows
+     * @param orderRepo repository used to check that the order exists
+     * @param reportService renderer for the PDFs
+     * @param archiveService archive holding the PDFs of delivered reports
+     * @param threads number of render threads
+     * @param jobDir folder for rendered PDFs
+     * @param retentionHours how long finished jobs and their PDFs are kept
+     */
+    public ReportJobService(ReportJobRepository jobRepo, LabOrderRepository orderRepo,
+            ReportService reportService, ReportArchiveService archiveService,
+            @Value("${lims.reports.jobs.threads:2}") int threads,
+            @Value("${lims.reports.jobs.dir:report-jobs}") String jobDir,
+            @Value("${lims.reports.jobs.retention-hours:24}") long retentionHours) {
+        this.jobRepo = jobRepo;
+        this.orderRepo = orderRepo;
+        this.reportService = reportService;
+        this.archiveService = archiveService;
+        this.jobDir = Path.of(jobDir).toAbsolutePath();
+        this.retentionHours = retentionHours;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "report-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Requeues the jobs left queued or running when the application last stopped.
+     *
+     * @param args application arguments (unused)
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        int interrupted = jobRepo.requeueInterrupted();
+        List<ReportJob> queued = jobRepo.findByStatusOrderByIdAsc(QUEUED);
+        queued.forEach(job -> dispatch(job.getId()));
+        if (!queued.isEmpty()) {
+            System.out.println("🔄 Report queue: " + queued.size() + " job(s) resumed (" + interrupted + " interrupted)");
+        }
+    }
+
+    /**
+     * Queues the report of an order. If the order already has a queued or running job, that job
+     * is returned instead of queuing a second render.
+     *
+     * @param orderId the ID of the order
+     * @return the queued job
+     */
+    public ReportJob enqueue(Long orderId) {
+        // 1. Validate
+        if (!orderRepo.existsById(orderId)) {
+            throw new RuntimeException("Order not found");
+        }
+        Optional<ReportJob> pending = jobRepo.findFirstByOrderIdAndStatusInOrderByIdDesc(orderId,
+                List.of(QUEUED, RUNNING));
+        if (pending.isPresent()) {
+            return pending.get();
+        }
+
+        // 2. Persist first (committed by save), then hand the ID to the workers
+        ReportJob job = new ReportJob();
+        job.setOrderId(orderId);
+        job.setStatus(QUEUED);
+        job.setRequestedBy(SecurityContextHolder.getContext().getAuthentication().getName());
+        job.setCreatedAt(LocalDateTime.now());
+        job = jobRepo.save(job);
+
+        dispatch(job.getId());
+        return job;
+    }
+
+    /**
+     * Returns a job.
+     *
+     * @param jobId the ID of the job
+     * @return the job with its current status
+     */
+    public ReportJob getJob(Long jobId) {
+        return jobRepo.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Report job not found (it may have expired): " + jobId));
+    }
+
+    /**
+     * Returns the rendered PDF of a finished job.
+     *
+     * @param jobId the ID of the job
+     * @return the PDF file
+     */
+    public Path output(Long jobId) {
+        ReportJob job = getJob(jobId);
+        if (!DONE.equals(job.getStatus())) {
+            throw new RuntimeException("Report job " + jobId + " is " + job.getStatus() + ", not ready for download.");
+        }
+        Path file = Path.of(job.getFilePath());
+        if (!Files.isRegularFile(file)) {
+            throw new RuntimeException("The PDF of report job " + jobId + " is gone; please queue the report again.");
+        }
+        return file;
+    }
+
+    /**
+     * Deletes finished jobs past their retention, with their PDFs. Archived reports are left alone.
+     */
+    @Scheduled(fixedDelayString = "${lims.reports.jobs.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        List<ReportJob> expired = jobRepo.findByFinishedAtBefore(LocalDateTime.now().minusHours(retentionHours));
+        for (ReportJob job : expired) {
+            if (job.getFilePath() != null && Path.of(job.getFilePath()).startsWith(jobDir)) {
+                try {
+                    Files.deleteIfExists(Path.of(job.getFilePath()));
+                } catch (IOException e) {
+                    System.out.println("❌ Could not delete " + job.getFilePath() + ": " + e.getMessage());
+                }
+            }
+        }
+        jobRepo.deleteAll(expired);
+    }
+
+    private void dispatch(Long jobId) {
+        workers.execute(() -> process(jobId));
+    }
+
+    // Runs on a worker thread
+    private void process(Long jobId) {
+        // 1. Claim the job (a job is rendered by one worker only)
+        if (jobRepo.claim(jobId, LocalDateTime.now()) == 0) {
+            return;
+        }
+        ReportJob job = getJob(jobId);
+
+        // 2. Render (delivered reports are already in the archive)
+        try {
+            Optional<ReportArchiveService.ArchivedReport> archived = archiveService.find(job.getOrderId());
+            Path file = archived.isPresent() ? archived.get().file() : render(job);
+            job.setFilePath(file.toString());
+            job.setStatus(DONE);
+        } catch (Exception e) {
+            String message = String.valueOf(e.getMessage());
+            job.setError(message.length() > 500 ? message.substring(0, 500) : message);
+            job.setStatus(FAILED);
+            System.out.println("❌ Report job " + jobId + " (order #" + job.getOrderId() + ") failed: " + message);
+        }
+
+        // 3. Record the outcome
+        job.setFinishedAt(LocalDateTime.now());
+        jobRepo.save(job);
+    }
+
+    private Path render(ReportJob job) throws IOException {
+        Files.createDirectories(jobDir);
+        Path target = jobDir.resolve("job-" + job.getId() + ".pdf");
+        Path temp = Files.createTempFile(jobDir, "render-", ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                reportService.renderPdf(reportService.loadOrder(job.getOrderId()), out);
+            }
+            // Appears complete or not at all
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Stops the workers. Jobs they were running stay RUNNING and are requeued on the next start.
+     */
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+}
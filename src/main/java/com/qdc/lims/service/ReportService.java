@@ -2,12 +2,17 @@ package com.qdc.lims.service;
 
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
+import com.qdc.lims.dto.CumulativeReport;
+import com.qdc.lims.dto.CumulativeResultRow;
 import com.qdc.lims.entity.*;
 import com.qdc.lims.repository.LabOrderRepository;
+import com.qdc.lims.util.ReportStyles;
+import com.qdc.lims.util.TrendChart;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.awt.Color;
+import java.io.OutputStream;
+import java.time.format.DateTimeFormatter;
 
 /**
  * Service for generating PDF lab reports for orders.
@@ -15,6 +20,8 @@ import java.awt.Color;
 @Service
 public class ReportService {
 
+    private static final DateTimeFormatter VISIT_DATE = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
+
     private final LabOrderRepository orderRepo;
 
     /**
@@ -27,99 +34,189 @@ public class ReportService {
     }
 
     /**
-     * Generates a PDF report for the specified lab order ID.
+     * Loads an order with everything the report needs, in one query.
+     * Call this on the request thread, so a missing order fails before any bytes are streamed.
      *
      * @param orderId the ID of the lab order
-     * @return a byte array containing the PDF report
+     * @return the order with patient, results and tests initialized
      */
-    public byte[] generatePdfReport(Long orderId) {
-        LabOrder order = orderRepo.findById(orderId)
+    public LabOrder loadOrder(Long orderId) {
+        return orderRepo.findByIdForReport(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
+    }
+
+    /**
+     * Renders the PDF report of an order straight into a stream (e.g., the HTTP response), so no
+     * copy of the document is buffered on the heap. All fonts and the table layout come from the
+     * shared ReportStyles palette; per report, only the document, the table copy and one phrase
+     * per cell are created.
+     *
+     * @param order the order, with patient and results loaded
+     * @param out the stream the PDF is written to (left open)
+     */
+    public void renderPdf(LabOrder order, OutputStream out) {
         Patient patient = order.getPatient();
 
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+        try {
             Document document = new Document(PageSize.A4);
-            PdfWriter.getInstance(document, out);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false); // The caller owns the stream
+            writer.setFullCompression(); // Object and cross-reference streams: smaller files to send and archive
 
             document.open();
 
             // 1. Header (Lab Name)
-            Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 20, Color.BLUE);
-            Paragraph title = new Paragraph("QDC-LIMS PATHOLOGY LAB", titleFont);
+            Paragraph title = new Paragraph("QDC-LIMS PATHOLOGY LAB", ReportStyles.TITLE);
             title.setAlignment(Element.ALIGN_CENTER);
             document.add(title);
             document.add(new Paragraph("\n")); // Space
 
             // 2. Patient Details
-            Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 12);
-            document.add(new Paragraph("Patient Name: " + patient.getFullName(), normalFont));
-            document.add(new Paragraph("MRN: " + patient.getMrn(), normalFont));
-            document.add(new Paragraph("Date: " + order.getOrderDate().toLocalDate(), normalFont));
+            document.add(new Paragraph("Patient Name: " + patient.getFullName(), ReportStyles.NORMAL));
+            document.add(new Paragraph("MRN: " + patient.getMrn(), ReportStyles.NORMAL));
+            document.add(new Paragraph("Date: " + order.getOrderDate().toLocalDate(), ReportStyles.NORMAL));
             document.add(new Paragraph("\n"));
 
-            // 3. Results Table
-            PdfPTable table = new PdfPTable(4); // 4 Columns
-            table.setWidthPercentage(100);
-            table.setWidths(new float[] { 3, 2, 2, 2 }); // Column widths
-
-            // Table Headers
-            addCell(table, "Test Name", true);
-            addCell(table, "Result", true);
-            addCell(table, "Unit", true);
-            addCell(table, "Ref. Range", true);
+            // 3. Results Table (columns, widths and header row come from the template)
+            PdfPTable table = ReportStyles.newResultsTable();
 
             // Table Data
             for (LabResult result : order.getResults()) {
-                addCell(table, result.getTestDefinition().getTestName(), false);
-
-                // Logic: Make Abnormal Results RED
-                Font resultFont = FontFactory.getFont(FontFactory.HELVETICA, 12);
-                if (result.isAbnormal()) {
-                    resultFont.setColor(Color.RED);
-                    resultFont.setStyle(Font.BOLD);
-                }
-                PdfPCell valueCell = new PdfPCell(new Phrase(result.getResultValue(), resultFont));
-                valueCell.setPadding(5);
-                table.addCell(valueCell);
+                TestDefinition test = result.getTestDefinition();
+                table.addCell(new Phrase(test.getTestName(), ReportStyles.NORMAL));
 
-                addCell(table, result.getTestDefinition().getUnit(), false);
+                // Logic: Make Abnormal Results RED (shared bold red font, nothing allocated per row)
+                table.addCell(new Phrase(result.getResultValue(),
+                        result.isAbnormal() ? ReportStyles.ABNORMAL : ReportStyles.NORMAL));
 
-                String range = result.getTestDefinition().getMinRange() + " - "
-                        + result.getTestDefinition().getMaxRange();
-                addCell(table, range, false);
+                table.addCell(new Phrase(test.getUnit(), ReportStyles.NORMAL));
+                table.addCell(new Phrase(test.getMinRange() + " - " + test.getMaxRange(), ReportStyles.NORMAL));
             }
 
             document.add(table);
 
             // 4. Footer
             document.add(new Paragraph("\n\n"));
-            Paragraph footer = new Paragraph("*** End of Report ***",
-                    FontFactory.getFont(FontFactory.HELVETICA_OBLIQUE, 10));
+            Paragraph footer = new Paragraph("*** End of Report ***", ReportStyles.FOOTER);
             footer.setAlignment(Element.ALIGN_CENTER);
             document.add(footer);
 
             document.close();
-            return out.toByteArray();
         } catch (Exception e) {
             throw new RuntimeException("Error generating PDF", e);
         }
     }
 
     /**
-     * Adds a cell to the PDF table with specified text and style.
+     * Renders a cumulative report (one section per test: trend chart, then every result by date)
+     * straight into a stream, with the same palette as the order report.
      *
-     * @param table the PDF table to add the cell to
-     * @param text the text content of the cell
-     * @param isHeader true if the cell is a header cell, false otherwise
+     * @param report the cumulative report
+     * @param out the stream the PDF is written to (left open)
      */
-    private void addCell(PdfPTable table, String text, boolean isHeader) {
-        Font font = isHeader ? FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, Color.WHITE)
-                : FontFactory.getFont(FontFactory.HELVETICA, 12);
-        PdfPCell cell = new PdfPCell(new Phrase(text, font));
-        cell.setPadding(5);
-        if (isHeader) {
-            cell.setBackgroundColor(Color.DARK_GRAY);
+    public void renderCumulativePdf(CumulativeReport report, OutputStream out) {
+        Patient patient = report.patient();
+
+        try {
+            Document document = new Document(PageSize.A4);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false); // The caller owns the stream
+            writer.setFullCompression();
+
+            document.open();
+
+            // 1. Header
+            Paragraph title = new Paragraph("QDC-LIMS CUMULATIVE REPORT", ReportStyles.TITLE);
+            title.setAlignment(Element.ALIGN_CENTER);
+            document.add(title);
+            document.add(new Paragraph("\n"));
+
+            // 2. Patient Details
+            document.add(new Paragraph("Patient Name: " + patient.getFullName(), ReportStyles.NORMAL));
+            document.add(new Paragraph("MRN: " + patient.getMrn(), ReportStyles.NORMAL));
+            document.add(new Paragraph("Results since: "
+                    + (report.since() != null ? report.since().format(VISIT_DATE) : "first visit"), ReportStyles.NORMAL));
+
+            if (report.series().isEmpty()) {
+                document.add(new Paragraph("\nNo released results in this period.", ReportStyles.NORMAL));
+            }
+
+            // 3. One section per test
+            for (CumulativeReport.Series series : report.series()) {
+                Paragraph heading = new Paragraph(series.testName()
+                        + (series.unit() != null ? " (" + series.unit() + ")" : "")
+                        + (series.minRange() != null ? "   Ref. " + series.minRange() + " - " + series.maxRange() : ""),
+                        ReportStyles.SECTION);
+                heading.setSpacingBefore(14);
+                heading.setSpacingAfter(6);
+                document.add(heading);
+
+                TrendChart chart = CumulativeReportService.chart(series);
+                if (chart != null) {
+                    Image image = trendImage(writer, chart);
+                    image.scaleToFit(document.right() - document.left(), TrendChart.HEIGHT);
+                    image.setSpacingAfter(6);
+                    document.add(image);
+                }
+
+                PdfPTable table = ReportStyles.newCumulativeTable();
+                for (CumulativeResultRow row : series.rows()) {
+                    table.addCell(new Phrase(row.performedAt().format(VISIT_DATE), ReportStyles.NORMAL));
+                    table.addCell(new Phrase(row.resultValue(),
+                            row.abnormal() ? ReportStyles.ABNORMAL : ReportStyles.NORMAL));
+                    table.addCell(new Phrase("#" + row.orderId(), ReportStyles.NORMAL));
+                }
+                document.add(table);
+                if (series.omitted() > 0) {
+                    document.add(new Paragraph(series.omitted() + " older " + series.testName()
+                            + " result(s) not shown; choose a later start date to see them.", ReportStyles.FOOTER));
+                }
+            }
+
+            // 4. Footer
+            document.add(new Paragraph("\n\n"));
+            Paragraph footer = new Paragraph("*** End of Report ***", ReportStyles.FOOTER);
+            footer.setAlignment(Element.ALIGN_CENTER);
+            document.add(footer);
+
+            document.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Error generating PDF", e);
+        }
+    }
+
+    // Draws the trend chart as vector graphics (PDF y points up, TrendChart y points down)
+    private Image trendImage(PdfWriter writer, TrendChart chart) throws BadElementException {
+        float width = TrendChart.WIDTH;
+        float height = TrendChart.HEIGHT;
+        PdfTemplate canvas = writer.getDirectContent().createTemplate(width, height);
+
+        // Reference band and frame
+        if (chart.hasBand()) {
+            canvas.setColorFill(ReportStyles.REFERENCE_BAND);
+            canvas.rectangle(0, height - chart.bandBottom(), width, chart.bandBottom() - chart.bandTop());
+            canvas.fill();
+        }
+        canvas.setColorStroke(Color.LIGHT_GRAY);
+        canvas.setLineWidth(0.5f);
+        canvas.rectangle(0, 0, width, height);
+        canvas.stroke();
+
+        // Trend line
+        canvas.setColorStroke(ReportStyles.TREND_LINE);
+        canvas.setLineWidth(1.5f);
+        canvas.moveTo(chart.x(0), height - chart.y(0));
+        for (int i = 1; i < chart.size(); i++) {
+            canvas.lineTo(chart.x(i), height - chart.y(i));
+        }
+        canvas.stroke();
+
+        // Points (abnormal in red)
+        for (int i = 0; i < chart.size(); i++) {
+            canvas.setColorFill(chart.isAbnormal(i) ? Color.RED : ReportStyles.TREND_LINE);
+            canvas.circle(chart.x(i), height - chart.y(i), 2.5f);
+            canvas.fill();
         }
-        table.addCell(cell);
+        return Image.getInstance(canvas);
     }
-}
\ No newline at end of file
+}
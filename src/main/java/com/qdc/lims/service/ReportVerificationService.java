@@ -0,0 +1,230 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.ReportSummary;
+import com.qdc.lims.entity.LabOrder;
+import com.qdc.lims.entity.LabResult;
+import com.qdc.lims.repository.LabOrderRepository;
+import com.qdc.lims.util.QrCodeUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Signed QR codes for printed reports.
+ * <p>
+ * The QR code links to /verify/&lt;token&gt;, where the token is 38 URL-safe characters:
+ * the order ID and a hash of the reported results, signed with HMAC-SHA256 (lims.qr.secret).
+ * Forged or mistyped tokens are rejected from the signature alone, without touching the database.
+ * Genuine tokens get a masked summary, loaded once and then cached for
+ * lims.qr.summary-cache-minutes. The summary also says whether the results changed after the
+ * report was printed. The QR image of a token is rendered once and cached as PNG bytes.
+ */
+@Service
+public class ReportVerificationService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int HASH_BYTES = 8; // Truncated SHA-256 of the results
+    private static final int MAC_BYTES = 12; // Truncated HMAC (96 bits)
+    private static final int PAYLOAD_BYTES = Long.BYTES + HASH_BYTES;
+    private static final int CACHE_SIZE = 1000;
+    private static final int QR_SIZE = 150;
+
+    private final LabOrderRepository orderRepo;
+    private final SecretKeySpec key;
+    private final String baseUrl;
+    private final long summaryCacheMinutes;
+
+    // Small LRU caches keyed by token
+    private final Map<String, ReportSummary> summaries = lruCache();
+    private final Map<String, byte[]> qrImages = lruCache();
+
+    /**
+     * Constructs a ReportVerificationService.
+     *
+     * @param orderRepo repository used to load the summary of a genuine token
+     * @param secret the HMAC secret; required, so printed QR codes keep verifying across restarts
+     * @param baseUrl public address of the application, encoded in the QR codes; required
+     * @param summaryCacheMinutes how long a verified summary is served from memory
+     */
+    public ReportVerificationService(LabOrderRepository orderRepo,
+            @Value("${lims.qr.secret:}") String secret,
+            @Value("${lims.qr.base-url:}") String baseUrl,
+            @Value("${lims.qr.summary-cache-minutes:10}") long summaryCacheMinutes) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException(
+                    "lims.qr.secret is not set. Configure a long random value (e.g. LIMS_QR_SECRET) before starting the LIMS");
+        }
+        if (baseUrl == null || baseUrl.isBlank()) {
+            throw new IllegalStateException(
+                    "lims.qr.base-url is not set. Configure the public address of the LIMS (e.g. LIMS_QR_BASE_URL)");
+        }
+        String url = baseUrl.trim();
+        this.orderRepo = orderRepo;
+        this.baseUrl = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.summaryCacheMinutes = summaryCacheMinutes;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    /**
+     * Creates the signed token of a report.
+     *
+     * @param order the order, with patient and results loaded
+     * @return the URL-safe token
+     */
+    public String tokenFor(LabOrder order) {
+        ByteBuffer token = ByteBuffer.allocate(PAYLOAD_BYTES + MAC_BYTES);
+        token.putLong(order.getId());
+        token.put(contentHash(order));
+        token.put(sign(Arrays.copyOf(token.array(), PAYLOAD_BYTES)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.array());
+    }
+
+    /**
+     * Returns the QR image of a token, rendering it on first use.
+     *
+     * @param token the token
+     * @return the PNG bytes, or empty if the token is not genuine
+     */
+    public Optional<byte[]> qrPng(String token) {
+        // Only genuine tokens are rendered, so the cache cannot be filled with junk
+        if (decode(token) == null) {
+            return Optional.empty();
+        }
+        return Optional.of(qrImages.computeIfAbsent(token,
+                t -> QrCodeUtil.generatePng(baseUrl + "/verify/" + t, QR_SIZE, QR_SIZE)));
+    }
+
+    /**
+     * Verifies a token and returns the summary of its report.
+     *
+     * @param token the token from the QR code
+     * @return the summary, or empty if the token is forged, mistyped or for an unknown order
+     */
+    public Optional<ReportSummary> verify(String token) {
+        // 1. Check the signature (no database access for bad tokens)
+        Claims claims = decode(token);
+        if (claims == null) {
+            return Optional.empty();
+        }
+
+        // 2. Serve a recent summary from memory
+        ReportSummary cached = summaries.get(token);
+        if (cached != null && cached.checkedAt().isAfter(LocalDateTime.now().minusMinutes(summaryCacheMinutes))) {
+            return Optional.of(cached);
+        }
+
+        // 3. Load it once
+        Optional<ReportSummary> summary = orderRepo.findByIdForReport(claims.orderId())
+                .map(order -> summarize(order, claims.contentHash()));
+        summary.ifPresent(s -> summaries.put(token, s));
+        return summary;
+    }
+
+    private ReportSummary summarize(LabOrder order, byte[] printedHash) {
+        return new ReportSummary(
+                order.getId(),
+                maskName(order.getPatient().getFullName()),
+                maskMrn(order.getPatient().getMrn()),
+                order.getOrderDate(),
+                order.getReleasedAt(),
+                order.getResults().size(),
+                MessageDigest.isEqual(printedHash, contentHash(order)),
+                LocalDateTime.now());
+    }
+
+    private Claims decode(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length != PAYLOAD_BYTES + MAC_BYTES) {
+            return null;
+        }
+        byte[] payload = Arrays.copyOf(bytes, PAYLOAD_BYTES);
+        byte[] mac = Arrays.copyOfRange(bytes, PAYLOAD_BYTES, bytes.length);
+        if (!MessageDigest.isEqual(sign(payload), mac)) { // Constant-time comparison
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long orderId = buffer.getLong();
+        byte[] contentHash = new byte[HASH_BYTES];
+        buffer.get(contentHash);
+        return new Claims(orderId, contentHash);
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM); // Not thread-safe, and cheap to create
+            mac.init(key);
+            return Arrays.copyOf(mac.doFinal(payload), MAC_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    // What the report says: patient, tests and values, in a fixed order
+    private static byte[] contentHash(LabOrder order) {
+        StringBuilder content = new StringBuilder()
+                .append(order.getId()).append('|')
+                .append(order.getPatient().getMrn()).append('|');
+        order.getResults().stream()
+                .sorted(Comparator.comparing((LabResult r) -> r.getTestDefinition().getId()))
+                .forEach(r -> content.append(r.getTestDefinition().getId()).append('=')
+                        .append(r.getResultValue()).append(';'));
+        try {
+            byte[] sha256 = MessageDigest.getInstance("SHA-256")
+                    .digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            return Arrays.copyOf(sha256, HASH_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private static String maskName(String fullName) {
+        if (fullName == null) {
+            return "***";
+        }
+        StringBuilder masked = new StringBuilder();
+        for (String word : fullName.trim().split("\\s+")) {
+            if (!word.isEmpty()) {
+                masked.append(masked.isEmpty() ? "" : " ").append(word.charAt(0)).append("***");
+            }
+        }
+        return masked.toString();
+    }
+
+    private static String maskMrn(String mrn) {
+        if (mrn == null || mrn.length() <= 3) {
+            return "***";
+        }
+        return "*".repeat(mrn.length() - 3) + mrn.substring(mrn.length() - 3);
+    }
+
+    private static <V> Map<String, V> lruCache() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        });
+    }
+
+    private record Claims(long orderId, byte[] contentHash) {
+    }
+}
@@ -1,17 +1,31 @@
 package com.qdc.lims.service;
 
+import com.qdc.lims.dto.AnalyzerResult;
+import com.qdc.lims.dto.CriticalAlert;
 import com.qdc.lims.dto.ResultEntryRequest;
 import com.qdc.lims.entity.LabOrder;
 import com.qdc.lims.entity.LabResult;
+import com.qdc.lims.entity.Patient;
 import com.qdc.lims.entity.TestDefinition;
 import com.qdc.lims.repository.LabOrderRepository;
 import com.qdc.lims.repository.LabResultRepository;
+import com.qdc.lims.repository.TestDefinitionRepository;
+import com.qdc.lims.util.ResultValueParser;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.core.context.SecurityContextHolder;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Service for handling lab result entry, validation, and saving logic.
@@ -19,17 +33,46 @@ import java.time.LocalDateTime;
 @Service
 public class ResultService {
 
+    /**
+     * performedBy stamp for results computed from a formula.
+     */
+    public static final String CALCULATED = "CALCULATED";
+
     private final LabResultRepository repository;
+    private final ReferenceRangeIndex rangeIndex;
+    private final TestDefinitionRepository testRepo;
+    private final DeltaCheckService deltaCheckService;
+    private final AutoVerificationService autoVerificationService;
+    private final FormulaService formulaService;
+    private final QcService qcService;
+    private final ApplicationEventPublisher eventPublisher;
     @Autowired
     private LabOrderRepository orderRepo;
 
     /**
-     * Constructs a ResultService with the specified LabResultRepository.
+     * Constructs a ResultService with the required collaborators.
      *
      * @param repository repository for lab results
+     * @param rangeIndex compiled reference ranges used for abnormal flagging
+     * @param testRepo repository used to match analyzer test codes
+     * @param deltaCheckService service comparing results with the patient's previous values
+     * @param autoVerificationService service deciding whether an order can be released automatically
+     * @param formulaService service computing calculated tests from the order's other results
+     * @param qcService service telling whether QC currently holds a test's results
+     * @param eventPublisher publisher used to push critical values to connected screens
      */
-    public ResultService(LabResultRepository repository) {
+    public ResultService(LabResultRepository repository, ReferenceRangeIndex rangeIndex,
+            TestDefinitionRepository testRepo, DeltaCheckService deltaCheckService,
+            AutoVerificationService autoVerificationService, FormulaService formulaService, QcService qcService,
+            ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.rangeIndex = rangeIndex;
+        this.testRepo = testRepo;
+        this.deltaCheckService = deltaCheckService;
+        this.autoVerificationService = autoVerificationService;
+        this.formulaService = formulaService;
+        this.qcService = qcService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -44,139 +87,375 @@ public class ResultService {
         LabResult result = repository.findById(request.resultId())
                 .orElseThrow(() -> new RuntimeException("Result ID not found"));
 
-        TestDefinition test = result.getTestDefinition();
-
-        // 2. Save the value
-        result.setResultValue(request.value());
-
-        // 3. Auto-Validation Logic
-        try {
-            // Try to convert string "150" to number 150.0
-            double val = Double.parseDouble(request.value());
-
-            if (test.getMinRange() != null && test.getMaxRange() != null) {
-                if (val < test.getMinRange()) {
-                    result.setAbnormal(true);
-                    result.setRemarks("LOW");
-                } else if (val > test.getMaxRange()) {
-                    result.setAbnormal(true);
-                    result.setRemarks("HIGH");
-                } else {
-                    result.setAbnormal(false);
-                    result.setRemarks("Normal");
-                }
-            }
-        } catch (NumberFormatException e) {
-            // If the result is text (e.g., "Positive"), we can't check ranges
-            result.setAbnormal(false);
+        // 2. Save the value and apply the High/Low flag for the patient
+        Patient patient = result.getLabOrder().getPatient();
+        LocalDateTime now = LocalDateTime.now();
+        List<LabResult> updated = new ArrayList<>();
+        if (applyValue(result, request.value(), patient)) {
+            updated.add(result);
         }
 
+        // Audit stamp, as on the result form (performedAt also places the result in the cumulative report)
+        if (request.value() != null && !request.value().isEmpty()) {
+            result.setPerformedBy(SecurityContextHolder.getContext().getAuthentication().getName());
+            result.setPerformedAt(now);
+        }
+
+        // 3. Recompute the calculated tests of the order that read this value
+        List<LabResult> changed = new ArrayList<>(List.of(result));
+        applyFormulas(repository.findByOrderIdWithDetails(result.getLabOrder().getId()), changed, patient,
+                now, updated);
+
+        // 4. Compare with the patient's previous values for these tests
+        deltaCheckService.check(changed);
+
+        // 5. Alert reception about new critical values (sent once the transaction commits)
+        publishCriticalAlerts(updated);
+
         return repository.save(result);
     }
 
     /**
-     * Saves all lab results from a form, applies validation and audit logic, and updates order status.
+     * Saves all lab results from a form, applies validation and audit logic, and sets the order status
+     * from auto-verification (COMPLETED, or REVIEW if any result needs a second look). A partly
+     * entered order stays PENDING, as it does for analyzer results.
+     * All result rows are loaded in one query and updated in place; Hibernate flushes the
+     * changed rows and the order status together as one JDBC batch at commit.
      *
      * @param orderForm the LabOrder containing results to save
      */
     @Transactional
     public void saveResultsFromForm(LabOrder orderForm) {
 
-        // 1. Security Check
-        LabOrder labOrder = orderRepo.findById(orderForm.getId())
-                .orElseThrow(() -> new RuntimeException("The Order not found"));
+        // 1. Load every result of the order (with test, order and patient) in one query
+        List<LabResult> dbResults = repository.findByOrderIdWithDetails(orderForm.getId());
+        LabOrder labOrder = dbResults.isEmpty()
+                ? orderRepo.findById(orderForm.getId()).orElseThrow(() -> new RuntimeException("The Order not found"))
+                : dbResults.get(0).getLabOrder();
+
+        // 2. Security Check
         if (labOrder.isReportDelivered()) {
             throw new RuntimeException("⛔ ILLEGAL ACTION: Cannot modify results after report delivery.");
         }
 
-        // 1. Get Current User (The Technician)
+        Map<Long, LabResult> byId = new HashMap<>();
+        for (LabResult dbResult : dbResults) {
+            byId.put(dbResult.getId(), dbResult);
+        }
+
+        // 3. Get Current User (The Technician)
         String currentUser = SecurityContextHolder.getContext().getAuthentication().getName();
+        LocalDateTime now = LocalDateTime.now();
+        Patient patient = labOrder.getPatient();
+        List<LabResult> saved = new ArrayList<>(orderForm.getResults().size());
+        List<LabResult> updated = new ArrayList<>();
 
         // Loop through the results submitted from the screen
         for (LabResult resultFromForm : orderForm.getResults()) {
 
-            // Fetch the real result from DB to ensure we don't lose links
-            LabResult dbResult = repository.findById(resultFromForm.getId()).orElseThrow();
+            LabResult dbResult = byId.get(resultFromForm.getId());
+            if (dbResult == null) {
+                throw new RuntimeException("Result #" + resultFromForm.getId() + " does not belong to order #"
+                        + labOrder.getId());
+            }
 
-            // Update the value
+            // 4. Update the value and apply the High/Low flag
             String val = resultFromForm.getResultValue();
-            dbResult.setResultValue(val);
+            if (applyValue(dbResult, val, patient)) {
+                updated.add(dbResult);
+            }
+            saved.add(dbResult);
 
             // --- AUDIT STAMP ---
             // Only update if the value changed or is new
-            if (resultFromForm.getResultValue() != null && !resultFromForm.getResultValue().isEmpty()) {
+            if (val != null && !val.isEmpty()) {
                 dbResult.setPerformedBy(currentUser);
-                dbResult.setPerformedAt(LocalDateTime.now());
+                dbResult.setPerformedAt(now);
             }
             // ------------------------
+        }
+
+        // 5. Recompute calculated tests (LDL, eGFR, ...) from the values just entered
+        applyFormulas(dbResults, saved, patient, now, updated);
+
+        // 6. Delta-check the whole order against the patient's previous values in one pass
+        deltaCheckService.check(saved);
+
+        // 7. Update Order Status
+        // Auto-verification releases the order if every result is clean, otherwise it waits for review.
+        // Until every result has a value the order stays PENDING.
+        // No explicit save calls: the managed entities are flushed together at commit.
+        if (isComplete(dbResults)) {
+            applyVerification(labOrder, dbResults);
+        } else {
+            labOrder.setStatus(AutoVerificationService.PENDING);
+            labOrder.setReleasedBy(null);
+            labOrder.setReleasedAt(null);
+        }
+
+        // 8. Alert reception about new critical values (sent once the transaction commits)
+        publishCriticalAlerts(updated);
+    }
+
+    /**
+     * Releases an order that auto-verification held for review, after a person has checked it.
+     * Refused while any result is blank, or while a rejected QC run holds any of the order's tests.
+     *
+     * @param orderId the ID of the order to release
+     */
+    @Transactional
+    public void releaseOrder(Long orderId) {
+        LabOrder order = orderRepo.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("The Order not found"));
+        if (!AutoVerificationService.REVIEW.equals(order.getStatus())) {
+            throw new RuntimeException("Order #" + orderId + " is not waiting for review.");
+        }
+
+        if (!isComplete(order.getResults())) {
+            throw new RuntimeException("⛔ Cannot release order #" + orderId + ": some results have no value.");
+        }
+
+        // A rejected QC run blocks release of its analyte until QC is back in control
+        for (LabResult result : order.getResults()) {
+            String hold = qcService.holdReason(result.getTestDefinition().getId());
+            if (hold != null) {
+                throw new RuntimeException("⛔ Cannot release order #" + orderId + ": " + hold + ".");
+            }
+        }
+
+        order.setStatus(AutoVerificationService.COMPLETED);
+        order.setReleasedBy(SecurityContextHolder.getContext().getAuthentication().getName());
+        order.setReleasedAt(LocalDateTime.now());
+    }
+
+    /**
+     * Posts a batch of analyzer results in one transaction. Rows are matched to LabResults by
+     * order ID and test short code, flagged with the same logic as manual entry, and stamped as
+     * performed by the analyzer. Once every result of an order has a value, the order goes through
+     * auto-verification and becomes COMPLETED or REVIEW.
+     * <p>
+     * A row never silently replaces a value someone may already have reviewed: once an order has
+     * left PENDING, a row with a different value for a filled-in result is rejected (and so
+     * dead-lettered) instead. A row repeating the stored value is skipped without touching the
+     * result's audit fields. If the batch has several rows for the same order and test (a rerun),
+     * only the last is posted and the earlier ones are skipped, so each result is posted once.
+     *
+     * @param batch the parsed analyzer rows
+     * @return reasons for the rows that could not be posted, keyed by their index in the batch
+     */
+    @Transactional
+    public Map<Integer, String> postAnalyzerResults(List<AnalyzerResult> batch) {
+        Map<Integer, String> rejected = new LinkedHashMap<>();
+        if (batch.isEmpty()) {
+            return rejected;
+        }
+
+        // 1. Resolve all test codes and all orders of the batch with one query each
+        Set<String> codes = new HashSet<>();
+        Set<Long> orderIds = new HashSet<>();
+        Map<String, Integer> lastRow = new HashMap<>(); // (order, test code) -> index of its last row
+        for (int i = 0; i < batch.size(); i++) {
+            AnalyzerResult row = batch.get(i);
+            codes.add(row.testCode());
+            orderIds.add(row.orderId());
+            lastRow.put(row.orderId() + "/" + row.testCode(), i);
+        }
+        Map<String, Long> testIds = new HashMap<>();
+        for (TestDefinition test : testRepo.findByShortCodeIn(codes)) {
+            testIds.put(test.getShortCode(), test.getId());
+        }
+        Map<Long, Map<Long, LabResult>> resultsByOrder = new HashMap<>();
+        for (LabResult result : repository.findByOrderIdInWithDetails(orderIds)) {
+            resultsByOrder.computeIfAbsent(result.getLabOrder().getId(), id -> new HashMap<>())
+                    .putIfAbsent(result.getTestDefinition().getId(), result);
+        }
 
-            // Apply High/Low Logic
-            TestDefinition test = dbResult.getTestDefinition();
-            
-            try {
-                if (val != null && !val.isEmpty()) {
-                    // 2. Parse Number
-                    double numVal = Double.parseDouble(val);
-
-                    // 3. Get Patient 
-                    com.qdc.lims.entity.Patient patient = dbResult.getLabOrder().getPatient();
-
-                    // 4. Find Matching Rule (The New Logic)
-                    com.qdc.lims.entity.ReferenceRange matchingRule = null;
-                    
-                    // Check if ranges exist (avoid null pointer if list is empty)
-                    if (test.getRanges() != null) {
-                        for (com.qdc.lims.entity.ReferenceRange rule : test.getRanges()) {
-                            // Check Gender ("Both", "Male", "Female")
-                            boolean genderMatch = rule.getGender().equalsIgnoreCase("Both") 
-                                               || rule.getGender().equalsIgnoreCase(patient.getGender());
-                            
-                            // Check Age
-                            boolean ageMatch = patient.getAge() >= rule.getMinAge() 
-                                            && patient.getAge() <= rule.getMaxAge();
-    
-                            if (genderMatch && ageMatch) {
-                                matchingRule = rule;
-                                break; // Found the specific rule for this person
-                            }
-                        }
-                    }
-
-                    // 5. Apply High/Low Logic based on the rule found
-                    if (matchingRule != null) {
-                        if (numVal < matchingRule.getMinVal()) {
-                            dbResult.setAbnormal(true);
-                            dbResult.setRemarks("LOW");
-                        } else if (numVal > matchingRule.getMaxVal()) {
-                            dbResult.setAbnormal(true);
-                            dbResult.setRemarks("HIGH");
-                        } else {
-                            dbResult.setAbnormal(false);
-                            dbResult.setRemarks("Normal");
-                        }
-                    } else {
-                        // Fallback: If no specific Age/Gender rule found, assume Normal
-                        // (Or you could check the old min/max fields if you kept them as backup)
-                        dbResult.setAbnormal(false);
-                        dbResult.setRemarks(""); 
-                    }
+        // 2. Apply each row to its result
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<LabResult>> postedByOrder = new LinkedHashMap<>();
+        List<LabResult> updated = new ArrayList<>();
+        int superseded = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            AnalyzerResult row = batch.get(i);
+            if (lastRow.get(row.orderId() + "/" + row.testCode()) != i) {
+                // A repeated row (rerun) for the same order and test: only the last one is posted
+                superseded++;
+                continue;
+            }
+            Long testId = testIds.get(row.testCode());
+            Map<Long, LabResult> orderResults = resultsByOrder.get(row.orderId());
+            if (testId == null) {
+                rejected.put(i, "Unknown test code '" + row.testCode() + "'");
+                continue;
+            }
+            if (orderResults == null) {
+                rejected.put(i, "Order #" + row.orderId() + " not found");
+                continue;
+            }
+            LabResult result = orderResults.get(testId);
+            if (result == null) {
+                rejected.put(i, "Test '" + row.testCode() + "' was not ordered on order #" + row.orderId());
+                continue;
+            }
+            LabOrder order = result.getLabOrder();
+            if (order.isReportDelivered()) {
+                rejected.put(i, "Report for order #" + row.orderId() + " was already delivered");
+                continue;
+            }
+            String current = result.getResultValue();
+            if (current != null && !current.isBlank()) {
+                if (current.equals(row.value())) {
+                    continue; // Re-sent value; keep who entered it and when
+                }
+                if (!AutoVerificationService.PENDING.equals(order.getStatus())) {
+                    rejected.put(i, "Order #" + row.orderId() + " is " + order.getStatus() + "; '" + row.testCode()
+                            + "' already has the value '" + current + "' and was not overwritten");
+                    continue;
                 }
-            } catch (NumberFormatException e) {
-                // Handle Non-Numeric Results (Text like "Positive")
-                dbResult.setAbnormal(false);
-                dbResult.setRemarks("");
             }
 
+            if (applyValue(result, row.value(), order.getPatient())) {
+                updated.add(result);
+            }
+            result.setInstrumentFlags(row.flags());
+            result.setPerformedBy(row.instrument() != null ? "ANALYZER (" + row.instrument() + ")" : "ANALYZER");
+            result.setPerformedAt(now);
+            postedByOrder.computeIfAbsent(order.getId(), id -> new ArrayList<>()).add(result);
+        }
+
+        if (superseded > 0) {
+            System.out.println("⚠️ Analyzer batch: " + superseded + " row(s) skipped, superseded by a later row "
+                    + "for the same order and test");
+        }
+
+        // 3. Recompute each order's calculated tests, then delta-check everything in one pass
+        List<LabResult> posted = new ArrayList<>(batch.size());
+        for (Map.Entry<Long, List<LabResult>> entry : postedByOrder.entrySet()) {
+            List<LabResult> orderPosted = entry.getValue();
+            applyFormulas(new ArrayList<>(resultsByOrder.get(entry.getKey()).values()), orderPosted,
+                    orderPosted.get(0).getLabOrder().getPatient(), now, updated);
+            posted.addAll(orderPosted);
+        }
+        deltaCheckService.check(posted);
 
-            repository.save(dbResult);
+        // 4. Verify orders whose results are now all filled in (incomplete orders stay PENDING)
+        for (Long orderId : postedByOrder.keySet()) {
+            List<LabResult> orderResults = new ArrayList<>(resultsByOrder.get(orderId).values());
+            if (isComplete(orderResults)) {
+                applyVerification(orderResults.get(0).getLabOrder(), orderResults);
+            }
         }
 
-        // --- NEW LOGIC: Update Order Status ---
-        // We assume if the tech clicked "Save", the order is done.
-        com.qdc.lims.entity.LabOrder dbOrder = orderRepo.findById(orderForm.getId()).orElseThrow();
-        dbOrder.setStatus("COMPLETED");
-        orderRepo.save(dbOrder);
+        // 5. Alert reception about new critical values (sent once the transaction commits)
+        publishCriticalAlerts(updated);
+        return rejected;
+    }
+
+    /**
+     * Tells whether every result of an order has a value.
+     */
+    private static boolean isComplete(List<LabResult> results) {
+        for (LabResult result : results) {
+            if (result.getResultValue() == null || result.getResultValue().isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
 
+    /**
+     * Runs auto-verification over all results of an order and sets the order status accordingly.
+     */
+    private void applyVerification(LabOrder order, List<LabResult> allResults) {
+        String status = autoVerificationService.verifyOrder(allResults);
+        order.setStatus(status);
+        if (AutoVerificationService.COMPLETED.equals(status)) {
+            order.setReleasedBy("AUTO-VERIFIED");
+            order.setReleasedAt(LocalDateTime.now());
+        }
     }
 
-}
\ No newline at end of file
+    /**
+     * Recomputes the order's calculated tests that read any of the changed results, and appends
+     * the recomputed results to the changed list so they are delta-checked along with them.
+     * Derived results whose value actually changed are also added to updated.
+     */
+    private void applyFormulas(List<LabResult> orderResults, List<LabResult> changed, Patient patient,
+            LocalDateTime now, List<LabResult> updated) {
+        Set<Long> changedIds = new HashSet<>();
+        for (LabResult result : changed) {
+            changedIds.add(result.getId());
+        }
+        for (FormulaService.Calculation calculation : formulaService.recompute(orderResults, changed, patient)) {
+            LabResult derived = calculation.result();
+            if (applyValue(derived, calculation.value(), patient)) {
+                updated.add(derived);
+            }
+            if (calculation.value() == null) {
+                derived.setAbnormal(false); // An input was cleared; drop the old flag with the old value
+                derived.setRemarks("");
+            }
+            derived.setPerformedBy(CALCULATED);
+            derived.setPerformedAt(now);
+            if (changedIds.add(derived.getId())) {
+                changed.add(derived);
+            }
+        }
+    }
+
+    /**
+     * Publishes the results whose new value crosses their test's critical limits.
+     * Only results whose value changed in this save are passed in, so re-saving a form
+     * doesn't repeat alerts for values reception has already seen.
+     */
+    private void publishCriticalAlerts(List<LabResult> updated) {
+        List<CriticalAlert> alerts = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (LabResult result : updated) {
+            TestDefinition test = result.getTestDefinition();
+            String direction = AutoVerificationService.criticalDirection(result, test.getCriticalLow(),
+                    test.getCriticalHigh());
+            if (direction != null) {
+                LabOrder order = result.getLabOrder();
+                alerts.add(new CriticalAlert(result.getId(), order.getId(), order.getPatient().getMrn(),
+                        order.getPatient().getFullName(), test.getTestName(), result.getResultValue(), test.getUnit(),
+                        direction, now));
+            }
+        }
+        if (!alerts.isEmpty()) {
+            eventPublisher.publishEvent(new CriticalResultEvent(alerts));
+        }
+    }
+
+    /**
+     * Stores a raw value with its parsed number and kind, and sets the High/Low flag from the
+     * patient's reference band. Text results (e.g., "Positive") are never flagged. Censored
+     * results ("<0.5", ">1000") get no numeric value and are flagged only when the whole range
+     * they allow lies outside the band.
+     *
+     * @return true if the value differs from the one stored before
+     */
+    private boolean applyValue(LabResult result, String value, Patient patient) {
+        boolean changed = !Objects.equals(result.getResultValue(), value);
+        result.setResultValue(value);
+        result.setDeltaFailed(null); // Re-evaluated by DeltaCheckService for numeric values
+        result.setDeltaBaseline(null);
+
+        // Text results come back as NaN without an exception
+        ResultValueParser.Kind kind = ResultValueParser.kindOf(value);
+        double numVal = ResultValueParser.parse(value);
+        result.setValueKind(kind);
+        result.setNumericValue(kind == ResultValueParser.Kind.NUMERIC ? numVal : null);
+
+        if (!Double.isNaN(numVal)) {
+            ReferenceRangeIndex.Band band = rangeIndex.find(result.getTestDefinition(), patient.getGender(),
+                    patient.getAge());
+            result.setAbnormal(band.isAbnormal(kind, numVal));
+            result.setRemarks(band.flag(kind, numVal));
+        } else if (value != null && !value.isEmpty()) {
+            result.setAbnormal(false);
+            result.setRemarks("");
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,96 @@
+package com.qdc.lims.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Service that deducts inventory stock for booked tests through the inventory journal.
+ * Stock is checked against the derived level (snapshot plus pending movements) for all
+ * items of an order in one query, and the consumption is appended as insert-only
+ * journal rows. Bookings of the same item are serialized by a per-item advisory lock held
+ * from the check to the commit, so two bookings can never both take the last units;
+ * bookings of different items do not wait on each other.
+ */
+@Service
+public class StockDeductionService {
+
+    private final InventoryJournalService journal;
+
+    /**
+     * Constructs a StockDeductionService with the specified InventoryJournalService.
+     *
+     * @param journal the append-only inventory journal
+     */
+    public StockDeductionService(InventoryJournalService journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Checks that every item has enough stock and records the consumption in the journal.
+     * Must run inside the caller's transaction so a later failure rolls back the movements.
+     *
+     * @param needed the total quantity required per inventory item ID
+     * @param reference the journal reference for the movements (e.g., "Order #125")
+     * @return null if every item had enough stock, otherwise the first item that ran out
+     */
+    @Transactional
+    public Shortage deduct(SortedMap<Long, Double> needed, String reference) {
+        if (needed.isEmpty()) {
+            return null;
+        }
+
+        // 1. Lock the items (ascending ID order) so the check below stays true until commit
+        journal.lockItems(new TreeSet<>(needed.keySet()));
+
+        // 2. Check every item against its derived level
+        Map<Long, InventoryJournalService.StockLevel> levels = journal.stockLevels(needed.keySet());
+
+        Map<Long, Double> consumption = new HashMap<>();
+        for (Map.Entry<Long, Double> entry : needed.entrySet()) {
+            InventoryJournalService.StockLevel level = levels.get(entry.getKey());
+            if (level == null) {
+                return new Shortage(entry.getKey(), "Item #" + entry.getKey(), "", entry.getValue(), 0.0);
+            }
+            if (level.available() < entry.getValue()) {
+                return new Shortage(entry.getKey(), level.itemName(), level.unit(), entry.getValue(),
+                        level.available());
+            }
+            consumption.put(entry.getKey(), -entry.getValue());
+        }
+
+        // 3. Record the consumption (the locks are released when the booking commits or rolls back)
+        journal.record(consumption, "CONSUMPTION", reference);
+        return null;
+    }
+
+    /**
+     * Locks items ahead of several deductions in the same transaction (a batch of bookings), so the
+     * whole transaction takes its item locks in one ascending pass and cannot deadlock another booking.
+     *
+     * @param itemIds the inventory item IDs the coming deductions may use
+     */
+    @Transactional
+    public void lockItems(SortedSet<Long> itemIds) {
+        if (!itemIds.isEmpty()) {
+            journal.lockItems(itemIds);
+        }
+    }
+
+    /**
+     * Describes an inventory item that did not have enough stock for an order.
+     *
+     * @param itemId the ID of the inventory item
+     * @param itemName the name of the inventory item
+     * @param unit the unit of measure of the item
+     * @param needed the quantity the order required
+     * @param available the quantity in stock when the deduction was attempted
+     */
+    public record Shortage(Long itemId, String itemName, String unit, double needed, double available) {
+    }
+}
@@ -0,0 +1,286 @@
+package com.qdc.lims.util;
+
+import com.qdc.lims.dto.AnalyzerResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming parser for analyzer result exports. Files are read line by line and every
+ * result is handed to a Sink as soon as it is parsed, so file size never affects memory.
+ * <p>
+ * Two formats are recognized from the first record:
+ * <ul>
+ * <li>ASTM E1394 (first record "H|\^&..."): the order ID comes from the O record's
+ * specimen ID and each R record yields one result. Frame numbers, STX/ETX and
+ * checksums are stripped if the export kept them.</li>
+ * <li>CSV: {@code order_id,test_code,value[,flags[,instrument]]} with an optional header
+ * row, double-quoted fields (e.g. "1,200") and '#' comment lines.</li>
+ * </ul>
+ */
+public final class AnalyzerFileParser {
+
+    /**
+     * Receives parsed rows. Implementations may block to apply back-pressure.
+     */
+    public interface Sink {
+
+        /**
+         * @param result a parsed result row
+         * @throws InterruptedException if interrupted while waiting for capacity
+         */
+        void accept(AnalyzerResult result) throws InterruptedException;
+
+        /**
+         * @param lineNumber the line that could not be parsed
+         * @param rawLine the line as read
+         * @param reason why it was rejected
+         * @throws InterruptedException if interrupted while waiting for capacity
+         */
+        void reject(long lineNumber, String rawLine, String reason) throws InterruptedException;
+    }
+
+    private AnalyzerFileParser() {
+    }
+
+    /**
+     * Parses a file and streams its rows into the sink.
+     *
+     * @param file the export file
+     * @param sink receiver of parsed and rejected rows
+     * @throws IOException if the file cannot be read
+     * @throws InterruptedException if the sink was interrupted
+     */
+    public static void parse(Path file, Sink sink) throws IOException, InterruptedException {
+        // ISO-8859-1 maps every byte to a char, so stray bytes from an instrument never abort the read
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            AstmState astm = null;
+            boolean csvHeaderChecked = false;
+            long lineNumber = 0;
+            String raw;
+            while ((raw = reader.readLine()) != null) {
+                lineNumber++;
+                String line = stripFraming(raw);
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                // 1. The first record decides the format
+                if (astm == null && !csvHeaderChecked && line.length() > 4 && line.charAt(0) == 'H'
+                        && !Character.isLetterOrDigit(line.charAt(1))) {
+                    astm = new AstmState(line.charAt(1), line.charAt(3));
+                }
+
+                if (astm != null) {
+                    parseAstm(line, lineNumber, astm, sink);
+                } else {
+                    List<String> fields = splitCsv(line);
+                    // 2. Skip a header row ("order_id,test_code,...")
+                    if (!csvHeaderChecked) {
+                        csvHeaderChecked = true;
+                        if (parseId(fields.get(0)) == null) {
+                            continue;
+                        }
+                    }
+                    parseCsv(fields, raw, lineNumber, sink);
+                }
+            }
+        }
+    }
+
+    /**
+     * Formats a result as a CSV row this parser accepts (used for dead-letter files).
+     *
+     * @param result the result to format
+     * @return the CSV line
+     */
+    public static String toCsv(AnalyzerResult result) {
+        return quote(result.orderId() == null ? "" : result.orderId().toString()) + ","
+                + quote(result.testCode()) + ","
+                + quote(result.value()) + ","
+                + quote(result.flags()) + ","
+                + quote(result.instrument());
+    }
+
+    private static void parseAstm(String line, long lineNumber, AstmState state, Sink sink)
+            throws InterruptedException {
+        String[] fields = line.split(Pattern.quote(String.valueOf(state.fieldSep)), -1);
+        switch (line.charAt(0)) {
+            case 'H' -> state.instrument = blankToNull(component(field(fields, 4), state.componentSep, 0));
+            case 'O' -> {
+                // Specimen ID, or the instrument's specimen ID if the host field is empty
+                String specimen = component(field(fields, 2), state.componentSep, 0);
+                if (specimen.isEmpty()) {
+                    specimen = component(field(fields, 3), state.componentSep, 0);
+                }
+                state.orderId = parseId(specimen);
+                if (state.orderId == null) {
+                    sink.reject(lineNumber, line, "Invalid specimen/order ID '" + specimen + "'");
+                }
+            }
+            case 'R' -> {
+                if (state.orderId == null) {
+                    sink.reject(lineNumber, line, "Result record without a valid order record");
+                    return;
+                }
+                String code = testCode(field(fields, 2), state.componentSep);
+                String value = component(field(fields, 3), state.componentSep, 0).trim();
+                if (code.isEmpty() || value.isEmpty()) {
+                    sink.reject(lineNumber, line, "Result record without test code or value");
+                    return;
+                }
+                sink.accept(new AnalyzerResult(lineNumber, state.orderId, code, value,
+                        blankToNull(field(fields, 6).trim()), state.instrument));
+            }
+            case 'L' -> state.orderId = null;
+            default -> {
+                // P (patient), C (comment), Q (query) and M records carry nothing we store
+            }
+        }
+    }
+
+    private static void parseCsv(List<String> fields, String raw, long lineNumber, Sink sink)
+            throws InterruptedException {
+        if (fields.size() < 3) {
+            sink.reject(lineNumber, raw, "Expected order_id,test_code,value");
+            return;
+        }
+        Long orderId = parseId(fields.get(0));
+        if (orderId == null) {
+            sink.reject(lineNumber, raw, "Invalid order ID '" + fields.get(0) + "'");
+            return;
+        }
+        String code = fields.get(1).trim();
+        String value = fields.get(2).trim();
+        if (code.isEmpty() || value.isEmpty()) {
+            sink.reject(lineNumber, raw, "Missing test code or value");
+            return;
+        }
+        String flags = fields.size() > 3 ? blankToNull(fields.get(3).trim()) : null;
+        String instrument = fields.size() > 4 ? blankToNull(fields.get(4).trim()) : null;
+        sink.accept(new AnalyzerResult(lineNumber, orderId, code, value, flags, instrument));
+    }
+
+    // Universal test ID "^^^GLU^..." -> "GLU" (the manufacturer's code), else the last non-empty component
+    private static String testCode(String field, char componentSep) {
+        String code = component(field, componentSep, 3);
+        if (!code.isEmpty()) {
+            return code.trim();
+        }
+        String[] parts = field.split(Pattern.quote(String.valueOf(componentSep)));
+        for (int i = parts.length - 1; i >= 0; i--) {
+            if (!parts[i].isBlank()) {
+                return parts[i].trim();
+            }
+        }
+        return "";
+    }
+
+    // Removes STX, the frame number, and everything from ETX/ETB (checksum, CR LF) onwards
+    private static String stripFraming(String raw) {
+        int start = 0;
+        while (start < raw.length() && raw.charAt(start) < ' ') {
+            start++;
+        }
+        if (start > 0 && start + 1 < raw.length() && Character.isDigit(raw.charAt(start))
+                && Character.isLetter(raw.charAt(start + 1))) {
+            start++;
+        }
+        int end = start;
+        while (end < raw.length() && raw.charAt(end) >= ' ') {
+            end++;
+        }
+        return raw.substring(start, end).trim();
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static Long parseId(String text) {
+        String trimmed = text == null ? "" : text.trim();
+        if (trimmed.isEmpty() || trimmed.length() > 18) {
+            return null;
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (!Character.isDigit(trimmed.charAt(i))) {
+                return null;
+            }
+        }
+        return Long.parseLong(trimmed);
+    }
+
+    private static String field(String[] fields, int index) {
+        return index < fields.length ? fields[index] : "";
+    }
+
+    private static String component(String field, char componentSep, int index) {
+        int start = 0;
+        for (int i = 0; i < index; i++) {
+            int next = field.indexOf(componentSep, start);
+            if (next < 0) {
+                return "";
+            }
+            start = next + 1;
+        }
+        int end = field.indexOf(componentSep, start);
+        return field.substring(start, end < 0 ? field.length() : end);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    // Delimiters and context carried between ASTM records
+    private static final class AstmState {
+        private final char fieldSep;
+        private final char componentSep;
+        private String instrument;
+        private Long orderId;
+
+        AstmState(char fieldSep, char componentSep) {
+            this.fieldSep = fieldSep;
+            this.componentSep = componentSep;
+        }
+    }
+}
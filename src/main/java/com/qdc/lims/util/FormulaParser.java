@@ -0,0 +1,298 @@
+package com.qdc.lims.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recursive-descent parser for calculated-test formulas, e.g.
+ * {@code {CHOL} - {HDL} - {TG} / 5} (Friedewald LDL) or {@code {TBIL} - {DBIL}}.
+ * <p>
+ * Grammar: numbers, variables, parentheses, unary minus, {@code + - * /} and right-associative
+ * {@code ^}. Variables are test short codes written as {CODE} (any characters) or as bare
+ * identifiers, plus the patient variables AGE and IS_FEMALE (1 or 0). Functions: min, max,
+ * pow, sqrt, exp, ln, log10, abs, round(x, digits) and if(condition, then, else).
+ * <p>
+ * A formula is parsed once into an immutable expression tree whose variables are resolved to
+ * array slots, so evaluating it is a plain tree walk with no lookups or allocation.
+ */
+public final class FormulaParser {
+
+    /**
+     * Patient age in years.
+     */
+    public static final String AGE = "AGE";
+
+    /**
+     * 1 for female patients, 0 otherwise.
+     */
+    public static final String IS_FEMALE = "IS_FEMALE";
+
+    private final String text;
+    private final Map<String, Integer> variables = new LinkedHashMap<>();
+    private int pos;
+
+    private FormulaParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a formula.
+     *
+     * @param formula the formula text
+     * @return the compiled formula
+     * @throws IllegalArgumentException if the formula is not valid
+     */
+    public static Formula parse(String formula) {
+        if (formula == null || formula.isBlank()) {
+            throw new IllegalArgumentException("Formula is empty");
+        }
+        FormulaParser parser = new FormulaParser(formula);
+        Node root = parser.expression();
+        parser.skipSpaces();
+        if (parser.pos < formula.length()) {
+            throw parser.error("Unexpected '" + formula.charAt(parser.pos) + "'");
+        }
+        return new Formula(root, List.copyOf(parser.variables.keySet()));
+    }
+
+    // expression := term (('+' | '-') term)*
+    private Node expression() {
+        Node left = term();
+        while (true) {
+            if (accept('+')) {
+                Node a = left, b = term();
+                left = v -> a.eval(v) + b.eval(v);
+            } else if (accept('-')) {
+                Node a = left, b = term();
+                left = v -> a.eval(v) - b.eval(v);
+            } else {
+                return left;
+            }
+        }
+    }
+
+    // term := unary (('*' | '/') unary)*
+    private Node term() {
+        Node left = unary();
+        while (true) {
+            if (accept('*')) {
+                Node a = left, b = unary();
+                left = v -> a.eval(v) * b.eval(v);
+            } else if (accept('/')) {
+                Node a = left, b = unary();
+                left = v -> a.eval(v) / b.eval(v);
+            } else {
+                return left;
+            }
+        }
+    }
+
+    // unary := '-' unary | power
+    private Node unary() {
+        if (accept('-')) {
+            Node operand = unary();
+            return v -> -operand.eval(v);
+        }
+        if (accept('+')) {
+            return unary();
+        }
+        return power();
+    }
+
+    // power := primary ('^' unary)?   (right-associative: 2^3^2 = 2^9)
+    private Node power() {
+        Node base = primary();
+        if (accept('^')) {
+            Node exponent = unary();
+            return v -> Math.pow(base.eval(v), exponent.eval(v));
+        }
+        return base;
+    }
+
+    // primary := number | '(' expression ')' | '{' code '}' | identifier | function '(' args ')'
+    private Node primary() {
+        skipSpaces();
+        if (pos >= text.length()) {
+            throw error("Unexpected end of formula");
+        }
+        char c = text.charAt(pos);
+
+        if (accept('(')) {
+            Node inner = expression();
+            expect(')');
+            return inner;
+        }
+        if (c == '{') {
+            int close = text.indexOf('}', pos);
+            if (close < 0) {
+                throw error("Missing '}'");
+            }
+            String code = text.substring(pos + 1, close).trim();
+            pos = close + 1;
+            if (code.isEmpty()) {
+                throw error("Empty test code");
+            }
+            return variable(code);
+        }
+        if (Character.isDigit(c) || c == '.') {
+            return number();
+        }
+        if (Character.isLetter(c) || c == '_') {
+            int start = pos;
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            String name = text.substring(start, pos);
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == '(') {
+                return function(name);
+            }
+            return variable(name);
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private Node number() {
+        int start = pos;
+        while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+            pos++;
+        }
+        try {
+            double value = Double.parseDouble(text.substring(start, pos));
+            return v -> value;
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + text.substring(start, pos) + "'");
+        }
+    }
+
+    private Node variable(String name) {
+        String key = name.equalsIgnoreCase(AGE) ? AGE : name.equalsIgnoreCase(IS_FEMALE) ? IS_FEMALE : name;
+        int slot = variables.computeIfAbsent(key, k -> variables.size());
+        return v -> v[slot];
+    }
+
+    private Node function(String name) {
+        expect('(');
+        List<Node> args = new ArrayList<>();
+        if (!accept(')')) {
+            do {
+                args.add(expression());
+            } while (accept(','));
+            expect(')');
+        }
+
+        String fn = name.toLowerCase();
+        switch (fn) {
+            case "min" -> {
+                requireArgs(fn, args, 2);
+                Node a = args.get(0), b = args.get(1);
+                return v -> Math.min(a.eval(v), b.eval(v));
+            }
+            case "max" -> {
+                requireArgs(fn, args, 2);
+                Node a = args.get(0), b = args.get(1);
+                return v -> Math.max(a.eval(v), b.eval(v));
+            }
+            case "pow" -> {
+                requireArgs(fn, args, 2);
+                Node a = args.get(0), b = args.get(1);
+                return v -> Math.pow(a.eval(v), b.eval(v));
+            }
+            case "round" -> {
+                requireArgs(fn, args, 2);
+                Node a = args.get(0), b = args.get(1);
+                return v -> {
+                    double scale = Math.pow(10, Math.rint(b.eval(v)));
+                    return Math.round(a.eval(v) * scale) / scale;
+                };
+            }
+            case "if" -> {
+                requireArgs(fn, args, 3);
+                Node c = args.get(0), a = args.get(1), b = args.get(2);
+                return v -> c.eval(v) != 0 ? a.eval(v) : b.eval(v);
+            }
+            case "sqrt", "exp", "ln", "log10", "abs" -> {
+                requireArgs(fn, args, 1);
+                Node a = args.get(0);
+                return switch (fn) {
+                    case "sqrt" -> v -> Math.sqrt(a.eval(v));
+                    case "exp" -> v -> Math.exp(a.eval(v));
+                    case "ln" -> v -> Math.log(a.eval(v));
+                    case "log10" -> v -> Math.log10(a.eval(v));
+                    default -> v -> Math.abs(a.eval(v));
+                };
+            }
+            default -> throw error("Unknown function '" + name + "'");
+        }
+    }
+
+    private void requireArgs(String fn, List<Node> args, int count) {
+        if (args.size() != count) {
+            throw error(fn + "() takes " + count + " argument(s)");
+        }
+    }
+
+    private boolean accept(char c) {
+        skipSpaces();
+        if (pos < text.length() && text.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private void skipSpaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + (pos + 1) + " in formula: " + text);
+    }
+
+    // One node of the expression tree; variables are read from the slot array
+    @FunctionalInterface
+    private interface Node {
+        double eval(double[] values);
+    }
+
+    /**
+     * A parsed formula: an expression tree plus the variables it reads, in slot order.
+     */
+    public static final class Formula {
+
+        private final Node root;
+        private final List<String> variables;
+
+        private Formula(Node root, List<String> variables) {
+            this.root = root;
+            this.variables = variables;
+        }
+
+        /**
+         * @return the variable names in slot order (test codes, AGE, IS_FEMALE)
+         */
+        public List<String> variables() {
+            return variables;
+        }
+
+        /**
+         * Evaluates the formula.
+         *
+         * @param values one value per variable, in the order of {@link #variables()}
+         * @return the result (NaN or infinite if the inputs are out of the formula's domain)
+         */
+        public double evaluate(double[] values) {
+            return root.eval(values);
+        }
+    }
+}
@@ -1,26 +1,121 @@
 package com.qdc.lims.util;
 
-import com.aventrix.jnanoid.jnanoid.NanoIdUtils;
-import java.util.Random;
-
 /**
- * Utility class for generating unique Medical Record Numbers (MRN).
+ * Utility class for turning allocation ordinals into Medical Record Numbers (MRN).
+ * Ordinals come from MrnAllocator and are strictly unique; this class scrambles them with a
+ * keyed, reversible permutation so consecutive patients don't get consecutive MRNs.
+ * <p>
+ * MRNs are grouped in bands by width: the first 1,000,000 ordinals become 6-digit MRNs
+ * (e.g. 852-304), the next 10,000,000 become 7-digit MRNs (e.g. 852-3041), and so on.
+ * Within a band the permutation is a bijection, so two ordinals never share an MRN.
  */
 public class IdGenerator {
 
-    // ONLY Numbers (0-9)
-    private static final char[] NUMBERS = "0123456789".toCharArray();
-    private static final Random RANDOM = new Random();
+    /**
+     * Width (in digits) of the first MRN band.
+     */
+    public static final int FIRST_WIDTH = 6;
+
+    private static final int ROUNDS = 4;
+
+    private static final long[] POW10 = new long[19];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
 
     /**
-     * Generates a random 6-digit Medical Record Number (MRN) formatted as nuumerics-numerics.
+     * Returns the first ordinal of the band with the given width.
      *
-     * @return a formatted MRN string (e.g., 852-304)
+     * @param width the number of digits in the band's MRNs
+     * @return the first ordinal mapped to that width (0 for the 6-digit band)
      */
-    public static String generateMrn() {
-        // Generate 6 random numbers
-        String rawId = NanoIdUtils.randomNanoId(RANDOM, NUMBERS, 6);
+    public static long bandStart(int width) {
+        long start = 0;
+        for (int w = FIRST_WIDTH; w < width; w++) {
+            start += POW10[w];
+        }
+        return start;
+    }
+
+    /**
+     * Formats a unique ordinal as an MRN (e.g., 852-304).
+     *
+     * @param ordinal the unique allocation ordinal (0-based)
+     * @param key the secret permutation key
+     * @return a formatted MRN string
+     */
+    public static String formatMrn(long ordinal, long key) {
+        int width = FIRST_WIDTH;
+        long offset = ordinal;
+        while (offset >= POW10[width]) {
+            offset -= POW10[width];
+            width++;
+        }
+
+        long value = permute(offset, width, key);
+
+        char[] out = new char[width + 1];
+        int pos = out.length - 1;
+        for (int i = 0; i < width; i++) {
+            out[pos--] = (char) ('0' + value % 10);
+            value /= 10;
+            if (i == width - 4) {
+                out[pos--] = '-';
+            }
+        }
+        return new String(out);
+    }
+
+    /**
+     * Keyed permutation of [0, 10^width) using an unbalanced Feistel network on the
+     * left and right halves of the decimal digits. Each round adds a keyed hash of one
+     * half to the other (mod its size), which is always reversible.
+     */
+    static long permute(long value, int width, long key) {
+        long leftSize = POW10[width / 2];
+        long rightSize = POW10[width - width / 2];
+        long left = value / rightSize;
+        long right = value % rightSize;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            if ((round & 1) == 0) {
+                left = (left + roundFunction(right, round, key) % leftSize) % leftSize;
+            } else {
+                right = (right + roundFunction(left, round, key) % rightSize) % rightSize;
+            }
+        }
+        return left * rightSize + right;
+    }
+
+    /**
+     * Inverse of {@link #permute(long, int, long)}; recovers the ordinal offset of an MRN.
+     */
+    static long unpermute(long value, int width, long key) {
+        long leftSize = POW10[width / 2];
+        long rightSize = POW10[width - width / 2];
+        long left = value / rightSize;
+        long right = value % rightSize;
+
+        for (int round = ROUNDS - 1; round >= 0; round--) {
+            if ((round & 1) == 0) {
+                left = Math.floorMod(left - roundFunction(right, round, key) % leftSize, leftSize);
+            } else {
+                right = Math.floorMod(right - roundFunction(left, round, key) % rightSize, rightSize);
+            }
+        }
+        return left * rightSize + right;
+    }
 
-        return rawId.substring(0, 3) + "-" + rawId.substring(3, 6);
+    // SplitMix64 finalizer; the result is made non-negative so it can be reduced with %
+    private static long roundFunction(long half, int round, long key) {
+        long z = half * 0x9E3779B97F4A7C15L + key + round;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return z & Long.MAX_VALUE;
     }
-}
\ No newline at end of file
+}
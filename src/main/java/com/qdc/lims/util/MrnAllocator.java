@@ -0,0 +1,112 @@
+package com.qdc.lims.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out collision-free Medical Record Numbers without probing the patients table.
+ * Each node reserves a block of ordinals from a database sequence (one nextval per block)
+ * and serves MRNs from that block in memory; IdGenerator turns each ordinal into a
+ * non-sequential looking MRN. Unused ordinals of a block are simply skipped after a restart.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MrnAllocator implements ApplicationRunner {
+
+    private static final String SEQUENCE = "patient_mrn_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int blockSize;
+    private final long key;
+
+    private long increment;
+    private long next;
+    private long limit;
+
+    /**
+     * Constructs an MrnAllocator.
+     *
+     * @param jdbcTemplate template for the block sequence
+     * @param blockSize number of MRNs reserved per sequence call (only used when the sequence is first created)
+     * @param key secret key of the MRN permutation (lims.mrn.key); must never change once patients are registered
+     * @throws IllegalStateException if the key is not configured or not a number
+     */
+    public MrnAllocator(JdbcTemplate jdbcTemplate,
+            @Value("${lims.mrn.block-size:20}") int blockSize,
+            @Value("${lims.mrn.key:}") String key) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockSize = blockSize;
+        this.key = parseKey(key);
+    }
+
+    /**
+     * Creates the block sequence on startup, outside any registration transaction.
+     *
+     * @param args application arguments (unused)
+     */
+    @Override
+    public synchronized void run(ApplicationArguments args) {
+        initialize();
+    }
+
+    /**
+     * Returns the next unique MRN (e.g., 852-304).
+     *
+     * @return a formatted MRN that no other registration will receive
+     */
+    public synchronized String nextMrn() {
+        if (next >= limit) {
+            reserveBlock();
+        }
+        return IdGenerator.formatMrn(next++, key);
+    }
+
+    // No default: a key shipped with the source would let anyone unscramble the MRNs
+    private static long parseKey(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalStateException(
+                    "lims.mrn.key is not set. Configure a secret numeric key (e.g. LIMS_MRN_KEY) before starting the LIMS");
+        }
+        try {
+            return Long.parseLong(key.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("lims.mrn.key must be a number", e);
+        }
+    }
+
+    private void reserveBlock() {
+        if (increment == 0) {
+            initialize();
+        }
+        long start = jdbcTemplate.queryForObject("SELECT nextval('" + SEQUENCE + "')", Long.class);
+        next = start;
+        limit = start + increment;
+    }
+
+    private void initialize() {
+        ensureSequence();
+        // The block size is whatever the sequence increments by, so changing the property later can't overlap blocks
+        increment = jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = ?", Long.class, SEQUENCE);
+    }
+
+    private void ensureSequence() {
+        String existing = jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, SEQUENCE);
+        if (existing != null) {
+            return;
+        }
+
+        // Databases that already hold randomly generated 6-digit MRNs start in the 7-digit band,
+        // so new MRNs can never collide with the old ones.
+        Long patients = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM patients", Long.class);
+        long start = (patients != null && patients > 0) ? IdGenerator.bandStart(IdGenerator.FIRST_WIDTH + 1) : 0;
+
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE
+                + " MINVALUE 0 START WITH " + start + " INCREMENT BY " + blockSize);
+    }
+}
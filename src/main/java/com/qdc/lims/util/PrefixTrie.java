@@ -0,0 +1,223 @@
+package com.qdc.lims.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.LongConsumer;
+
+/**
+ * Radix (compressed prefix) trie that maps string keys to document IDs and answers
+ * "newest K documents whose key starts with this prefix" without walking the subtree.
+ * Every node keeps its own top-K list of the highest IDs stored beneath it, so a lookup
+ * costs one walk down the prefix and a copy of at most K longs.
+ * <p>
+ * The node where a key ends also keeps every ID stored under exactly that key, so
+ * forEach() can still enumerate all matches of a prefix when K is not enough.
+ * <p>
+ * Not thread-safe; callers synchronize around add() and top().
+ */
+public class PrefixTrie {
+
+    private final int capacity;
+    private final Node root = new Node("");
+
+    /**
+     * Creates an empty trie.
+     *
+     * @param capacity the number of IDs cached per node (the largest K top() can return)
+     */
+    public PrefixTrie(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Stores an ID under a key. Adding the same ID under keys that share a prefix is fine;
+     * each node lists it only once.
+     *
+     * @param key the normalized key (e.g., mobile digits or a lowercase name token)
+     * @param id the document ID
+     */
+    public void add(String key, long id) {
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int slot = node.childIndex(key.charAt(i));
+
+            // 1. No edge starts with this character: hang the rest of the key off a new leaf
+            if (slot < 0) {
+                Node leaf = new Node(key.substring(i));
+                leaf.offer(id, capacity);
+                leaf.addId(id);
+                node.addChild(leaf);
+                return;
+            }
+
+            // 2. Follow the edge, splitting it if the key diverges part-way along its label
+            Node child = node.children[slot];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                Node middle = new Node(child.label.substring(0, common));
+                middle.top = Arrays.copyOf(child.top, child.top.length);
+                middle.size = child.size;
+                middle.total = child.total;
+                child.label = child.label.substring(common);
+                middle.addChild(child);
+                node.children[slot] = middle;
+                child = middle;
+            }
+            child.offer(id, capacity);
+            node = child;
+            i += common;
+        }
+        node.addId(id);
+    }
+
+    /**
+     * Returns the newest IDs stored under any key that starts with the prefix.
+     *
+     * @param prefix the normalized prefix
+     * @param limit the maximum number of IDs (at most the trie's capacity)
+     * @return the matching IDs, highest first (empty if none)
+     */
+    public long[] top(String prefix, int limit) {
+        Node node = find(prefix);
+        return node == null ? new long[0] : Arrays.copyOf(node.top, Math.min(limit, node.size));
+    }
+
+    /**
+     * Returns roughly how many IDs are stored under keys starting with the prefix. An ID stored
+     * under several such keys is counted once per key, so this is an upper bound.
+     *
+     * @param prefix the normalized prefix
+     * @return the number of (key, ID) entries matching the prefix
+     */
+    public int count(String prefix) {
+        Node node = find(prefix);
+        return node == null ? 0 : node.total;
+    }
+
+    /**
+     * Visits every ID stored under a key that starts with the prefix, by walking the subtree.
+     * Unlike top() this is not bounded by the capacity, and an ID may be visited more than once.
+     *
+     * @param prefix the normalized prefix
+     * @param action called with each ID, in no particular order
+     */
+    public void forEach(String prefix, LongConsumer action) {
+        Node start = find(prefix);
+        if (start == null) {
+            return;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            for (int i = 0; i < node.count; i++) {
+                action.accept(node.ids[i]);
+            }
+            for (Node child : node.children) {
+                pending.push(child);
+            }
+        }
+    }
+
+    // The node whose subtree holds exactly the keys starting with the prefix, or null if there are none
+    private Node find(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int slot = node.childIndex(prefix.charAt(i));
+            if (slot < 0) {
+                return null;
+            }
+            Node child = node.children[slot];
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                // The prefix ends on or inside this edge: everything below the child matches
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            i += common;
+        }
+        return null;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int n = 0;
+        while (n < max && label.charAt(n) == key.charAt(offset + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    // One trie node: the edge label leading to it, its children, the top-K IDs beneath it,
+    // and the IDs of keys ending here
+    private static final class Node {
+        private String label;
+        private Node[] children = new Node[0];
+        private long[] top = new long[0];
+        private int size;
+        private int total;
+        private long[] ids = new long[0];
+        private int count;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char first) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i].label.charAt(0) == first) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void addChild(Node child) {
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+        }
+
+        void addId(long id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(1, count * 2));
+            }
+            ids[count++] = id;
+        }
+
+        // Keeps top sorted descending and capped at capacity
+        void offer(long id, int capacity) {
+            total++;
+            int pos = 0;
+            while (pos < size && top[pos] > id) {
+                pos++;
+            }
+            if (pos < size && top[pos] == id) {
+                return;
+            }
+            if (pos >= capacity) {
+                return;
+            }
+            if (size == top.length) {
+                top = Arrays.copyOf(top, Math.min(capacity, Math.max(1, size * 2)));
+            }
+            int moved = Math.min(size, top.length - 1) - pos;
+            System.arraycopy(top, pos, top, pos + 1, moved);
+            top[pos] = id;
+            size = Math.min(size + 1, capacity);
+        }
+    }
+}
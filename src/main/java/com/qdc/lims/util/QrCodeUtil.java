@@ -9,7 +9,7 @@ import java.io.ByteArrayOutputStream;
 import java.util.Base64;
 
 /**
- * Utility class for generating QR codes as Base64-encoded PNG images.
+ * Utility class for generating QR codes as PNG images (raw bytes or Base64-encoded).
  */
 public class QrCodeUtil {
 
@@ -22,19 +22,30 @@ public class QrCodeUtil {
      * @return a Base64-encoded PNG image string, or an empty string if generation fails
      */
     public static String generateBase64Qr(String text, int width, int height) {
+        byte[] pngData = generatePng(text, width, height);
+        return pngData.length == 0 ? "" : Base64.getEncoder().encodeToString(pngData);
+    }
+
+    /**
+     * Generates a QR code for the given text as PNG bytes, e.g. to cache and serve as an image.
+     *
+     * @param text the text to encode in the QR code
+     * @param width the width of the QR code image
+     * @param height the height of the QR code image
+     * @return the PNG image, or an empty array if generation fails
+     */
+    public static byte[] generatePng(String text, int width, int height) {
         try {
             QRCodeWriter qrCodeWriter = new QRCodeWriter();
             BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, width, height);
 
             ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
             MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
-
-            byte[] pngData = pngOutputStream.toByteArray();
-            return Base64.getEncoder().encodeToString(pngData);
+            return pngOutputStream.toByteArray();
 
         } catch (Exception e) {
             e.printStackTrace();
-            return ""; // Return empty if failed
+            return new byte[0]; // Return empty if failed
         }
     }
-}
\ No newline at end of file
+}
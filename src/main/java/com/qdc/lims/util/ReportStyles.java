@@ -0,0 +1,96 @@
+package com.qdc.lims.util;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+
+import java.awt.Color;
+
+/**
+ * The fixed style palette of the PDF lab report: fonts, cell defaults and the results table header.
+ * Everything is built once per JVM and never modified afterwards, so it is safe to share between
+ * concurrent report renderings. Reports must not change these objects (e.g., setColor on a font);
+ * add a new constant instead.
+ */
+public final class ReportStyles {
+
+    /** Lab name at the top of the report. */
+    public static final Font TITLE = new Font(Font.HELVETICA, 20, Font.BOLD, Color.BLUE);
+
+    /** Patient details and ordinary table cells. */
+    public static final Font NORMAL = new Font(Font.HELVETICA, 12, Font.NORMAL);
+
+    /** Results outside the reference range. */
+    public static final Font ABNORMAL = new Font(Font.HELVETICA, 12, Font.BOLD, Color.RED);
+
+    /** Column headers of the results table. */
+    public static final Font HEADER = new Font(Font.HELVETICA, 12, Font.BOLD, Color.WHITE);
+
+    /** Test headings of the cumulative report. */
+    public static final Font SECTION = new Font(Font.HELVETICA, 13, Font.BOLD);
+
+    /** "End of Report" line. */
+    public static final Font FOOTER = new Font(Font.HELVETICA, 10, Font.ITALIC);
+
+    /** Padding of every results table cell. */
+    public static final float CELL_PADDING = 5;
+
+    /** Trend line and normal points of cumulative report charts. */
+    public static final Color TREND_LINE = new Color(13, 110, 253);
+
+    /** Reference range band behind cumulative report charts. */
+    public static final Color REFERENCE_BAND = new Color(209, 231, 221);
+
+    // Header row and cell defaults; every report starts from a copy of this table
+    private static final PdfPTable RESULTS_TEMPLATE = buildTemplate(
+            new float[] { 3, 2, 2, 2 }, "Test Name", "Result", "Unit", "Ref. Range");
+
+    // Same for the per-test tables of the cumulative report
+    private static final PdfPTable CUMULATIVE_TEMPLATE = buildTemplate(
+            new float[] { 3, 3, 2 }, "Date", "Result", "Visit");
+
+    private ReportStyles() {
+    }
+
+    /**
+     * Creates an empty results table with the standard columns, widths and header row.
+     * The header repeats on every page of long reports. Body cells added with
+     * {@code table.addCell(Phrase)} take the default padding.
+     *
+     * @return a new table owned by the caller
+     */
+    public static PdfPTable newResultsTable() {
+        return new PdfPTable(RESULTS_TEMPLATE);
+    }
+
+    /**
+     * Creates an empty table for one test of the cumulative report (date, result, visit), with
+     * the same header style as the results table.
+     *
+     * @return a new table owned by the caller
+     */
+    public static PdfPTable newCumulativeTable() {
+        return new PdfPTable(CUMULATIVE_TEMPLATE);
+    }
+
+    private static PdfPTable buildTemplate(float[] widths, String... titles) {
+        try {
+            PdfPTable table = new PdfPTable(titles.length);
+            table.setWidthPercentage(100);
+            table.setWidths(widths);
+            table.getDefaultCell().setPadding(CELL_PADDING);
+
+            for (String title : titles) {
+                PdfPCell cell = new PdfPCell(new Phrase(title, HEADER));
+                cell.setPadding(CELL_PADDING);
+                cell.setBackgroundColor(Color.DARK_GRAY);
+                table.addCell(cell);
+            }
+            table.setHeaderRows(1);
+            return table;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not build a report table template", e);
+        }
+    }
+}
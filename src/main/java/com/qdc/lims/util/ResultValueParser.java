@@ -0,0 +1,193 @@
+package com.qdc.lims.util;
+
+/**
+ * Parses lab result values without throwing or allocating.
+ * Accepted numeric forms are an optional comparator ("<", ">", "<=", ">="), an optional sign,
+ * digits with optional thousands separators ("1,200") and an optional decimal part, with
+ * surrounding whitespace. Anything else (e.g., "Positive", "1,5", "++") is text.
+ * <p>
+ * A value with a comparator is censored: "<0.5" only says the true value lies below 0.5, so it
+ * is never stored as the number 0.5. Callers keep the Kind and compare the limit with isBelow()
+ * and isAbove(), which only answer true when every value the text allows is past the threshold.
+ * <p>
+ * LabResultBackfill uses the same grammar as a SQL regex; keep the two in step.
+ */
+public final class ResultValueParser {
+
+    /**
+     * What a result value turned out to be.
+     */
+    public enum Kind {
+        /** Null or blank. */
+        EMPTY,
+        /** A plain number, e.g. "13.5" or "1,200". */
+        NUMERIC,
+        /** A value below the reporting limit, e.g. "<0.5". */
+        BELOW,
+        /** A value above the reporting limit, e.g. ">1000". */
+        ABOVE,
+        /** Qualitative text, e.g. "Positive". */
+        TEXT
+    }
+
+    // Powers of ten that are exact doubles, so one multiply/divide rounds correctly
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    // Largest mantissa that is still an exact double (2^53)
+    private static final long MAX_EXACT = 1L << 53;
+
+    private ResultValueParser() {
+    }
+
+    /**
+     * Classifies a result value.
+     *
+     * @param value the raw result text
+     * @return the kind of value
+     */
+    public static Kind kindOf(CharSequence value) {
+        int start = skipSpaces(value, 0);
+        if (value == null || start == value.length()) {
+            return Kind.EMPTY;
+        }
+        if (Double.isNaN(parse(value))) {
+            return Kind.TEXT;
+        }
+        char first = value.charAt(start);
+        return first == '<' ? Kind.BELOW : first == '>' ? Kind.ABOVE : Kind.NUMERIC;
+    }
+
+    /**
+     * Parses the numeric part of a result value. For "<0.5" and ">1000" the limit itself is returned.
+     *
+     * @param value the raw result text
+     * @return the number, or NaN if the value is empty or not numeric
+     */
+    public static double parse(CharSequence value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        int len = value.length();
+        int i = skipSpaces(value, 0);
+
+        // 1. Optional comparator
+        if (i < len && (value.charAt(i) == '<' || value.charAt(i) == '>')) {
+            i++;
+            if (i < len && value.charAt(i) == '=') {
+                i++;
+            }
+            i = skipSpaces(value, i);
+        }
+
+        // 2. Optional sign
+        boolean negative = false;
+        if (i < len && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+
+        // 3. Integer part, with commas only between complete groups of three digits
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean overflow = false;
+        int groupDigits = 0;
+        boolean grouped = false;
+        while (i < len) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa < MAX_EXACT / 10) {
+                    mantissa = mantissa * 10 + (c - '0');
+                } else {
+                    overflow = true;
+                    scale--; // Drop the digit but keep the magnitude
+                }
+                digits++;
+                groupDigits++;
+                i++;
+            } else if (c == ',') {
+                if (digits == 0 || (grouped ? groupDigits != 3 : groupDigits > 3)) {
+                    return Double.NaN;
+                }
+                grouped = true;
+                groupDigits = 0;
+                i++;
+            } else {
+                break;
+            }
+        }
+        if (grouped && groupDigits != 3) {
+            return Double.NaN;
+        }
+
+        // 4. Optional fraction
+        if (i < len && value.charAt(i) == '.') {
+            i++;
+            while (i < len && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+                if (mantissa < MAX_EXACT / 10) {
+                    mantissa = mantissa * 10 + (value.charAt(i) - '0');
+                    scale++;
+                } else {
+                    overflow = true;
+                }
+                digits++;
+                i++;
+            }
+        }
+
+        // 5. Nothing but whitespace may follow
+        if (digits == 0 || skipSpaces(value, i) != len) {
+            return Double.NaN;
+        }
+
+        double result;
+        if (overflow || scale >= POW10.length || -scale >= POW10.length) {
+            // More precision than a lab value ever has; rare enough to take the slow path
+            result = mantissa * Math.pow(10, -scale);
+        } else if (scale >= 0) {
+            result = mantissa / POW10[scale];
+        } else {
+            result = mantissa * POW10[-scale];
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Tells whether a value certainly lies below a threshold: a plain number below it, or a
+     * censored "&lt;x" whose limit is at or below it.
+     *
+     * @param kind the kind of the value
+     * @param number the parsed number (the limit of a censored value)
+     * @param threshold the threshold, e.g. a reference or critical low limit
+     * @return true if the true value is below the threshold
+     */
+    public static boolean isBelow(Kind kind, double number, double threshold) {
+        return kind == Kind.NUMERIC ? number < threshold : kind == Kind.BELOW && number <= threshold;
+    }
+
+    /**
+     * Tells whether a value certainly lies above a threshold: a plain number above it, or a
+     * censored "&gt;x" whose limit is at or above it.
+     *
+     * @param kind the kind of the value
+     * @param number the parsed number (the limit of a censored value)
+     * @param threshold the threshold, e.g. a reference or critical high limit
+     * @return true if the true value is above the threshold
+     */
+    public static boolean isAbove(Kind kind, double number, double threshold) {
+        return kind == Kind.NUMERIC ? number > threshold : kind == Kind.ABOVE && number >= threshold;
+    }
+
+    private static int skipSpaces(CharSequence value, int from) {
+        if (value == null) {
+            return 0;
+        }
+        int i = from;
+        while (i < value.length() && Character.isWhitespace(value.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,149 @@
+package com.qdc.lims.util;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Geometry of a small result trend chart: numeric values in time order, plotted left to right
+ * over the test's reference band. The same scaling feeds the SVG of the HTML report and the
+ * vector drawing of the PDF report. Coordinates have y pointing down, as in SVG; the PDF
+ * renderer flips them.
+ */
+public final class TrendChart {
+
+    /** Chart width, in pixels (HTML) or points (PDF). */
+    public static final float WIDTH = 480;
+
+    /** Chart height, in pixels (HTML) or points (PDF). */
+    public static final float HEIGHT = 120;
+
+    private static final float PADDING = 10;
+
+    private final double[] values;
+    private final boolean[] abnormal;
+    private final Double refLow;
+    private final Double refHigh;
+    private final double low;
+    private final double high;
+
+    private TrendChart(double[] values, boolean[] abnormal, Double refLow, Double refHigh) {
+        this.values = values;
+        this.abnormal = abnormal;
+        this.refLow = refLow;
+        this.refHigh = refHigh;
+
+        // The value axis covers every point and the reference band, with a little headroom
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (refLow != null) {
+            min = Math.min(min, refLow);
+            max = Math.max(max, refLow);
+        }
+        if (refHigh != null) {
+            min = Math.min(min, refHigh);
+            max = Math.max(max, refHigh);
+        }
+        double margin = max > min ? (max - min) * 0.1 : Math.max(Math.abs(max) * 0.1, 1);
+        this.low = min - margin;
+        this.high = max + margin;
+    }
+
+    /**
+     * Builds a chart from a series of values.
+     *
+     * @param values the numeric values, oldest first (null entries, i.e. text results, are skipped)
+     * @param abnormal the abnormal flag of each value
+     * @param refLow the lower reference limit, if any
+     * @param refHigh the upper reference limit, if any
+     * @return the chart, or null if there are fewer than two numeric values to draw a trend
+     */
+    public static TrendChart of(List<Double> values, List<Boolean> abnormal, Double refLow, Double refHigh) {
+        int count = (int) values.stream().filter(v -> v != null).count();
+        if (count < 2) {
+            return null;
+        }
+        double[] numeric = new double[count];
+        boolean[] flags = new boolean[count];
+        int n = 0;
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) != null) {
+                numeric[n] = values.get(i);
+                flags[n++] = abnormal.get(i);
+            }
+        }
+        return new TrendChart(numeric, flags, refLow, refHigh);
+    }
+
+    /** @return the number of plotted points */
+    public int size() {
+        return values.length;
+    }
+
+    /** @return true if the point was flagged abnormal */
+    public boolean isAbnormal(int i) {
+        return abnormal[i];
+    }
+
+    /** @return the x coordinate of the i-th point (visits are evenly spaced) */
+    public float x(int i) {
+        return PADDING + (WIDTH - 2 * PADDING) * i / (values.length - 1);
+    }
+
+    /** @return the y coordinate of the i-th point */
+    public float y(int i) {
+        return yOf(values[i]);
+    }
+
+    /** @return true if the test has a reference range to shade */
+    public boolean hasBand() {
+        return refLow != null || refHigh != null;
+    }
+
+    /** @return the y coordinate of the top of the reference band */
+    public float bandTop() {
+        return refHigh != null ? yOf(refHigh) : 0;
+    }
+
+    /** @return the y coordinate of the bottom of the reference band */
+    public float bandBottom() {
+        return refLow != null ? yOf(refLow) : HEIGHT;
+    }
+
+    private float yOf(double value) {
+        return (float) (PADDING + (HEIGHT - 2 * PADDING) * (high - value) / (high - low));
+    }
+
+    /**
+     * Renders the chart as an inline SVG element.
+     *
+     * @return the SVG markup
+     */
+    public String toSvg() {
+        StringBuilder svg = new StringBuilder(256 + values.length * 96);
+        svg.append(String.format(Locale.ROOT,
+                "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 %.0f %.0f\" width=\"100%%\" "
+                        + "style=\"max-width:%.0fpx\" role=\"img\">",
+                WIDTH, HEIGHT, WIDTH));
+        svg.append(String.format(Locale.ROOT,
+                "<rect x=\"0\" y=\"0\" width=\"%.0f\" height=\"%.0f\" fill=\"#fff\" stroke=\"#dee2e6\"/>", WIDTH, HEIGHT));
+        if (hasBand()) {
+            svg.append(String.format(Locale.ROOT,
+                    "<rect x=\"0\" y=\"%.1f\" width=\"%.0f\" height=\"%.1f\" fill=\"#d1e7dd\"/>",
+                    bandTop(), WIDTH, bandBottom() - bandTop()));
+        }
+        svg.append("<polyline fill=\"none\" stroke=\"#0d6efd\" stroke-width=\"2\" points=\"");
+        for (int i = 0; i < values.length; i++) {
+            svg.append(String.format(Locale.ROOT, "%.1f,%.1f ", x(i), y(i)));
+        }
+        svg.append("\"/>");
+        for (int i = 0; i < values.length; i++) {
+            svg.append(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"3.5\" fill=\"%s\"/>",
+                    x(i), y(i), abnormal[i] ? "#dc3545" : "#0d6efd"));
+        }
+        return svg.append("</svg>").toString();
+    }
+}
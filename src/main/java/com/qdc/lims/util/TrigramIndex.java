@@ -0,0 +1,198 @@
+package com.qdc.lims.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-process trigram index used when the database has no pg_trgm support (e.g., in tests).
+ * Text is split into words and each word into trigrams the same way pg_trgm does it
+ * ("ali" becomes "  a", " al", "ali", "li "). A document matches when enough of the
+ * query's trigrams appear in it, and is scored by the fraction of query trigrams it contains.
+ * Like the LIKE '%q%' branch of the database search, a document that contains the query as a
+ * substring also matches whatever its score. Short queries use prefixSearch instead, which finds
+ * candidates through the word-start trigrams ("  a", " al") and then checks the field prefix.
+ */
+public class TrigramIndex {
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    // Lower-cased fields of each document, for the substring and prefix checks
+    private final Map<Long, String[]> documents = new HashMap<>();
+
+    /**
+     * Adds a document to the index. All fields are indexed as one trigram set.
+     *
+     * @param id the document ID
+     * @param fields the text fields of the document (nulls are ignored)
+     */
+    public synchronized void add(long id, String... fields) {
+        Set<String> grams = new LinkedHashSet<>();
+        String[] lower = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            collectTrigrams(fields[i], grams);
+            lower[i] = fields[i] != null ? fields[i].toLowerCase() : null;
+        }
+        if (documents.putIfAbsent(id, lower) != null) {
+            return; // Already indexed
+        }
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+        }
+    }
+
+    /**
+     * Searches the index and returns a ranked page of matches, ordered by score (descending)
+     * and then ID (ascending).
+     *
+     * @param query the search text
+     * @param minScore the minimum fraction of query trigrams a match must contain (0..1);
+     *                 documents containing the query as a substring match regardless
+     * @param limit the maximum number of hits to return
+     * @param afterScore the score of the last hit of the previous page (ignored if afterId is null)
+     * @param afterId the ID of the last hit of the previous page, or null for the first page
+     * @return the ranked hits
+     */
+    public synchronized List<Hit> search(String query, double minScore, int limit, double afterScore, Long afterId) {
+        Set<String> grams = new LinkedHashSet<>();
+        collectTrigrams(query, grams);
+        if (grams.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> counts = new HashMap<>();
+        for (String gram : grams) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                counts.merge(list.ids[i], 1, Integer::sum);
+            }
+        }
+
+        String needle = query.trim().toLowerCase();
+        List<Hit> hits = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            double score = (double) entry.getValue() / grams.size();
+            long id = entry.getKey();
+            if (score < minScore && !anyField(id, needle, false)) {
+                continue;
+            }
+            // Keyset: only hits strictly after (afterScore, afterId) in (score desc, id asc) order
+            if (afterId != null && (score > afterScore || (score == afterScore && id <= afterId))) {
+                continue;
+            }
+            hits.add(new Hit(id, score));
+        }
+
+        hits.sort((a, b) -> a.score() != b.score() ? Double.compare(b.score(), a.score()) : Long.compare(a.id(), b.id()));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * Finds documents with a field that starts with the given text, for queries too short to
+     * have selective trigrams. Hits all score 1 and are ordered by ID.
+     *
+     * @param prefix the text the name, mobile number or MRN must start with
+     * @param limit the maximum number of hits to return
+     * @param afterId the ID of the last hit of the previous page, or null for the first page
+     * @return the hits
+     */
+    public synchronized List<Hit> prefixSearch(String prefix, int limit, Long afterId) {
+        String lower = prefix.trim().toLowerCase();
+        if (lower.isEmpty()) {
+            return List.of();
+        }
+
+        // A field starting with "al" has a word starting with "al", i.e. the trigram " al"
+        Iterable<Long> candidates = documents.keySet();
+        if (Character.isLetterOrDigit(lower.charAt(0))) {
+            String gram = lower.length() > 1 && Character.isLetterOrDigit(lower.charAt(1))
+                    ? " " + lower.substring(0, 2)
+                    : "  " + lower.charAt(0);
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return List.of();
+            }
+            List<Long> ids = new ArrayList<>(list.size);
+            for (int i = 0; i < list.size; i++) {
+                ids.add(list.ids[i]);
+            }
+            candidates = ids;
+        }
+
+        List<Long> matches = new ArrayList<>();
+        for (long id : candidates) {
+            if ((afterId == null || id > afterId) && anyField(id, lower, true)) {
+                matches.add(id);
+            }
+        }
+        matches.sort(null);
+
+        List<Hit> hits = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            hits.add(new Hit(matches.get(i), 1.0));
+        }
+        return hits;
+    }
+
+    private boolean anyField(long id, String text, boolean prefixOnly) {
+        String[] fields = documents.get(id);
+        if (fields == null) {
+            return false;
+        }
+        for (String field : fields) {
+            if (field != null && (prefixOnly ? field.startsWith(text) : field.contains(text))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collectTrigrams(String text, Set<String> out) {
+        if (text == null) {
+            return;
+        }
+        String lower = text.toLowerCase();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                String padded = "  " + word + " ";
+                for (int j = 0; j + 3 <= padded.length(); j++) {
+                    out.add(padded.substring(j, j + 3));
+                }
+                word.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * A ranked search hit.
+     *
+     * @param id the document ID
+     * @param score the fraction of query trigrams found in the document
+     */
+    public record Hit(long id, double score) {
+    }
+
+    // Growable list of document IDs for one trigram
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.qdc.lims.util;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Sliding window of the last ten z-scores of one QC control, evaluated with the Westgard multirules.
+ * The window is a fixed primitive ring buffer, so adding a control value and checking every rule
+ * touches at most ten doubles, whatever the length of the control's history.
+ * <p>
+ * Not thread-safe; callers synchronize per control.
+ */
+public final class WestgardWindow {
+
+    /**
+     * Number of values kept (the longest rule, 10x, needs ten).
+     */
+    public static final int CAPACITY = 10;
+
+    /**
+     * The Westgard rules, in the order they are reported.
+     */
+    public enum Rule {
+        /** One value beyond 3 SD. */
+        R_1_3S("1-3s", true),
+        /** Two consecutive values beyond 2 SD on the same side. */
+        R_2_2S("2-2s", true),
+        /** Two consecutive values beyond 2 SD on opposite sides (range over 4 SD). */
+        R_R_4S("R-4s", true),
+        /** Four consecutive values beyond 1 SD on the same side. */
+        R_4_1S("4-1s", true),
+        /** Ten consecutive values on the same side of the mean. */
+        R_10X("10x", true),
+        /** One value beyond 2 SD: a warning that triggers the other rules, never a rejection by itself. */
+        R_1_2S("1-2s", false);
+
+        private final String code;
+        private final boolean rejection;
+
+        Rule(String code, boolean rejection) {
+            this.code = code;
+            this.rejection = rejection;
+        }
+
+        /**
+         * @return the conventional name, e.g. "2-2s"
+         */
+        public String code() {
+            return code;
+        }
+
+        /**
+         * @return true if the run must be rejected, false for a warning
+         */
+        public boolean isRejection() {
+            return rejection;
+        }
+    }
+
+    private final double[] ring = new double[CAPACITY];
+    private int head; // Slot the next value is written to
+    private int size;
+
+    /**
+     * Adds the newest z-score and evaluates every rule that ends with it.
+     *
+     * @param z the control value's z-score
+     * @return the rules violated (empty if the run is in control)
+     */
+    public Set<Rule> add(double z) {
+        ring[head] = z;
+        head = (head + 1) % CAPACITY;
+        if (size < CAPACITY) {
+            size++;
+        }
+
+        Set<Rule> violations = EnumSet.noneOf(Rule.class);
+        if (Math.abs(z) > 3) {
+            violations.add(Rule.R_1_3S);
+        }
+        if (size >= 2) {
+            double previous = get(1);
+            if ((z > 2 && previous > 2) || (z < -2 && previous < -2)) {
+                violations.add(Rule.R_2_2S);
+            }
+            if ((z > 2 && previous < -2) || (z < -2 && previous > 2)) {
+                violations.add(Rule.R_R_4S);
+            }
+        }
+        if (sameSide(4, 1)) {
+            violations.add(Rule.R_4_1S);
+        }
+        if (sameSide(10, 0)) {
+            violations.add(Rule.R_10X);
+        }
+        if (violations.isEmpty() && Math.abs(z) > 2) {
+            violations.add(Rule.R_1_2S);
+        }
+        return violations;
+    }
+
+    /**
+     * Returns a value from the window.
+     *
+     * @param back 0 for the newest value, 1 for the one before, ...
+     * @return the z-score
+     */
+    public double get(int back) {
+        if (back < 0 || back >= size) {
+            throw new IndexOutOfBoundsException("No value " + back + " back in a window of " + size);
+        }
+        return ring[(head - 1 - back + CAPACITY) % CAPACITY];
+    }
+
+    /**
+     * @return the number of values in the window (at most CAPACITY)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets every value, e.g. after recalibration.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // True if the last 'count' values are all beyond +limit or all beyond -limit
+    private boolean sameSide(int count, double limit) {
+        if (size < count) {
+            return false;
+        }
+        boolean above = true;
+        boolean below = true;
+        for (int i = 0; i < count && (above || below); i++) {
+            double z = get(i);
+            above &= z > limit;
+            below &= z < -limit;
+        }
+        return above || below;
+    }
+}
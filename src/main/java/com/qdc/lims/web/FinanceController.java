@@ -2,6 +2,7 @@ package com.qdc.lims.web;
 
 import com.qdc.lims.entity.LabOrder;
 import com.qdc.lims.repository.LabOrderRepository;
+import com.qdc.lims.service.CommissionService;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -24,7 +25,7 @@ public class FinanceController {
     private final LabOrderRepository orderRepo;
 
     @Autowired
-    private com.qdc.lims.repository.CommissionLedgerRepository commissionRepo;
+    private CommissionService commissionService;
     @Autowired
     private com.qdc.lims.repository.DoctorRepository doctorRepo;
 
@@ -48,17 +49,9 @@ public class FinanceController {
     public String commissionDashboard(Model model) {
         List<com.qdc.lims.entity.Doctor> doctors = doctorRepo.findAll();
 
-        // We need to calculate "Total Unpaid" for each doctor manually
+        // "Total Unpaid" is kept on each doctor row, so this is one read however long the ledger is
         // A simple Map to send to the view: Map<DoctorID, DoubleAmount>
-        java.util.Map<Long, Double> balances = new java.util.HashMap<>();
-
-        for (com.qdc.lims.entity.Doctor doc : doctors) {
-            List<com.qdc.lims.entity.CommissionLedger> unpaid = commissionRepo.findByDoctorIdAndStatus(doc.getId(),
-                    "UNPAID");
-
-            double sum = unpaid.stream().mapToDouble(l -> l.getCalculatedAmount()).sum();
-            balances.put(doc.getId(), sum);
-        }
+        java.util.Map<Long, Double> balances = commissionService.unpaidBalances(doctors);
 
         model.addAttribute("doctors", doctors);
         model.addAttribute("balances", balances);
@@ -75,15 +68,7 @@ public class FinanceController {
     // 2. Pay a Doctor (Clear all their unpaid dues)
     @PostMapping("/admin/finance/pay-doctor")
     public String payDoctor(@RequestParam Long doctorId) {
-
-        List<com.qdc.lims.entity.CommissionLedger> unpaid = commissionRepo.findByDoctorIdAndStatus(doctorId, "UNPAID");
-
-        for (com.qdc.lims.entity.CommissionLedger ledger : unpaid) {
-            ledger.setStatus("PAID");
-            // You could also update a 'paymentDate' here if you added that field
-            commissionRepo.save(ledger);
-        }
-
+        commissionService.payDoctor(doctorId);
         return "redirect:/admin/finance/commissions?success=true";
     }
 
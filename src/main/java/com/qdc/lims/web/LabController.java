@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
 
@@ -100,4 +101,35 @@ public class LabController {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * Displays the orders held back by auto-verification, oldest first.
+     *
+     * @param model the model to pass data to the view
+     * @return the view name for the review queue
+     */
+    // 4. Review Queue
+    @GetMapping("/lab/review")
+    public String reviewQueue(Model model) {
+        model.addAttribute("orders", orderRepo.findByStatusOrderByIdAsc("REVIEW"));
+        return "lab-review";
+    }
+
+    /**
+     * Releases a reviewed order so reception can hand out the report.
+     *
+     * @param id the ID of the lab order
+     * @param redirectAttributes attributes for the redirect (error message, if any)
+     * @return redirect to the review queue
+     */
+    @PostMapping("/lab/review/{id}/release")
+    public String releaseOrder(@PathVariable Long id, RedirectAttributes redirectAttributes) {
+        try {
+            resultService.releaseOrder(id);
+            redirectAttributes.addFlashAttribute("successMessage", "✅ Order #" + id + " released.");
+        } catch (RuntimeException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/lab/review";
+    }
+
+}
@@ -1,18 +1,29 @@
 package com.qdc.lims.web;
 
+import com.qdc.lims.dto.CumulativeReport;
 import com.qdc.lims.entity.Doctor;
 import com.qdc.lims.entity.LabInfo;
 import com.qdc.lims.entity.LabOrder;
 import com.qdc.lims.entity.Patient;
 import com.qdc.lims.repository.*;
+import com.qdc.lims.service.AutoVerificationService;
+import com.qdc.lims.service.CumulativeReportService;
+import com.qdc.lims.service.FormulaService;
+import com.qdc.lims.service.PatientSearchService;
 import com.qdc.lims.service.PatientService;
-import com.qdc.lims.util.QrCodeUtil;
+import com.qdc.lims.service.ReferenceRangeIndex;
+import com.qdc.lims.service.ReportVerificationService;
+import com.qdc.lims.util.TrendChart;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -45,6 +56,21 @@ public class MainWebController {
 
     @Autowired
     private PatientService patientService;
+    @Autowired
+    private PatientSearchService patientSearchService;
+    @Autowired
+    private ReferenceRangeIndex rangeIndex;
+    @Autowired
+    private AutoVerificationService autoVerificationService;
+
+    @Autowired
+    private FormulaService formulaService;
+
+    @Autowired
+    private ReportVerificationService verificationService;
+
+    @Autowired
+    private CumulativeReportService cumulativeReportService;
 
     // ================= HOME & SETUP =================
 
@@ -170,7 +196,7 @@ public class MainWebController {
     @GetMapping("/search")
     public String searchPage(@RequestParam(value = "query", required = false) String query, Model model) {
         if (query != null && !query.isEmpty()) {
-            List<Patient> results = patientRepo.searchPatients(query);
+            List<Patient> results = patientSearchService.searchPatients(query, 50);
             model.addAttribute("patients", results);
             model.addAttribute("query", query);
         }
@@ -189,6 +215,33 @@ public class MainWebController {
         return "patient-history";
     }
 
+    /**
+     * Displays a patient's cumulative report: every released result per test across visits,
+     * with a trend chart per test.
+     */
+    @GetMapping("/patient/cumulative/{id}")
+    public String cumulativeReport(@PathVariable Long id,
+            @RequestParam(required = false) List<Long> tests,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since,
+            Model model) {
+        CumulativeReport report = cumulativeReportService.build(id, tests, since);
+
+        // Inline SVG per test (tests with fewer than two numeric results have no chart)
+        Map<Long, String> charts = new HashMap<>();
+        for (CumulativeReport.Series series : report.series()) {
+            TrendChart chart = CumulativeReportService.chart(series);
+            if (chart != null) {
+                charts.put(series.testId(), chart.toSvg());
+            }
+        }
+
+        model.addAttribute("report", report);
+        model.addAttribute("charts", charts);
+        model.addAttribute("tests", tests);
+        model.addAttribute("info", labInfoRepo.findById(1L).orElse(new LabInfo()));
+        return "report-cumulative";
+    }
+
     /**
      * Pays the balance for a lab order.
      */
@@ -250,7 +303,8 @@ public class MainWebController {
     }
 
     /**
-     * Displays the report for a lab order.
+     * Displays the printable report for a lab order, with the lab letterhead and QR code.
+     * Delivered orders are shown here too; their archived PDF is only served by /api/reports/{id}.
      */
     @GetMapping("/orders/report/{orderId}")
     public String showReport(@PathVariable Long orderId, Model model) {
@@ -260,10 +314,8 @@ public class MainWebController {
         model.addAttribute("order", order);
         model.addAttribute("info", info);
 
-        // QR Code Generation
-        String qrContent = "Verified Report | ID: " + order.getId() + " | Patient: " + order.getPatient().getFullName();
-        String qrImageBase64 = QrCodeUtil.generateBase64Qr(qrContent, 150, 150);
-        model.addAttribute("qrImage", qrImageBase64);
+        // QR Code: signed verification token; the image itself is cached at /verify/{token}/qr.png
+        model.addAttribute("qrToken", verificationService.tokenFor(order));
 
         return "report";
     }
@@ -321,8 +373,23 @@ public class MainWebController {
      * Saves a test definition entity.
      */
     @PostMapping("/tests")
-    public String saveTest(@ModelAttribute com.qdc.lims.entity.TestDefinition test) {
+    public String saveTest(@ModelAttribute com.qdc.lims.entity.TestDefinition test,
+            RedirectAttributes redirectAttributes) {
+        // A formula that doesn't parse is rejected before anything is saved
+        if (test.getFormula() != null && test.getFormula().isBlank()) {
+            test.setFormula(null);
+        }
+        try {
+            formulaService.validate(test.getFormula());
+        } catch (RuntimeException e) {
+            redirectAttributes.addAttribute("error", e.getMessage());
+            return "redirect:/tests";
+        }
+
         testRepo.save(test);
+        rangeIndex.refresh(test.getId()); // Legacy min/max may have changed
+        autoVerificationService.refresh(test.getId()); // Critical limits may have changed
+        formulaService.refresh(); // Formula or short code may have changed
         return "redirect:/tests?success=true";
     }
 
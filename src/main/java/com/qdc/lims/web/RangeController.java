@@ -4,6 +4,7 @@ import com.qdc.lims.entity.ReferenceRange;
 import com.qdc.lims.entity.TestDefinition;
 import com.qdc.lims.repository.ReferenceRangeRepository;
 import com.qdc.lims.repository.TestDefinitionRepository;
+import com.qdc.lims.service.ReferenceRangeIndex;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -16,16 +17,20 @@ public class RangeController {
 
     private final TestDefinitionRepository testRepo;
     private final ReferenceRangeRepository rangeRepo;
+    private final ReferenceRangeIndex rangeIndex;
 
     /**
      * Constructs a RangeController with the required repositories.
      *
      * @param testRepo repository for test definitions
      * @param rangeRepo repository for reference ranges
+     * @param rangeIndex compiled range index, refreshed whenever a rule changes
      */
-    public RangeController(TestDefinitionRepository testRepo, ReferenceRangeRepository rangeRepo) {
+    public RangeController(TestDefinitionRepository testRepo, ReferenceRangeRepository rangeRepo,
+            ReferenceRangeIndex rangeIndex) {
         this.testRepo = testRepo;
         this.rangeRepo = rangeRepo;
+        this.rangeIndex = rangeIndex;
     }
 
     /**
@@ -59,6 +64,7 @@ public class RangeController {
         
         range.setTest(test); // Link to parent
         rangeRepo.save(range);
+        rangeIndex.refresh(testId);
         
         return "redirect:/tests/" + testId + "/ranges";
     }
@@ -73,6 +79,7 @@ public class RangeController {
     @GetMapping("/tests/{testId}/ranges/delete/{rangeId}")
     public String deleteRange(@PathVariable Long testId, @PathVariable Long rangeId) {
         rangeRepo.deleteById(rangeId);
+        rangeIndex.refresh(testId);
         return "redirect:/tests/" + testId + "/ranges";
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.qdc.lims.web;
 
 import com.qdc.lims.entity.LabOrder;
 import com.qdc.lims.repository.LabOrderRepository;
+import com.qdc.lims.service.ReportArchiveService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,14 +21,17 @@ import java.util.List;
 public class ReceptionController {
 
     private final LabOrderRepository orderRepo;
+    private final ReportArchiveService archiveService;
 
     /**
-     * Constructs a ReceptionController with the specified LabOrderRepository.
+     * Constructs a ReceptionController with the specified collaborators.
      *
      * @param orderRepo repository for lab orders
+     * @param archiveService archive that stores the report once it is delivered
      */
-    public ReceptionController(LabOrderRepository orderRepo) {
+    public ReceptionController(LabOrderRepository orderRepo, ReportArchiveService archiveService) {
         this.orderRepo = orderRepo;
+        this.archiveService = archiveService;
     }
 
     // 1. The Dashboard (Today's Activity)
@@ -43,8 +47,9 @@ public class ReceptionController {
         LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
         LocalDateTime endOfDay = LocalDate.now().atTime(LocalTime.MAX);
 
-        // A. Not Ready (In Lab)
-        List<LabOrder> processing = orderRepo.findByStatusAndOrderDateBetween("PENDING", startOfDay, endOfDay);
+        // A. Not Ready (In Lab, including results waiting for review)
+        List<LabOrder> processing = orderRepo.findByStatusInAndOrderDateBetween(List.of("PENDING", "REVIEW"),
+                startOfDay, endOfDay);
 
         // B. Ready (Waiting for Patient)
         List<LabOrder> ready = orderRepo.findByStatusAndIsReportDeliveredFalseAndOrderDateBetween("COMPLETED",
@@ -80,6 +85,14 @@ public class ReceptionController {
         order.setDeliveryDate(LocalDateTime.now());
         orderRepo.save(order);
 
+        // Results are locked from now on: render the report once into the archive
+        try {
+            archiveService.archive(orderId);
+        } catch (RuntimeException e) {
+            // Not fatal: the report is archived on its first download instead
+            System.out.println("❌ Report #" + orderId + " not archived: " + e.getMessage());
+        }
+
         // Redirect to print the report immediately
         return "redirect:/orders/report/" + orderId;
     }
@@ -2,6 +2,7 @@ package com.qdc.lims.web;
 
 import com.qdc.lims.entity.*;
 import com.qdc.lims.repository.*;
+import com.qdc.lims.service.RecipeCache;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +16,7 @@ public class RecipeController {
     private final TestDefinitionRepository testRepo;
     private final InventoryItemRepository inventoryRepo;
     private final TestConsumptionRepository consumptionRepo;
+    private final RecipeCache recipeCache;
 
     /**
      * Constructs a RecipeController with the required repositories.
@@ -22,12 +24,14 @@ public class RecipeController {
      * @param testRepo repository for test definitions
      * @param inventoryRepo repository for inventory items
      * @param consumptionRepo repository for test consumptions
+     * @param recipeCache cache of recipes used during order booking
      */
     public RecipeController(TestDefinitionRepository testRepo, InventoryItemRepository inventoryRepo,
-            TestConsumptionRepository consumptionRepo) {
+            TestConsumptionRepository consumptionRepo, RecipeCache recipeCache) {
         this.testRepo = testRepo;
         this.inventoryRepo = inventoryRepo;
         this.consumptionRepo = consumptionRepo;
+        this.recipeCache = recipeCache;
     }
 
     /**
@@ -72,6 +76,7 @@ public class RecipeController {
         consumption.setQuantity(quantity);
 
         consumptionRepo.save(consumption);
+        recipeCache.refresh(testId);
 
         return "redirect:/tests/" + testId + "/recipe";
     }
@@ -86,6 +91,7 @@ public class RecipeController {
     @GetMapping("/tests/{testId}/recipe/delete/{consumptionId}")
     public String removeIngredient(@PathVariable Long testId, @PathVariable Long consumptionId) {
         consumptionRepo.deleteById(consumptionId);
+        recipeCache.refresh(testId);
         return "redirect:/tests/" + testId + "/recipe";
     }
 }
\ No newline at end of file
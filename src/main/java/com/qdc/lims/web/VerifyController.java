@@ -0,0 +1,61 @@
+package com.qdc.lims.web;
+
+import com.qdc.lims.service.ReportVerificationService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Public (no login) controller behind the QR code printed on reports.
+ */
+@Controller
+public class VerifyController {
+
+    private final ReportVerificationService verificationService;
+
+    /**
+     * Constructs a VerifyController.
+     *
+     * @param verificationService service that signs and checks report tokens
+     */
+    public VerifyController(ReportVerificationService verificationService) {
+        this.verificationService = verificationService;
+    }
+
+    /**
+     * Shows whether a scanned report is genuine, with a masked summary.
+     *
+     * @param token the signed token from the QR code
+     * @param model the model for the view
+     * @return the verification page
+     */
+    @GetMapping("/verify/{token}")
+    public String verify(@PathVariable String token, Model model) {
+        model.addAttribute("summary", verificationService.verify(token).orElse(null));
+        return "verify";
+    }
+
+    /**
+     * Serves the QR image of a token. The image of a token never changes, so browsers may keep it.
+     *
+     * @param token the signed token
+     * @return the PNG image, or 404 if the token is not genuine
+     */
+    @GetMapping("/verify/{token}/qr.png")
+    @ResponseBody
+    public ResponseEntity<byte[]> qrImage(@PathVariable String token) {
+        return verificationService.qrPng(token)
+                .map(png -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                        .contentType(MediaType.IMAGE_PNG)
+                        .body(png))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,53 @@
+// src/main/resources/static/js/critical-alerts.js
+// Listens to the critical-value stream and shows a red toast for every critical result saved by the lab.
+// EventSource reconnects by itself when the server closes the stream.
+
+document.addEventListener("DOMContentLoaded", function() {
+    if (!window.EventSource) {
+        return;
+    }
+
+    const container = document.createElement("div");
+    container.className = "position-fixed bottom-0 end-0 p-3";
+    container.style.zIndex = 1080;
+    document.body.appendChild(container);
+
+    const source = new EventSource("/api/alerts/critical/stream");
+    source.addEventListener("critical", function(event) {
+        showCriticalAlert(container, JSON.parse(event.data));
+    });
+});
+
+function showCriticalAlert(container, alert) {
+    const toast = document.createElement("div");
+    toast.className = "toast show align-items-center text-bg-danger border-0 mb-2 shadow";
+    toast.setAttribute("role", "alert");
+
+    const row = document.createElement("div");
+    row.className = "d-flex";
+
+    // Built with textContent so patient and test names are never interpreted as HTML
+    const body = document.createElement("div");
+    body.className = "toast-body";
+    const title = document.createElement("div");
+    title.className = "fw-bold";
+    title.textContent = "🚨 CRITICAL " + alert.direction + ": " + alert.testName + " = "
+        + alert.value + (alert.unit ? " " + alert.unit : "");
+    const detail = document.createElement("div");
+    detail.className = "small";
+    detail.textContent = alert.patientName + " (" + alert.mrn + ") · Order #" + alert.orderId;
+    body.appendChild(title);
+    body.appendChild(detail);
+
+    const close = document.createElement("button");
+    close.type = "button";
+    close.className = "btn-close btn-close-white me-2 m-auto";
+    close.addEventListener("click", function() {
+        toast.remove();
+    });
+
+    row.appendChild(body);
+    row.appendChild(close);
+    toast.appendChild(row);
+    container.appendChild(toast);
+}
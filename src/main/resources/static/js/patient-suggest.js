@@ -0,0 +1,65 @@
+// src/main/resources/static/js/patient-suggest.js
+// Typeahead for inputs marked with data-patient-suggest: shows matching patients while typing.
+
+document.addEventListener("DOMContentLoaded", function() {
+    document.querySelectorAll("input[data-patient-suggest]").forEach(attachSuggest);
+});
+
+function attachSuggest(input) {
+    const list = document.createElement("div");
+    list.className = "list-group position-absolute w-100 shadow-sm";
+    list.style.zIndex = 1000;
+    input.parentElement.classList.add("position-relative");
+    input.parentElement.appendChild(list);
+    input.setAttribute("autocomplete", "off");
+
+    let timer = null;
+    let lastQuery = "";
+
+    input.addEventListener("input", function() {
+        clearTimeout(timer);
+        timer = setTimeout(function() {
+            const q = input.value.trim();
+            if (q.length < 2) {
+                list.innerHTML = "";
+                return;
+            }
+            lastQuery = q;
+            fetch("/api/patients/suggest?q=" + encodeURIComponent(q))
+                .then(res => res.ok ? res.json() : [])
+                .then(patients => {
+                    // Ignore responses for text the user has already changed
+                    if (q === lastQuery) {
+                        renderSuggestions(list, patients);
+                    }
+                })
+                .catch(() => { list.innerHTML = ""; });
+        }, 150);
+    });
+
+    input.addEventListener("blur", function() {
+        // Delay so a click on a suggestion still registers
+        setTimeout(() => { list.innerHTML = ""; }, 200);
+    });
+}
+
+function renderSuggestions(list, patients) {
+    list.innerHTML = "";
+    patients.forEach(p => {
+        const item = document.createElement("a");
+        item.className = "list-group-item list-group-item-action small";
+        item.href = "/patient/history/" + p.id;
+
+        const name = document.createElement("span");
+        name.className = "fw-bold";
+        name.textContent = p.fullName;
+
+        const details = document.createElement("span");
+        details.className = "text-muted ms-2";
+        details.textContent = p.mrn + (p.mobileNumber ? " · " + p.mobileNumber : "");
+
+        item.appendChild(name);
+        item.appendChild(details);
+        list.appendChild(item);
+    });
+}
@@ -0,0 +1,13 @@
+package com.qdc.benchmark;
+
+import jakarta.persistence.MappedSuperclass;
+import lombok.Data;
+
+/**
+ * Columns shared by the two benchmark entities; only the ID mapping differs.
+ */
+@MappedSuperclass
+@Data
+public abstract class BenchRow {
+    private String payload;
+}
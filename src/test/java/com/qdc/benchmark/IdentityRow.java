@@ -0,0 +1,22 @@
+package com.qdc.benchmark;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * The old mapping: the database assigns the ID on insert.
+ */
+@Entity
+@Table(name = "bench_identity_rows")
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class IdentityRow extends BenchRow {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+}
@@ -0,0 +1,26 @@
+package com.qdc.benchmark;
+
+import com.qdc.lims.entity.IdAllocation;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * The current mapping: IDs come from a pooled sequence, IdAllocation.SIZE at a time.
+ */
+@Entity
+@Table(name = "bench_pooled_rows")
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class PooledRow extends BenchRow {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bench_pooled_row_seq")
+    @SequenceGenerator(name = "bench_pooled_row_seq", sequenceName = "bench_pooled_row_seq",
+            allocationSize = IdAllocation.SIZE)
+    private Long id;
+}
@@ -0,0 +1,210 @@
+package com.qdc.lims;
+
+import com.qdc.benchmark.BenchRow;
+import com.qdc.benchmark.IdentityRow;
+import com.qdc.benchmark.PooledRow;
+import com.qdc.lims.dto.OrderRequest;
+import com.qdc.lims.dto.PurchaseItemDTO;
+import com.qdc.lims.dto.PurchaseRequest;
+import com.qdc.lims.entity.*;
+import com.qdc.lims.repository.*;
+import com.qdc.lims.service.OrderService;
+import com.qdc.lims.service.PatientService;
+import com.qdc.lims.service.PurchaseService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures insert throughput against a real database. Skipped unless run explicitly, because it
+ * writes thousands of rows:
+ *
+ * <pre>
+ * ./mvnw test -Dtest=InsertThroughputBenchmarkTests -Dlims.benchmark=true
+ * </pre>
+ *
+ * {@link #identityVersusPooledSequence()} is the before/after of the ID change: the same rows are
+ * inserted through an IDENTITY-mapped entity (the old mapping, which Hibernate cannot batch
+ * because it needs each generated key back) and through a pooled-sequence entity (the current
+ * mapping), with the configured batch size. The order and purchase tests measure the real
+ * services as they are now. Running them again with
+ * {@code -Dspring.jpa.properties.hibernate.jdbc.batch_size=1} shows pooled sequences with
+ * batching disabled, which is not the same as the old IDENTITY mapping.
+ *
+ * The two benchmark entities live in com.qdc.benchmark and are only added to the entity scan
+ * here ({@link BenchmarkEntities}), so other tests do not create their tables.
+ *
+ * Point it at a scratch database (e.g., a throwaway docker-compose volume).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "lims.benchmark", matches = "true")
+class InsertThroughputBenchmarkTests {
+
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 500;
+    private static final int TESTS_PER_ORDER = 10;
+    private static final int ITEMS_PER_PURCHASE = 10;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private PatientService patientService;
+    @Autowired
+    private DoctorRepository doctorRepo;
+    @Autowired
+    private TestDefinitionRepository testRepo;
+    @Autowired
+    private InventoryItemRepository inventoryRepo;
+    @Autowired
+    private SupplierRepository supplierRepo;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:1}")
+    private int batchSize;
+
+    private Long patientId;
+    private Long doctorId;
+    private Long supplierId;
+    private final List<Long> testIds = new ArrayList<>();
+    private final List<Long> itemIds = new ArrayList<>();
+
+    @BeforeEach
+    void createFixtures() {
+        String run = "BENCH-" + System.nanoTime();
+
+        Patient patient = new Patient();
+        patient.setFullName(run);
+        patient.setAge(40);
+        patient.setGender("Male");
+        patientId = patientService.registerPatient(patient).getId();
+
+        Doctor doctor = new Doctor();
+        doctor.setName(run);
+        doctor.setCommissionPercentage(10.0);
+        doctorId = doctorRepo.save(doctor).getId();
+
+        Supplier supplier = new Supplier();
+        supplier.setCompanyName(run);
+        supplierId = supplierRepo.save(supplier).getId();
+
+        for (int i = 0; i < TESTS_PER_ORDER; i++) {
+            TestDefinition test = new TestDefinition();
+            test.setTestName(run + "-T" + i);
+            test.setPrice(100.0);
+            testIds.add(testRepo.save(test).getId());
+        }
+
+        for (int i = 0; i < ITEMS_PER_PURCHASE; i++) {
+            InventoryItem item = new InventoryItem();
+            item.setItemName(run + "-I" + i);
+            item.setCurrentStock(0.0);
+            item.setUnit("pcs");
+            itemIds.add(inventoryRepo.save(item).getId());
+        }
+    }
+
+    @Test
+    void identityVersusPooledSequence() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int rowsPerTx = TESTS_PER_ORDER + 2; // Same shape as one booked order
+
+        // Warm up both paths
+        for (int i = 0; i < WARMUP; i++) {
+            tx.executeWithoutResult(status -> insertRows(IdentityRow::new, rowsPerTx));
+            tx.executeWithoutResult(status -> insertRows(PooledRow::new, rowsPerTx));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            tx.executeWithoutResult(status -> insertRows(IdentityRow::new, rowsPerTx));
+        }
+        report("IDENTITY (before)", System.nanoTime() - start, rowsPerTx);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            tx.executeWithoutResult(status -> insertRows(PooledRow::new, rowsPerTx));
+        }
+        report("pooled SEQUENCE (after)", System.nanoTime() - start, rowsPerTx);
+    }
+
+    private void insertRows(java.util.function.Supplier<BenchRow> factory, int rows) {
+        for (int i = 0; i < rows; i++) {
+            BenchRow row = factory.get();
+            row.setPayload("row-" + i);
+            entityManager.persist(row);
+        }
+    }
+
+    @Test
+    void createOrderThroughput() {
+        OrderRequest request = new OrderRequest(patientId, doctorId, testIds, 0.0, 0.0);
+
+        for (int i = 0; i < WARMUP; i++) {
+            orderService.createOrder(request);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            orderService.createOrder(request);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // 1 LabOrder + N LabResults + 1 CommissionLedger per order
+        report("OrderService.createOrder", elapsed, TESTS_PER_ORDER + 2);
+    }
+
+    @Test
+    void processPurchaseThroughput() {
+        List<PurchaseItemDTO> items = new ArrayList<>();
+        for (Long itemId : itemIds) {
+            items.add(new PurchaseItemDTO(itemId, 10.0, 5.0));
+        }
+
+        for (int i = 0; i < WARMUP; i++) {
+            purchaseService.processPurchase(new PurchaseRequest(supplierId, "W" + i, items, 10.0, "Cash"));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            purchaseService.processPurchase(new PurchaseRequest(supplierId, "B" + i, items, 10.0, "Cash"));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // N journal movements + 2 SupplierLedger rows per purchase
+        report("PurchaseService.processPurchase", elapsed, ITEMS_PER_PURCHASE + 2);
+    }
+
+    private void report(String operation, long elapsedNanos, int rowsPerCall) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.printf("📊 %s (jdbc.batch_size=%d): %d calls in %.2fs -> %.1f calls/s, %.1f rows/s%n",
+                operation, batchSize, ITERATIONS, seconds, ITERATIONS / seconds,
+                ITERATIONS * rowsPerCall / seconds);
+    }
+
+    /**
+     * Adds the benchmark entities to the entity scan for this test only, so other tests never
+     * create their tables.
+     */
+    @TestConfiguration
+    @EntityScan(basePackageClasses = { QdcLimsApplication.class, BenchRow.class })
+    static class BenchmarkEntities {
+    }
+}
@@ -0,0 +1,111 @@
+package com.qdc.lims;
+
+import com.qdc.lims.entity.LabOrder;
+import com.qdc.lims.entity.LabResult;
+import com.qdc.lims.entity.Patient;
+import com.qdc.lims.entity.TestDefinition;
+import com.qdc.lims.service.ReportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of PDF report rendering for 5-, 20- and 60-test orders, with the GC profiler
+ * for allocation rate (gc.alloc.rate.norm = bytes allocated per report).
+ * No database is needed: the orders are built in memory. Skipped unless run explicitly:
+ *
+ * <pre>
+ * ./mvnw test -Dtest=ReportRenderBenchmarkTests -Dlims.benchmark=true
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportRenderBenchmarkTests {
+
+    @Param({ "5", "20", "60" })
+    public int testsPerOrder;
+
+    private ReportService reportService;
+    private LabOrder order;
+
+    @Setup
+    public void createOrder() {
+        reportService = new ReportService(null);
+
+        Patient patient = new Patient();
+        patient.setFullName("Benchmark Patient");
+        patient.setMrn("123-456");
+        patient.setAge(40);
+        patient.setGender("Male");
+
+        order = new LabOrder();
+        order.setId(1L);
+        order.setPatient(patient);
+        order.setOrderDate(LocalDateTime.now());
+        for (int i = 0; i < testsPerOrder; i++) {
+            TestDefinition test = new TestDefinition();
+            test.setId((long) i);
+            test.setTestName("Test " + i);
+            test.setUnit("mg/dL");
+            test.setMinRange(10.0);
+            test.setMaxRange(20.0);
+
+            LabResult result = new LabResult();
+            result.setLabOrder(order);
+            result.setTestDefinition(test);
+            result.setResultValue(String.valueOf(5 + i % 20));
+            result.setAbnormal(i % 3 == 0); // A third of the rows use the abnormal style
+            order.getResults().add(result);
+        }
+    }
+
+    /**
+     * Buffered rendering, as the download did before streaming: render into a byte array and copy it out.
+     */
+    @Benchmark
+    public byte[] generatePdfReport() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.renderPdf(order, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Streamed rendering, as ReportController does now: bytes go straight to the (here discarded) response.
+     */
+    @Benchmark
+    public void streamPdfReport() {
+        reportService.renderPdf(order, OutputStream.nullOutputStream());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "lims.benchmark", matches = "true")
+    void runBenchmark() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReportRenderBenchmarkTests.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
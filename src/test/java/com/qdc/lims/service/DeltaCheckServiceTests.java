@@ -0,0 +1,148 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.LabOrder;
+import com.qdc.lims.entity.LabResult;
+import com.qdc.lims.entity.Patient;
+import com.qdc.lims.entity.PatientLatestResult;
+import com.qdc.lims.entity.TestDefinition;
+import com.qdc.lims.repository.LabResultRepository;
+import com.qdc.lims.repository.PatientLatestResultRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Delta checks of several results in one save: results of the same patient and test are
+ * compared with each other in visit order, and each (patient, test) row is upserted once.
+ */
+class DeltaCheckServiceTests {
+
+    private static final Long PATIENT_ID = 11L;
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 1, 9, 0);
+
+    private final List<PatientLatestResult> rows = new ArrayList<>();
+    private final Patient patient = new Patient();
+    private final TestDefinition glucose = new TestDefinition();
+    private LabResultRepository resultRepo;
+    private JdbcTemplate jdbcTemplate;
+    private DeltaCheckService service;
+
+    @BeforeEach
+    void setUp() {
+        patient.setId(PATIENT_ID);
+        glucose.setId(5L);
+        glucose.setDeltaAbsoluteLimit(2.0);
+
+        PatientLatestResultRepository latestRepo = mock(PatientLatestResultRepository.class);
+        when(latestRepo.findByPatientIdInAndTestIdIn(anyCollection(), anyCollection())).thenReturn(rows);
+        resultRepo = mock(LabResultRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        service = new DeltaCheckService(latestRepo, resultRepo, jdbcTemplate);
+    }
+
+    @Test
+    void twoVisitsOfOneTestAreChainedAndRecordedOnce() {
+        stored(100L, 5.0, DAY);
+        LabResult later = result(2L, 9.0, DAY.plusDays(10));
+        LabResult earlier = result(1L, 6.0, DAY.plusDays(5));
+
+        service.check(List.of(later, earlier)); // File order is not visit order
+
+        assertEquals(5.0, earlier.getDeltaBaseline());
+        assertFalse(earlier.getDeltaFailed());
+        assertEquals(6.0, later.getDeltaBaseline()); // The earlier visit of the same save, not the stale row
+        assertTrue(later.getDeltaFailed());
+
+        List<Object[]> upserts = upserts();
+        assertEquals(1, upserts.size());
+        assertEquals(2L, upserts.get(0)[2]); // result_id
+        assertEquals(9.0, upserts.get(0)[3]); // latest_value
+        assertEquals(6.0, upserts.get(0)[5]); // previous_value
+    }
+
+    @Test
+    void sameResultTwiceIsCheckedOnce() {
+        stored(100L, 5.0, DAY);
+        LabResult result = result(1L, 8.0, DAY.plusDays(1));
+
+        service.check(List.of(result, result));
+
+        assertEquals(5.0, result.getDeltaBaseline());
+        assertTrue(result.getDeltaFailed());
+        assertEquals(1, upserts().size());
+    }
+
+    @Test
+    void firstValuesOfATestAreComparedWithEachOther() {
+        LabResult first = result(1L, 4.0, DAY);
+        LabResult second = result(2L, 4.5, DAY.plusDays(1));
+
+        service.check(List.of(second, first));
+
+        assertNull(first.getDeltaBaseline());
+        assertNull(first.getDeltaFailed());
+        assertEquals(4.0, second.getDeltaBaseline());
+        assertFalse(second.getDeltaFailed());
+        assertEquals(1, upserts().size());
+    }
+
+    @Test
+    void olderVisitsUseTheHistoryNotTheNewerRow() {
+        stored(100L, 20.0, DAY.plusDays(30));
+        LabResult older = result(1L, 6.0, DAY.plusDays(5));
+        when(resultRepo.findValueBefore(eq(PATIENT_ID), eq(5L), eq(DAY.plusDays(5)), anyLong(), any()))
+                .thenReturn(List.of(5.5));
+
+        service.check(List.of(older));
+
+        assertEquals(5.5, older.getDeltaBaseline());
+        assertFalse(older.getDeltaFailed());
+    }
+
+    private void stored(Long resultId, double value, LocalDateTime orderDate) {
+        PatientLatestResult row = new PatientLatestResult();
+        row.setPatientId(PATIENT_ID);
+        row.setTestId(glucose.getId());
+        row.setResultId(resultId);
+        row.setLatestValue(value);
+        row.setLatestAt(orderDate);
+        rows.add(row);
+    }
+
+    private LabResult result(Long id, double value, LocalDateTime orderDate) {
+        LabOrder order = new LabOrder();
+        order.setPatient(patient);
+        order.setOrderDate(orderDate);
+        LabResult result = new LabResult();
+        result.setId(id);
+        result.setLabOrder(order);
+        result.setTestDefinition(glucose);
+        result.setNumericValue(value);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> upserts() {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,188 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.LabResult;
+import com.qdc.lims.entity.Patient;
+import com.qdc.lims.entity.TestDefinition;
+import com.qdc.lims.repository.TestDefinitionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FormulaServiceTests {
+
+    private final List<TestDefinition> tests = new ArrayList<>();
+    private final List<LabResult> orderResults = new ArrayList<>();
+
+    @Test
+    void derivedInputsAreComputedFirst() {
+        TestDefinition chol = test(1L, "CHOL", null);
+        TestDefinition hdl = test(2L, "HDL", null);
+        TestDefinition tg = test(3L, "TG", null);
+        // Declared before VLDL on purpose: the graph, not the list order, decides
+        TestDefinition ldl = test(4L, "LDL", "{CHOL} - {HDL} - {VLDL}");
+        TestDefinition vldl = test(5L, "VLDL", "{TG} / 5");
+        LabResult tgResult = result(tg, 150.0);
+        result(chol, 200.0);
+        result(hdl, 50.0);
+        result(ldl, null);
+        result(vldl, null);
+
+        List<FormulaService.Calculation> calculations = service().recompute(orderResults, List.of(tgResult), patient());
+
+        assertEquals(List.of("VLDL", "LDL"), codes(calculations));
+        assertEquals("30", calculations.get(0).value());
+        assertEquals("120", calculations.get(1).value());
+    }
+
+    @Test
+    void onlyTestsReachableFromChangedCodesAreRecomputed() {
+        TestDefinition tbil = test(1L, "TBIL", null);
+        TestDefinition dbil = test(2L, "DBIL", null);
+        TestDefinition alb = test(3L, "ALB", null);
+        TestDefinition glob = test(4L, "GLOB", null);
+        TestDefinition ibil = test(5L, "IBIL", "{TBIL} - {DBIL}");
+        TestDefinition ag = test(6L, "A/G", "{ALB} / {GLOB}");
+        result(tbil, 1.2);
+        LabResult dbilResult = result(dbil, 0.3);
+        result(alb, 4.0);
+        result(glob, 3.0);
+        result(ibil, null);
+        result(ag, null);
+
+        List<FormulaService.Calculation> calculations = service().recompute(orderResults, List.of(dbilResult), patient());
+
+        assertEquals(List.of("IBIL"), codes(calculations));
+        assertEquals("0.9", calculations.get(0).value());
+    }
+
+    @Test
+    void missingInputsSkipOrClear() {
+        TestDefinition alb = test(1L, "ALB", null);
+        TestDefinition glob = test(2L, "GLOB", null);
+        TestDefinition ag = test(3L, "A/G", "round({ALB} / {GLOB}, 2)");
+        TestDefinition egfr = test(4L, "EGFR", "{CREA} * AGE"); // CREA not ordered
+        LabResult albResult = result(alb, 4.0);
+        result(glob, null); // Ordered, not entered yet
+        result(ag, null);
+        result(egfr, null);
+
+        List<FormulaService.Calculation> calculations = service().recompute(orderResults, List.of(albResult), patient());
+
+        assertEquals(List.of("A/G"), codes(calculations));
+        assertNull(calculations.get(0).value());
+    }
+
+    @Test
+    void nonFiniteResultsAreCleared() {
+        TestDefinition alb = test(1L, "ALB", null);
+        TestDefinition glob = test(2L, "GLOB", null);
+        TestDefinition ag = test(3L, "A/G", "{ALB} / {GLOB}");
+        LabResult globResult = result(glob, 0.0);
+        result(alb, 4.0);
+        result(ag, null);
+
+        List<FormulaService.Calculation> calculations = service().recompute(orderResults, List.of(globResult), patient());
+
+        assertNull(calculations.get(0).value());
+    }
+
+    @Test
+    void valuesAreRoundedToTwoDecimals() {
+        TestDefinition a = test(1L, "A", null);
+        TestDefinition b = test(2L, "B", "{A} / 3 + IS_FEMALE");
+        LabResult aResult = result(a, 292.368);
+        result(b, null);
+
+        List<FormulaService.Calculation> calculations = service().recompute(orderResults, List.of(aResult), patient());
+
+        assertEquals("98.46", calculations.get(0).value()); // 97.456 + 1
+    }
+
+    @Test
+    void cyclesAreLeftOutAndLoggedByCause() {
+        TestDefinition x = test(1L, "X", null);
+        test(2L, "A", "{B} + 1");
+        test(3L, "B", "{A} + 1");
+        TestDefinition c = test(4L, "C", "{A} * 2 + {X}");
+        TestDefinition d = test(5L, "D", "{X} + 1");
+        LabResult xResult = result(x, 1.0);
+        result(c, null);
+        result(d, null);
+
+        List<FormulaService.Calculation> calculations;
+        String log;
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            calculations = service().recompute(orderResults, List.of(xResult), patient());
+        } finally {
+            System.setOut(stdout);
+            log = captured.toString(StandardCharsets.UTF_8);
+        }
+
+        assertEquals(List.of("D"), codes(calculations));
+        assertEquals("2", calculations.get(0).value());
+        assertTrue(log.contains("test #2 ignored: it depends on itself"), log);
+        assertTrue(log.contains("test #3 ignored: it depends on itself"), log);
+        assertTrue(log.contains("test #4 ignored: it depends on a cycle"), log);
+        assertFalse(log.contains("test #5"), log);
+    }
+
+    @Test
+    void invalidFormulaIsRejectedWithPosition() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service().validate("{CHOL} - "));
+
+        assertTrue(e.getMessage().startsWith("Invalid formula: Unexpected end of formula at position 10"),
+                e.getMessage());
+    }
+
+    private FormulaService service() {
+        TestDefinitionRepository testRepo = mock(TestDefinitionRepository.class);
+        when(testRepo.findByFormulaIsNotNull())
+                .thenReturn(tests.stream().filter(t -> t.getFormula() != null).toList());
+        return new FormulaService(testRepo);
+    }
+
+    private TestDefinition test(Long id, String code, String formula) {
+        TestDefinition test = new TestDefinition();
+        test.setId(id);
+        test.setTestName(code);
+        test.setShortCode(code);
+        test.setFormula(formula);
+        tests.add(test);
+        return test;
+    }
+
+    private LabResult result(TestDefinition test, Double value) {
+        LabResult result = new LabResult();
+        result.setId(test.getId() * 10);
+        result.setTestDefinition(test);
+        result.setNumericValue(value);
+        orderResults.add(result);
+        return result;
+    }
+
+    private static Patient patient() {
+        Patient patient = new Patient();
+        patient.setAge(40);
+        patient.setGender("Female");
+        return patient;
+    }
+
+    private static List<String> codes(List<FormulaService.Calculation> calculations) {
+        return calculations.stream().map(c -> c.result().getTestDefinition().getShortCode()).toList();
+    }
+}
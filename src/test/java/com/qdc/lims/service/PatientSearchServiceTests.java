@@ -0,0 +1,147 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.PatientSearchHit;
+import com.qdc.lims.dto.PatientSearchPage;
+import com.qdc.lims.entity.Patient;
+import com.qdc.lims.repository.PatientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Patient search without pg_trgm: the service falls back to the in-memory TrigramIndex,
+ * so the keyset cursor and the short-query prefix lookup can be checked without a database.
+ */
+class PatientSearchServiceTests {
+
+    private final List<Patient> patients = new ArrayList<>();
+    private PatientSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        patients.add(patient(1L, "Ali Khan", "03001234567", "852-304"));
+        patients.add(patient(2L, "Alia Bibi", "03215550000", "117-990"));
+        patients.add(patient(3L, "Muhammad Ali", null, "402-118"));
+        patients.add(patient(4L, "Bilal Ahmed", "03331112222", "963-551"));
+        patients.add(patient(5L, "Ali Raza", "03457778888", "220-476"));
+        patients.add(patient(6L, "Ali Hassan", "03009990000", "781-062"));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doThrow(new DataAccessResourceFailureException("extension \"pg_trgm\" is not available"))
+                .when(jdbcTemplate).execute(anyString());
+
+        PatientRepository patientRepo = mock(PatientRepository.class);
+        when(patientRepo.findAll()).thenReturn(patients);
+        when(patientRepo.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Set<Long> ids = new HashSet<>();
+            for (Object id : (Iterable<?>) invocation.getArgument(0)) {
+                ids.add((Long) id);
+            }
+            return patients.stream().filter(p -> ids.contains(p.getId())).toList();
+        });
+
+        service = new PatientSearchService(jdbcTemplate, mock(NamedParameterJdbcTemplate.class), patientRepo);
+        service.run(null);
+    }
+
+    @Test
+    void cursorWalksEveryPageWithoutGapsOrRepeats() {
+        List<Long> expected = ids(service.search("ali", PatientSearchService.MAX_LIMIT, null));
+        assertTrue(expected.size() >= 4, "expected several hits, got " + expected);
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            PatientSearchPage page = service.search("ali", 2, cursor);
+            assertTrue(page.hits().size() <= 2);
+            paged.addAll(ids(page));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    void partialPageHasNoCursor() {
+        PatientSearchPage page = service.search("bilal ahmed", 10, null);
+
+        assertEquals(List.of(4L), ids(page));
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void cursorEncodesScoreAndIdOfLastHit() {
+        PatientSearchPage page = service.search("ali", 1, null);
+        PatientSearchHit last = page.hits().get(0);
+
+        assertEquals(last.score() + "_" + last.id(), page.nextCursor());
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertThrows(RuntimeException.class, () -> service.search("ali", 2, "not-a-cursor"));
+    }
+
+    @Test
+    void substringOfMobileNumberMatches() {
+        assertEquals(List.of(1L), ids(service.search("1234", 10, null)));
+    }
+
+    @Test
+    void shortQueryIsPrefixLookup() {
+        assertEquals(List.of(1L, 2L, 5L, 6L), ids(service.search("Al", 10, null)));
+        assertEquals(List.of(3L), ids(service.search("m", 10, null)));
+        assertEquals(List.of(2L), ids(service.search("11", 10, null)));
+    }
+
+    @Test
+    void shortQueryPagesById() {
+        PatientSearchPage first = service.search("al", 2, null);
+        assertEquals(List.of(1L, 2L), ids(first));
+
+        PatientSearchPage second = service.search("al", 2, first.nextCursor());
+        assertEquals(List.of(5L, 6L), ids(second));
+
+        PatientSearchPage third = service.search("al", 2, second.nextCursor());
+        assertTrue(third.hits().isEmpty());
+        assertNull(third.nextCursor());
+    }
+
+    @Test
+    void blankQueryReturnsNothing() {
+        PatientSearchPage page = service.search("  ", 10, null);
+
+        assertTrue(page.hits().isEmpty());
+        assertNull(page.nextCursor());
+    }
+
+    private static Patient patient(Long id, String name, String mobile, String mrn) {
+        Patient patient = new Patient();
+        patient.setId(id);
+        patient.setFullName(name);
+        patient.setMobileNumber(mobile);
+        patient.setMrn(mrn);
+        return patient;
+    }
+
+    private static List<Long> ids(PatientSearchPage page) {
+        return page.hits().stream().map(PatientSearchHit::id).toList();
+    }
+}
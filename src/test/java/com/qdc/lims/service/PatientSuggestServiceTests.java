@@ -0,0 +1,79 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.dto.PatientSuggestion;
+import com.qdc.lims.entity.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class PatientSuggestServiceTests {
+
+    private PatientSuggestService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PatientSuggestService(mock(JdbcTemplate.class));
+    }
+
+    @Test
+    void multiWordQueryFindsPatientOlderThanTheCachedIds() {
+        // Both terms are common, so the cached IDs of either one are all newer non-matches
+        register(1L, "Ali Khan", "0300-1234567");
+        for (long id = 2; id <= 50; id++) {
+            register(id, "Ali Raza", null);
+        }
+        for (long id = 51; id <= 100; id++) {
+            register(id, "Usman Khan", null);
+        }
+
+        assertEquals(List.of(1L), ids(service.suggest("ali kha", 10)));
+        assertEquals(List.of(1L), ids(service.suggest("khan ali", 10)));
+    }
+
+    @Test
+    void multiWordQueryIsNewestFirstAndLimited() {
+        for (long id = 1; id <= 60; id++) {
+            register(id, (id % 3 == 0 ? "Sara Khan " : "Sara Malik ") + id, null);
+        }
+
+        List<Long> ids = ids(service.suggest("sara khan", 5));
+
+        assertEquals(List.of(60L, 57L, 54L, 51L, 48L), ids);
+    }
+
+    @Test
+    void singleTermUsesCachedIds() {
+        register(1L, "Bilal Ahmed", "+92 333 1112222");
+        register(2L, "Bilal Hussain", null);
+
+        assertEquals(List.of(2L, 1L), ids(service.suggest("bil", 10)));
+        assertEquals(List.of(1L), ids(service.suggest("0333", 10)));
+    }
+
+    @Test
+    void noMatchForUnknownTerm() {
+        register(1L, "Ali Khan", null);
+
+        assertTrue(service.suggest("ali zzz", 10).isEmpty());
+        assertTrue(service.suggest("   ", 10).isEmpty());
+    }
+
+    private void register(Long id, String name, String mobile) {
+        Patient patient = new Patient();
+        patient.setId(id);
+        patient.setFullName(name);
+        patient.setMobileNumber(mobile);
+        patient.setMrn(String.format("%03d-%03d", id / 1000, id % 1000));
+        service.onPatientRegistered(new PatientRegisteredEvent(patient));
+    }
+
+    private static List<Long> ids(List<PatientSuggestion> suggestions) {
+        return suggestions.stream().map(PatientSuggestion::id).toList();
+    }
+}
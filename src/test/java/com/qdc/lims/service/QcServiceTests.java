@@ -0,0 +1,141 @@
+package com.qdc.lims.service;
+
+import com.qdc.lims.entity.QcControl;
+import com.qdc.lims.entity.QcRun;
+import com.qdc.lims.entity.TestDefinition;
+import com.qdc.lims.repository.QcControlRepository;
+import com.qdc.lims.repository.QcRunRepository;
+import com.qdc.lims.repository.TestDefinitionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Scoring of QC runs outside a transaction (holds change at once): the running Welford
+ * statistics, the baseline period of controls without a target, and the holds that
+ * rejection rules put on the test.
+ */
+class QcServiceTests {
+
+    private static final Long TEST_ID = 7L;
+    private static final Long CONTROL_ID = 3L;
+
+    private QcControl control;
+    private QcService service;
+
+    @BeforeEach
+    void setUp() {
+        TestDefinition test = new TestDefinition();
+        test.setId(TEST_ID);
+        test.setTestName("Glucose");
+
+        control = new QcControl();
+        control.setId(CONTROL_ID);
+        control.setTest(test);
+        control.setLevel("Level 1");
+
+        QcControlRepository controlRepo = mock(QcControlRepository.class);
+        when(controlRepo.findByIdForUpdate(CONTROL_ID)).thenReturn(Optional.of(control));
+        QcRunRepository runRepo = mock(QcRunRepository.class);
+        when(runRepo.save(any(QcRun.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(runRepo.findScoredSince(anyLong(), any(), any())).thenReturn(List.of());
+
+        service = new QcService(controlRepo, runRepo, mock(TestDefinitionRepository.class));
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("qc.tech", "n/a"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void runningStatisticsFollowWelford() {
+        for (double value : new double[] {2, 4, 4, 4, 5, 5, 7, 9}) {
+            service.recordRun(CONTROL_ID, value);
+        }
+
+        assertEquals(8L, (long) control.getRunCount());
+        assertEquals(5.0, control.getRunningMean(), 1e-12);
+        assertEquals(32.0, control.getRunningM2(), 1e-9); // Sample SD = sqrt(32 / 7)
+    }
+
+    @Test
+    void controlWithoutTargetIsOnlyScoredOnceTheBaselineIsEstablished() {
+        // 1. Twenty runs alternating 98/102: mean 100, M2 80, nothing scored yet
+        for (int i = 0; i < 20; i++) {
+            QcRun run = service.recordRun(CONTROL_ID, i % 2 == 0 ? 98.0 : 102.0);
+            assertNull(run.getSdi(), "run " + (i + 1));
+            assertFalse(run.isRejected());
+        }
+        assertEquals(100.0, control.getRunningMean(), 1e-9);
+
+        // 2. The 21st run is scored against the baseline and breaks 1-3s
+        QcRun outlier = service.recordRun(CONTROL_ID, 110.0);
+        assertEquals(10 / Math.sqrt(80.0 / 19), outlier.getSdi(), 1e-9);
+        assertEquals("1-3s", outlier.getViolations());
+        assertTrue(outlier.isRejected());
+        assertNotNull(service.holdReason(TEST_ID));
+
+        // 3. An accepted run lifts the hold
+        QcRun accepted = service.recordRun(CONTROL_ID, 100.0);
+        assertFalse(accepted.isRejected());
+        assertNull(service.holdReason(TEST_ID));
+    }
+
+    @Test
+    void assignedTargetIsUsedFromTheFirstRun() {
+        control.setTargetMean(100.0);
+        control.setTargetSd(2.0);
+
+        QcRun warning = service.recordRun(CONTROL_ID, 104.6);
+        assertEquals(2.3, warning.getSdi(), 1e-9);
+        assertEquals("1-2s", warning.getViolations());
+        assertFalse(warning.isRejected());
+        assertNull(service.holdReason(TEST_ID));
+
+        QcRun rejected = service.recordRun(CONTROL_ID, 104.4);
+        assertEquals("2-2s", rejected.getViolations());
+        assertTrue(rejected.isRejected());
+        assertTrue(service.holdReason(TEST_ID).contains("2-2s"));
+    }
+
+    @Test
+    void resetLiftsTheHoldAndRestartsTheWindow() {
+        control.setTargetMean(100.0);
+        control.setTargetSd(2.0);
+        service.recordRun(CONTROL_ID, 104.6);
+        service.recordRun(CONTROL_ID, 104.4);
+
+        service.resetControl(CONTROL_ID);
+        assertNull(service.holdReason(TEST_ID));
+
+        // Without the reset this would be a third value beyond 2 SD, i.e. 2-2s again
+        QcRun run = service.recordRun(CONTROL_ID, 104.2);
+        assertEquals("1-2s", run.getViolations());
+        assertFalse(run.isRejected());
+        assertEquals(3L, (long) control.getRunCount()); // Statistics survive the reset
+    }
+
+    @Test
+    void nonNumericValueIsRefused() {
+        assertThrows(RuntimeException.class, () -> service.recordRun(CONTROL_ID, null));
+        assertThrows(RuntimeException.class, () -> service.recordRun(CONTROL_ID, Double.NaN));
+    }
+}
@@ -0,0 +1,94 @@
+package com.qdc.lims.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormulaParserTests {
+
+    @Test
+    void precedenceAndAssociativity() {
+        assertEquals(-4, eval("-2^2"), 0); // Unary minus binds looser than ^
+        assertEquals(4, eval("(-2)^2"), 0);
+        assertEquals(512, eval("2^3^2"), 0); // Right-associative: 2^(3^2)
+        assertEquals(0.5, eval("2^-1"), 0);
+        assertEquals(7, eval("1 + 2 * 3"), 0);
+        assertEquals(9, eval("(1 + 2) * 3"), 0);
+        assertEquals(3, eval("10 - 4 - 3"), 0); // Left-associative
+        assertEquals(1, eval("8 / 4 / 2"), 0);
+        assertEquals(18, eval("2 * 3^2"), 0);
+        assertEquals(2, eval("--2"), 0);
+        assertEquals(-1, eval("+1 - 2"), 0);
+    }
+
+    @Test
+    void functions() {
+        assertEquals(2, eval("min(2, 3)"), 0);
+        assertEquals(3, eval("MAX(2, 3)"), 0);
+        assertEquals(8, eval("pow(2, 3)"), 0);
+        assertEquals(3, eval("sqrt(9)"), 0);
+        assertEquals(Math.E, eval("exp(1)"), 1e-12);
+        assertEquals(1, eval("ln(exp(1))"), 1e-12);
+        assertEquals(2, eval("log10(100)"), 1e-12);
+        assertEquals(5, eval("abs(-5)"), 0);
+        assertEquals(2.35, eval("round(2.3456, 2)"), 1e-12);
+        assertEquals(120, eval("round(123, -1)"), 0);
+        assertEquals(2, eval("if(0, 1, 2)"), 0);
+        assertEquals(1, eval("if(3 - 2, 1, 2)"), 0);
+        assertEquals(6, eval("max(min(4, 9), 2) + 2"), 0);
+    }
+
+    @Test
+    void variablesGetOneSlotEach() {
+        // Friedewald LDL
+        FormulaParser.Formula ldl = FormulaParser.parse("{CHOL} - {HDL} - {TG} / 5");
+        assertEquals(List.of("CHOL", "HDL", "TG"), ldl.variables());
+        assertEquals(120, ldl.evaluate(new double[] { 200, 50, 150 }), 1e-12);
+
+        FormulaParser.Formula repeated = FormulaParser.parse("{A/G} * {A/G} + TBIL");
+        assertEquals(List.of("A/G", "TBIL"), repeated.variables());
+        assertEquals(7, repeated.evaluate(new double[] { 2, 3 }), 0);
+    }
+
+    @Test
+    void patientVariablesAreCaseInsensitive() {
+        FormulaParser.Formula formula = FormulaParser.parse("age + Is_Female * 100 + AGE");
+        assertEquals(List.of(FormulaParser.AGE, FormulaParser.IS_FEMALE), formula.variables());
+        assertEquals(180, formula.evaluate(new double[] { 40, 1 }), 0);
+    }
+
+    @Test
+    void outOfDomainGivesNonFiniteResult() {
+        assertTrue(Double.isInfinite(eval("1 / 0")));
+        assertTrue(Double.isNaN(eval("sqrt(-1)")));
+    }
+
+    @Test
+    void errorsReportPosition() {
+        assertError("", "Formula is empty");
+        assertError("1 +", "Unexpected end of formula at position 4");
+        assertError("2 * )", "Unexpected ')' at position 5");
+        assertError("1 2", "Unexpected '2' at position 3");
+        assertError("(1 + 2", "Expected ')' at position 7");
+        assertError("{CHOL - 1", "Missing '}' at position 1");
+        assertError("{ } + 1", "Empty test code at position 4");
+        assertError("1..2", "Invalid number '1..2' at position 5");
+        assertError("foo(1)", "Unknown function 'foo' at position 7");
+        assertError("min(1)", "min() takes 2 argument(s) at position 7");
+        assertError("round(1, 2, 3)", "round() takes 2 argument(s) at position 15");
+        assertError("3 # 4", "Unexpected '#' at position 3");
+    }
+
+    private static double eval(String formula) {
+        return FormulaParser.parse(formula).evaluate(new double[0]);
+    }
+
+    private static void assertError(String formula, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> FormulaParser.parse(formula));
+        assertTrue(e.getMessage().startsWith(message), "got: " + e.getMessage());
+    }
+}
@@ -0,0 +1,56 @@
+package com.qdc.lims.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdGeneratorTests {
+
+    private static final long KEY = 987654321L;
+
+    @Test
+    void formatMrnRoundTripsThroughUnpermute() {
+        long[] ordinals = {0, 1, 2, 999_999, 1_000_000, 1_000_001, 10_999_999, 11_000_000};
+        for (long ordinal : ordinals) {
+            String mrn = IdGenerator.formatMrn(ordinal, KEY);
+            int width = mrn.length() - 1;
+            long value = Long.parseLong(mrn.replace("-", ""));
+
+            long offset = IdGenerator.unpermute(value, width, KEY);
+
+            assertEquals(ordinal, IdGenerator.bandStart(width) + offset, "ordinal of " + mrn);
+        }
+    }
+
+    @Test
+    void bandWidensAfterFirstMillion() {
+        assertEquals(7, IdGenerator.formatMrn(999_999, KEY).length());
+        assertEquals(8, IdGenerator.formatMrn(1_000_000, KEY).length());
+        assertEquals('-', IdGenerator.formatMrn(1_000_000, KEY).charAt(3));
+    }
+
+    @Test
+    void permutationIsCollisionFreeWithinBand() {
+        int width = 4; // Small band so every value can be checked
+        Set<Long> seen = new HashSet<>();
+        for (long value = 0; value < 10_000; value++) {
+            long permuted = IdGenerator.permute(value, width, KEY);
+            assertTrue(permuted >= 0 && permuted < 10_000, "out of band: " + permuted);
+            assertTrue(seen.add(permuted), "collision at " + value);
+            assertEquals(value, IdGenerator.unpermute(permuted, width, KEY));
+        }
+    }
+
+    @Test
+    void consecutiveOrdinalsAreScrambled() {
+        assertNotEquals(IdGenerator.formatMrn(0, KEY), IdGenerator.formatMrn(0, KEY + 1));
+        String first = IdGenerator.formatMrn(41, KEY).replace("-", "");
+        String second = IdGenerator.formatMrn(42, KEY).replace("-", "");
+        assertTrue(Math.abs(Long.parseLong(first) - Long.parseLong(second)) != 1);
+    }
+}
@@ -0,0 +1,83 @@
+package com.qdc.lims.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixTrieTests {
+
+    @Test
+    void topReturnsNewestIdsUnderPrefix() {
+        PrefixTrie trie = new PrefixTrie(3);
+        trie.add("ali", 1);
+        trie.add("alia", 2);
+        trie.add("alina", 3);
+        trie.add("bilal", 4);
+        trie.add("alam", 5);
+
+        assertArrayEquals(new long[] {5, 3, 2}, trie.top("al", 10));
+        assertArrayEquals(new long[] {3, 2, 1}, trie.top("ali", 10));
+        assertArrayEquals(new long[] {3}, trie.top("alin", 10));
+        assertArrayEquals(new long[] {5, 3}, trie.top("a", 2));
+        assertEquals(0, trie.top("z", 10).length);
+        assertEquals(0, trie.top("alix", 10).length);
+    }
+
+    @Test
+    void forEachVisitsIdsBeyondCapacity() {
+        PrefixTrie trie = new PrefixTrie(2);
+        for (long id = 1; id <= 50; id++) {
+            trie.add(id % 2 == 0 ? "khan" : "khalid", id);
+        }
+
+        assertEquals(2, trie.top("kha", 10).length);
+        assertEquals(expected(1, 50), visited(trie, "kha"));
+        assertEquals(25, visited(trie, "khan").size());
+        assertTrue(visited(trie, "khx").isEmpty());
+    }
+
+    @Test
+    void splitEdgesKeepTheirIds() {
+        PrefixTrie trie = new PrefixTrie(1);
+        trie.add("muhammad", 1);
+        trie.add("muhammad", 2);
+        trie.add("mu", 3); // Splits the "muhammad" edge
+        trie.add("musa", 4); // Splits it again below "mu"
+
+        assertEquals(Set.of(1L, 2L, 3L, 4L), visited(trie, "m"));
+        assertEquals(Set.of(1L, 2L), visited(trie, "muh"));
+        assertEquals(Set.of(4L), visited(trie, "mus"));
+    }
+
+    @Test
+    void countIsUpperBoundOfEntries() {
+        PrefixTrie trie = new PrefixTrie(2);
+        trie.add("ali", 1);
+        trie.add("alia", 2);
+        trie.add("ahmed", 3);
+
+        assertEquals(3, trie.count("a"));
+        assertEquals(2, trie.count("al"));
+        assertEquals(1, trie.count("ah"));
+        assertEquals(0, trie.count("b"));
+    }
+
+    private static Set<Long> visited(PrefixTrie trie, String prefix) {
+        Set<Long> ids = new TreeSet<>();
+        trie.forEach(prefix, ids::add);
+        return ids;
+    }
+
+    private static Set<Long> expected(long from, long to) {
+        Set<Long> ids = new TreeSet<>();
+        for (long id = from; id <= to; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
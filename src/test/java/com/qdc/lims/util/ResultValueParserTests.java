@@ -0,0 +1,101 @@
+package com.qdc.lims.util;
+
+import com.qdc.lims.util.ResultValueParser.Kind;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultValueParserTests {
+
+    @Test
+    void plainNumbers() {
+        assertParsed("13.5", 13.5, Kind.NUMERIC);
+        assertParsed("  7 ", 7, Kind.NUMERIC);
+        assertParsed("-2.25", -2.25, Kind.NUMERIC);
+        assertParsed("+4", 4, Kind.NUMERIC);
+        assertParsed(".5", 0.5, Kind.NUMERIC);
+        assertParsed("5.", 5, Kind.NUMERIC);
+        assertParsed("0.1", 0.1, Kind.NUMERIC); // Correctly rounded, same double as the literal
+
+        // Digits beyond double precision are dropped, not rejected
+        assertEquals(123456789.123456789, ResultValueParser.parse("123456789.123456789"), 1e-6);
+    }
+
+    @Test
+    void comparatorsAreCensored() {
+        assertParsed("<0.5", 0.5, Kind.BELOW);
+        assertParsed("< 0.5", 0.5, Kind.BELOW);
+        assertParsed("<=10", 10, Kind.BELOW);
+        assertParsed(">1000", 1000, Kind.ABOVE);
+        assertParsed(" >= 1,000 ", 1000, Kind.ABOVE);
+        assertParsed(">-5", -5, Kind.ABOVE);
+    }
+
+    @Test
+    void thousandsGroups() {
+        assertParsed("1,200", 1200, Kind.NUMERIC);
+        assertParsed("12,345,678.5", 12345678.5, Kind.NUMERIC);
+        assertParsed("999", 999, Kind.NUMERIC);
+
+        assertText("1,5"); // Decimal comma, not a group
+        assertText("1,2345");
+        assertText("1234,567");
+        assertText(",123");
+        assertText("1,");
+        assertText("1,200,30");
+    }
+
+    @Test
+    void textAndEmpty() {
+        assertText("Positive");
+        assertText("++");
+        assertText("12 mg");
+        assertText("1.2.3");
+        assertText("<");
+        assertText("<>5");
+        assertText("-");
+        assertText(".");
+
+        assertEquals(Kind.EMPTY, ResultValueParser.kindOf(null));
+        assertEquals(Kind.EMPTY, ResultValueParser.kindOf(""));
+        assertEquals(Kind.EMPTY, ResultValueParser.kindOf("   "));
+        assertTrue(Double.isNaN(ResultValueParser.parse(null)));
+        assertTrue(Double.isNaN(ResultValueParser.parse("  ")));
+    }
+
+    @Test
+    void censoredValuesOnlyCountWhenWhollyPastThreshold() {
+        // Plain numbers compare strictly
+        assertTrue(ResultValueParser.isBelow(Kind.NUMERIC, 0.4, 0.5));
+        assertFalse(ResultValueParser.isBelow(Kind.NUMERIC, 0.5, 0.5));
+        assertTrue(ResultValueParser.isAbove(Kind.NUMERIC, 501, 500));
+
+        // "<0.5" is below any threshold from 0.5 up, but says nothing about lower ones
+        assertTrue(ResultValueParser.isBelow(Kind.BELOW, 0.5, 0.5));
+        assertTrue(ResultValueParser.isBelow(Kind.BELOW, 0.5, 1));
+        assertFalse(ResultValueParser.isBelow(Kind.BELOW, 0.5, 0.3));
+        assertFalse(ResultValueParser.isAbove(Kind.BELOW, 0.5, 0.1));
+
+        // ">1000" is above any threshold up to 1000
+        assertTrue(ResultValueParser.isAbove(Kind.ABOVE, 1000, 500));
+        assertTrue(ResultValueParser.isAbove(Kind.ABOVE, 1000, 1000));
+        assertFalse(ResultValueParser.isAbove(Kind.ABOVE, 1000, 2000));
+        assertFalse(ResultValueParser.isBelow(Kind.ABOVE, 1000, 2000));
+
+        // Text never compares
+        assertFalse(ResultValueParser.isBelow(Kind.TEXT, Double.NaN, 1));
+        assertFalse(ResultValueParser.isAbove(Kind.EMPTY, Double.NaN, 1));
+    }
+
+    private static void assertParsed(String text, double expected, Kind kind) {
+        assertEquals(expected, ResultValueParser.parse(text), 0.0, text);
+        assertEquals(kind, ResultValueParser.kindOf(text), text);
+    }
+
+    private static void assertText(String text) {
+        assertTrue(Double.isNaN(ResultValueParser.parse(text)), text + " parsed as a number");
+        assertEquals(Kind.TEXT, ResultValueParser.kindOf(text), text);
+    }
+}
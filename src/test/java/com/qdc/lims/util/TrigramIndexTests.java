@@ -0,0 +1,110 @@
+package com.qdc.lims.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrigramIndexTests {
+
+    private static final double MIN_SCORE = 0.6;
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.add(1, "Ali Khan", "03001234567", "852-304");
+        index.add(2, "Alia Bibi", "03215550000", "117-990");
+        index.add(3, "Muhammad Ali", null, "402-118");
+        index.add(4, "Bilal Ahmed", "03331112222", "963-551");
+        index.add(5, "Ali Raza", "03457778888", "220-476");
+    }
+
+    @Test
+    void fuzzyMatchRanksBestFirst() {
+        List<TrigramIndex.Hit> hits = index.search("ali khan", MIN_SCORE, 10, 0, null);
+
+        assertEquals(1, hits.get(0).id());
+        assertEquals(1.0, hits.get(0).score(), 1e-9);
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).score() >= hits.get(i).score(), "not ranked at " + i);
+        }
+    }
+
+    @Test
+    void typoStillMatches() {
+        assertEquals(List.of(4L), ids(index.search("bilal ahmad", MIN_SCORE, 10, 0, null)));
+    }
+
+    @Test
+    void substringMatchesBelowMinScore() {
+        // "1234" shares only its inner trigrams with "03001234567", far below the cut-off
+        List<TrigramIndex.Hit> hits = index.search("1234", MIN_SCORE, 10, 0, null);
+
+        assertEquals(List.of(1L), ids(hits));
+        assertTrue(hits.get(0).score() < MIN_SCORE);
+    }
+
+    @Test
+    void unrelatedQueryFindsNothing() {
+        assertTrue(index.search("zzzz", MIN_SCORE, 10, 0, null).isEmpty());
+    }
+
+    @Test
+    void keysetPagesCoverEveryHitOnce() {
+        List<TrigramIndex.Hit> all = index.search("ali", MIN_SCORE, 100, 0, null);
+        assertTrue(all.size() >= 3, "expected several hits, got " + all.size());
+
+        List<Long> paged = new ArrayList<>();
+        List<TrigramIndex.Hit> page = index.search("ali", MIN_SCORE, 2, 0, null);
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 2);
+            paged.addAll(ids(page));
+            TrigramIndex.Hit last = page.get(page.size() - 1);
+            page = index.search("ali", MIN_SCORE, 2, last.score(), last.id());
+        }
+        assertEquals(ids(all), paged);
+    }
+
+    @Test
+    void prefixMatchesStartOfAnyField() {
+        assertEquals(List.of(1L, 2L, 5L), ids(index.prefixSearch("al", 10, null)));
+        assertEquals(List.of(2L), ids(index.prefixSearch("11", 10, null))); // MRN
+        assertEquals(List.of(1L, 2L, 4L, 5L), ids(index.prefixSearch("0", 10, null))); // Mobile
+        assertEquals(List.of(3L), ids(index.prefixSearch("M", 10, null)));
+    }
+
+    @Test
+    void prefixDoesNotMatchLaterWords() {
+        // "Muhammad Ali" has a word starting with "al" but its name doesn't
+        assertFalse(ids(index.prefixSearch("al", 10, null)).contains(3L));
+    }
+
+    @Test
+    void prefixPagesByIdAfterCursor() {
+        List<TrigramIndex.Hit> first = index.prefixSearch("al", 2, null);
+        assertEquals(List.of(1L, 2L), ids(first));
+        assertEquals(1.0, first.get(1).score(), 1e-9);
+
+        assertEquals(List.of(5L), ids(index.prefixSearch("al", 2, 2L)));
+        assertTrue(index.prefixSearch("al", 2, 5L).isEmpty());
+    }
+
+    @Test
+    void addingTheSameDocumentTwiceDoesNotDuplicateHits() {
+        index.add(1, "Ali Khan", "03001234567", "852-304");
+
+        assertEquals(List.of(1L, 2L, 5L), ids(index.prefixSearch("al", 10, null)));
+        assertEquals(1, index.search("ali khan", MIN_SCORE, 10, 0, null).stream().filter(h -> h.id() == 1).count());
+    }
+
+    private static List<Long> ids(List<TrigramIndex.Hit> hits) {
+        return hits.stream().map(TrigramIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,95 @@
+package com.qdc.lims.util;
+
+import com.qdc.lims.util.WestgardWindow.Rule;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Westgard multirules, one table row per rule: a run of z-scores and the violations
+ * reported when the last one is added.
+ */
+class WestgardWindowTests {
+
+    private record Case(String name, double[] zs, Set<Rule> expected) {
+    }
+
+    private static final List<Case> CASES = List.of(
+            new Case("in control", zs(0.1, -0.5, 1.9), EnumSet.noneOf(Rule.class)),
+            new Case("1-3s above", zs(0.2, 3.4), EnumSet.of(Rule.R_1_3S)),
+            new Case("1-3s below", zs(-3.1), EnumSet.of(Rule.R_1_3S)),
+            new Case("1-2s warning", zs(0.2, 2.4), EnumSet.of(Rule.R_1_2S)),
+            new Case("1-2s at exactly 2 SD is in control", zs(2.0), EnumSet.noneOf(Rule.class)),
+            new Case("2-2s above", zs(2.3, 2.4), EnumSet.of(Rule.R_2_2S)),
+            new Case("2-2s below", zs(-2.1, -2.5), EnumSet.of(Rule.R_2_2S)),
+            new Case("2-2s needs consecutive values", zs(2.5, 1.0, 2.5), EnumSet.of(Rule.R_1_2S)),
+            new Case("R-4s", zs(2.5, -2.2), EnumSet.of(Rule.R_R_4S)),
+            new Case("R-4s reversed", zs(-2.6, 2.1), EnumSet.of(Rule.R_R_4S)),
+            new Case("4-1s above", zs(1.2, 1.5, 1.1, 1.3), EnumSet.of(Rule.R_4_1S)),
+            new Case("4-1s below", zs(-1.2, -1.5, -1.1, -1.3), EnumSet.of(Rule.R_4_1S)),
+            new Case("4-1s broken by one value", zs(1.2, 0.9, 1.1, 1.3), EnumSet.noneOf(Rule.class)),
+            new Case("10x above", zs(0.5, 0.4, 0.3, 0.2, 0.6, 0.1, 0.7, 0.5, 0.4, 0.3), EnumSet.of(Rule.R_10X)),
+            new Case("10x below", zs(-0.5, -0.4, -0.3, -0.2, -0.6, -0.1, -0.7, -0.5, -0.4, -0.3),
+                    EnumSet.of(Rule.R_10X)),
+            new Case("10x needs ten", zs(0.5, 0.4, 0.3, 0.2, 0.6, 0.1, 0.7, 0.5, 0.4), EnumSet.noneOf(Rule.class)),
+            new Case("10x after the ring wraps", zs(-0.8, 0.5, 0.4, 0.3, 0.2, 0.6, 0.1, 0.7, 0.5, 0.4, 0.3),
+                    EnumSet.of(Rule.R_10X)),
+            new Case("several rules at once", zs(1.5, 1.5, 2.5, 3.5),
+                    EnumSet.of(Rule.R_1_3S, Rule.R_2_2S, Rule.R_4_1S)));
+
+    @Test
+    void everyRuleFiresOnItsPattern() {
+        for (Case c : CASES) {
+            WestgardWindow window = new WestgardWindow();
+            Set<Rule> violations = Set.of();
+            for (double z : c.zs()) {
+                violations = window.add(z);
+            }
+            assertEquals(c.expected(), violations, c.name());
+        }
+    }
+
+    @Test
+    void onlyOneTwoSIsAWarning() {
+        for (Rule rule : Rule.values()) {
+            assertEquals(rule != Rule.R_1_2S, rule.isRejection(), rule.code());
+        }
+    }
+
+    @Test
+    void windowKeepsTheLastTenValuesNewestFirst() {
+        WestgardWindow window = new WestgardWindow();
+        for (int i = 1; i <= 12; i++) {
+            window.add(i / 10.0);
+        }
+
+        assertEquals(WestgardWindow.CAPACITY, window.size());
+        assertEquals(1.2, window.get(0));
+        assertEquals(0.3, window.get(9));
+        assertThrows(IndexOutOfBoundsException.class, () -> window.get(10));
+    }
+
+    @Test
+    void clearForgetsThePreviousRun() {
+        WestgardWindow window = new WestgardWindow();
+        window.add(2.5);
+        window.clear();
+
+        assertEquals(0, window.size());
+        Set<Rule> violations = window.add(2.4);
+        assertEquals(EnumSet.of(Rule.R_1_2S), violations);
+        assertFalse(violations.stream().anyMatch(Rule::isRejection));
+        assertTrue(window.add(2.2).contains(Rule.R_2_2S));
+    }
+
+    private static double[] zs(double... values) {
+        return values;
+    }
+}